@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal in-process HTTP server answering Vault read requests with canned JSON
+ * responses. Paths without a response answer with {@code 404}. Used to benchmark the
+ * client without network latency to a real Vault.
+ * <p>
+ * Unlike the {@code VaultServerStub} used by the tests, this server keeps no state,
+ * parses no requests and writes pre-encoded response bytes, so its per-request cost
+ * stays constant and out of the measurements. It also keeps the benchmark jar
+ * independent of the test classes of the main module.
+ *
+ * @author Mark Paluch
+ */
+class StubVaultServer {
+
+	private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+	private final long latencyMillis;
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * @param latencyMillis artificial latency added to each response.
+	 */
+	StubVaultServer(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * Register a JSON response for a path relative to {@code /v1/}.
+	 *
+	 * @param path the path, e.g. {@code secret/application}.
+	 * @param json the response body.
+	 */
+	void respond(String path, String json) {
+		responses.put("/v1/" + path, json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Start the server on an ephemeral port.
+	 */
+	void start() throws IOException {
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/v1/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+
+				if (latencyMillis > 0) {
+					try {
+						TimeUnit.MILLISECONDS.sleep(latencyMillis);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+
+				byte[] body = responses.get(exchange.getRequestURI().getPath());
+				int status = 200;
+				if (body == null) {
+					body = "{\"errors\":[]}".getBytes(StandardCharsets.UTF_8);
+					status = 404;
+				}
+
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(status, body.length);
+
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(body);
+				}
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * @return {@link VaultProperties} pointing to this server.
+	 */
+	VaultProperties createVaultProperties() {
+
+		VaultProperties vaultProperties = new VaultProperties();
+		vaultProperties.setScheme("http");
+		vaultProperties.setHost("localhost");
+		vaultProperties.setPort(server.getAddress().getPort());
+		vaultProperties.setToken("00000000-0000-0000-0000-000000000000");
+		vaultProperties.setApplicationName("benchmark");
+
+		return vaultProperties;
+	}
+
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Create a JSON response of a generic secret with {@code count} entries.
+	 *
+	 * @param count number of entries.
+	 * @param valueLength length of each value.
+	 * @return the JSON response.
+	 */
+	static String secretResponse(int count, int valueLength) {
+
+		StringBuilder value = new StringBuilder(valueLength);
+		for (int i = 0; i < valueLength; i++) {
+			value.append((char) ('a' + (i % 26)));
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\"lease_id\":\"\",\"renewable\":false,\"lease_duration\":2592000,");
+		json.append("\"data\":{");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("\"key.").append(i).append("\":\"").append(value).append('"');
+		}
+		json.append("},\"wrap_info\":null,\"warnings\":null,\"auth\":null}");
+
+		return json.toString();
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmarks for {@link VaultClient#read} and decoding of {@link VaultResponse} using
+ * data binding ({@code decode}) and the streaming
+ * {@link VaultResponseHttpMessageConverter} ({@code decodeStreaming}). Run with
+ * {@code -prof gc} to report allocation per read.
+ *
+ * @author Mark Paluch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VaultClientBenchmark {
+
+	@Param({ "10", "100" })
+	int entries;
+
+	@Param({ "32", "4096" })
+	int valueLength;
+
+	private StubVaultServer server;
+	private VaultClient vaultClient;
+	private SecureBackendAccessor accessor;
+	private VaultToken token;
+	private ObjectMapper objectMapper;
+	private VaultResponseHttpMessageConverter converter;
+	private byte[] json;
+
+	@Setup
+	public void setUp() throws Exception {
+
+		String response = StubVaultServer.secretResponse(entries, valueLength);
+
+		server = new StubVaultServer(0);
+		server.start();
+		server.respond("secret/benchmark", response);
+
+		VaultProperties vaultProperties = server.createVaultProperties();
+		vaultClient = new VaultClient(vaultProperties);
+		RestTemplate restTemplate = new RestTemplate(
+				ClientHttpRequestFactoryFactory.create(vaultProperties));
+		restTemplate.getMessageConverters().add(0,
+				new VaultResponseHttpMessageConverter());
+		vaultClient.setRest(restTemplate);
+
+		accessor = SecureBackendAccessors.generic(vaultProperties, "benchmark");
+		token = VaultToken.of(vaultProperties.getToken());
+
+		objectMapper = new ObjectMapper();
+		objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		converter = new VaultResponseHttpMessageConverter(objectMapper);
+		json = response.getBytes("UTF-8");
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Benchmark
+	public Map<String, String> read() {
+		return vaultClient.read(accessor, token);
+	}
+
+	@Benchmark
+	public VaultResponse decode() throws IOException {
+		return objectMapper.readValue(json, VaultResponse.class);
+	}
+
+	@Benchmark
+	public VaultResponse decodeStreaming() throws IOException {
+		return converter.read(objectMapper.getFactory().createParser(json));
+	}
+}
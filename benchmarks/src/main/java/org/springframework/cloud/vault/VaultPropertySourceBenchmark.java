@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Benchmarks for {@link VaultPropertySource} initialization and property resolution.
+ * {@code resolveAll} resolves every property through a
+ * {@link PropertySourcesPropertyResolver} like binding of configuration properties does
+ * during startup.
+ *
+ * @author Mark Paluch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VaultPropertySourceBenchmark {
+
+	@Param({ "10", "100" })
+	int entries;
+
+	private StubVaultServer server;
+	private VaultClient vaultClient;
+	private VaultProperties vaultProperties;
+	private VaultPropertySource initialized;
+	private PropertySourcesPropertyResolver resolver;
+	private String existingKey;
+
+	@Setup
+	public void setUp() throws Exception {
+
+		server = new StubVaultServer(0);
+		server.start();
+		server.respond("secret/benchmark", StubVaultServer.secretResponse(entries, 32));
+
+		vaultProperties = server.createVaultProperties();
+		vaultClient = new VaultClient(vaultProperties);
+		vaultClient.setRest(new RestTemplate(
+				ClientHttpRequestFactoryFactory.create(vaultProperties)));
+
+		initialized = create();
+		initialized.init();
+
+		MutablePropertySources propertySources = new MutablePropertySources();
+		propertySources.addFirst(initialized);
+		resolver = new PropertySourcesPropertyResolver(propertySources);
+
+		existingKey = "key." + (entries / 2);
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Benchmark
+	public VaultPropertySource init() {
+
+		VaultPropertySource propertySource = create();
+		propertySource.init();
+		return propertySource;
+	}
+
+	@Benchmark
+	public Object getExistingProperty() {
+		return initialized.getProperty(existingKey);
+	}
+
+	@Benchmark
+	public Object getAbsentProperty() {
+		return initialized.getProperty("spring.datasource.url");
+	}
+
+	@Benchmark
+	public String[] getPropertyNames() {
+		return initialized.getPropertyNames();
+	}
+
+	@Benchmark
+	public boolean containsAbsentProperty() {
+		return initialized.containsProperty("spring.datasource.url");
+	}
+
+	@Benchmark
+	public int resolveAll() {
+
+		int resolved = 0;
+		for (String name : initialized.getPropertyNames()) {
+			if (initialized.containsProperty(name) && resolver.getProperty(name) != null) {
+				resolved++;
+			}
+		}
+
+		return resolved;
+	}
+
+	private VaultPropertySource create() {
+
+		return new VaultPropertySource("benchmark", vaultClient, vaultProperties,
+				new VaultAuthenticationManager(vaultClient, vaultProperties));
+	}
+}
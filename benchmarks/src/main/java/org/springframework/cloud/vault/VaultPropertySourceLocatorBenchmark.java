@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Benchmarks for {@link VaultPropertySourceLocator#locate} covering the default context,
+ * the application context and their profile-specific variants.
+ *
+ * @author Mark Paluch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class VaultPropertySourceLocatorBenchmark {
+
+	@Param({ "0", "4" })
+	int profiles;
+
+	@Param({ "false", "true" })
+	boolean concurrent;
+
+	@Param({ "0", "2" })
+	long latency;
+
+	private StubVaultServer server;
+	private VaultPropertySourceLocator locator;
+	private StandardEnvironment environment;
+
+	@Setup
+	public void setUp() throws Exception {
+
+		server = new StubVaultServer(latency);
+		server.start();
+
+		VaultProperties vaultProperties = server.createVaultProperties();
+		vaultProperties.getConcurrency().setEnabled(concurrent);
+
+		environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(new MapPropertySource("benchmark",
+				Collections.<String, Object> singletonMap("spring.application.name",
+						"benchmark")));
+
+		String[] activeProfiles = new String[profiles];
+		for (int i = 0; i < profiles; i++) {
+			activeProfiles[i] = "profile" + i;
+		}
+		environment.setActiveProfiles(activeProfiles);
+
+		String secret = StubVaultServer.secretResponse(20, 32);
+		for (String context : new String[] { "application", "benchmark" }) {
+
+			server.respond("secret/" + context, secret);
+			for (String profile : activeProfiles) {
+				server.respond("secret/" + context
+						+ vaultProperties.getProfileSeparator() + profile, secret);
+			}
+		}
+
+		VaultClient vaultClient = new VaultClient(vaultProperties);
+		vaultClient.setRest(new RestTemplate(
+				ClientHttpRequestFactoryFactory.create(vaultProperties)));
+
+		locator = new VaultPropertySourceLocator(vaultClient, vaultProperties);
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Benchmark
+	public PropertySource<?> locate() {
+		return locator.locate(environment);
+	}
+}
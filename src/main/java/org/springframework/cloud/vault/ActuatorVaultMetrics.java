@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.actuate.metrics.repository.InMemoryMetricRepository;
+import org.springframework.boot.actuate.metrics.writer.Delta;
+
+/**
+ * {@link VaultMetrics} that records metrics in memory and exposes them as
+ * {@link PublicMetrics} through the actuator {@code metrics} endpoint. Metrics follow
+ * the actuator naming conventions:
+ * <ul>
+ * <li>{@code timer.vault.read.<backend>.<key>}: duration of the last read in
+ * milliseconds.</li>
+ * <li>{@code counter.vault.read.requests}: number of secret reads.</li>
+ * <li>{@code counter.vault.read.errors.<status>}: failed reads by HTTP status code,
+ * {@code io} for failures without a response.</li>
+ * <li>{@code counter.vault.read.bytes}: bytes received for secret reads.</li>
+ * <li>{@code timer.vault.login.<method>}: duration of the last login.</li>
+ * <li>{@code counter.vault.login.errors}: number of failed logins.</li>
+ * <li>{@code timer.vault.user-id}: duration of the last AppId UserId computation.</li>
+ * <li>{@code counter.vault.user-id.errors}: number of failed UserId computations.</li>
+ * <li>{@code counter.vault.cache.hits}, {@code counter.vault.cache.misses} and
+ * {@code gauge.vault.cache.hit-ratio}: {@link SecretCache} statistics.</li>
+ * <li>{@code timer.vault.property-source.<context>}: duration of the last
+ * {@link VaultPropertySource} initialization.</li>
+ * </ul>
+ * The metrics live in the bootstrap context and are collected by the
+ * {@code MetricsEndpoint} of the application context. A dedicated repository is used
+ * so the application context keeps its own metric repository.
+ *
+ * @author Mark Paluch
+ */
+public class ActuatorVaultMetrics implements VaultMetrics, PublicMetrics {
+
+	private final InMemoryMetricRepository repository = new InMemoryMetricRepository();
+
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+
+	@Override
+	public void recordRead(Map<String, String> variables, int statusCode,
+			long durationNanos, long contentLength) {
+
+		setTimer("vault.read." + toMetricName(variables), durationNanos);
+		increment("counter.vault.read.requests", 1);
+
+		if (contentLength > 0) {
+			increment("counter.vault.read.bytes", contentLength);
+		}
+	}
+
+	@Override
+	public void recordReadFailure(Map<String, String> variables, int statusCode,
+			long durationNanos) {
+
+		setTimer("vault.read." + toMetricName(variables), durationNanos);
+		increment("counter.vault.read.requests", 1);
+		increment("counter.vault.read.errors."
+				+ (statusCode > 0 ? Integer.toString(statusCode) : "io"), 1);
+	}
+
+	@Override
+	public void recordLogin(String authenticationMethod, long durationNanos,
+			boolean success) {
+
+		setTimer("vault.login." + sanitize(authenticationMethod), durationNanos);
+
+		if (!success) {
+			increment("counter.vault.login.errors", 1);
+		}
+	}
+
+	@Override
+	public void recordUserId(long durationNanos, boolean success) {
+
+		setTimer("vault.user-id", durationNanos);
+
+		if (!success) {
+			increment("counter.vault.user-id.errors", 1);
+		}
+	}
+
+	@Override
+	public void recordCacheAccess(Map<String, String> variables, boolean hit) {
+
+		long hits;
+		long misses;
+
+		if (hit) {
+			hits = this.cacheHits.incrementAndGet();
+			misses = this.cacheMisses.get();
+			increment("counter.vault.cache.hits", 1);
+		}
+		else {
+			misses = this.cacheMisses.incrementAndGet();
+			hits = this.cacheHits.get();
+			increment("counter.vault.cache.misses", 1);
+		}
+
+		this.repository.set(new Metric<Number>("gauge.vault.cache.hit-ratio",
+				(double) hits / (hits + misses)));
+	}
+
+	@Override
+	public void recordPropertySourceInit(String context, long durationNanos) {
+		setTimer("vault.property-source." + sanitize(context), durationNanos);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+
+		List<Metric<?>> metrics = new ArrayList<>();
+		for (Metric<?> metric : this.repository.findAll()) {
+			metrics.add(metric);
+		}
+
+		return metrics;
+	}
+
+	private void setTimer(String name, long durationNanos) {
+		this.repository.set(new Metric<Number>("timer." + name,
+				TimeUnit.NANOSECONDS.toMillis(durationNanos)));
+	}
+
+	private void increment(String name, long delta) {
+		this.repository.increment(new Delta<Number>(name, delta));
+	}
+
+	private static String toMetricName(Map<String, String> variables) {
+		return sanitize(variables.get("backend")) + "." + sanitize(variables.get("key"));
+	}
+
+	/**
+	 * Replace characters that would introduce additional name segments or that are not
+	 * suitable for metric names.
+	 */
+	static String sanitize(String value) {
+
+		if (value == null) {
+			return "";
+		}
+
+		StringBuilder builder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+
+			char c = value.charAt(i);
+			builder.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+		}
+
+		return builder.toString();
+	}
+}
@@ -19,15 +19,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 
+import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 import org.springframework.core.io.Resource;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.client.Netty4ClientHttpRequestFactory;
@@ -36,7 +48,9 @@ import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Protocol;
 
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
@@ -46,7 +60,8 @@ import lombok.extern.apachecommons.CommonsLog;
 /**
  * Factory for {@link ClientHttpRequestFactory} that supports Apache HTTP Components,
  * OkHttp, Netty and the JDK HTTP client (in that order). This factory configures a
- * {@link ClientHttpRequestFactory} depending on the available dependencies.
+ * {@link ClientHttpRequestFactory} depending on the available dependencies. OkHttp is
+ * preferred if HTTP/2 is enabled.
  *
  * @author Mark Paluch
  */
@@ -76,6 +91,15 @@ class ClientHttpRequestFactoryFactory {
 
 		try {
 
+			if (vaultProperties.getHttp().isHttp2()) {
+
+				if (OKHTTP_PRESENT) {
+					return usingOkHttp(vaultProperties);
+				}
+
+				log.warn("HTTP/2 requires OkHttp on the class-path. Falling back to HTTP/1.1");
+			}
+
 			if (HTTP_COMPONENTS_PRESENT) {
 				return usingHttpComponents(vaultProperties);
 			}
@@ -101,18 +125,73 @@ class ClientHttpRequestFactoryFactory {
 		return new SimpleClientHttpRequestFactory();
 	}
 
+	/**
+	 * Creates a {@link AsyncClientHttpRequestFactory} for the given
+	 * {@link VaultProperties} using Netty. All requests issued through the factory share
+	 * a single event loop group.
+	 *
+	 * @param vaultProperties must not be {@literal null}
+	 * @return a new {@link AsyncClientHttpRequestFactory}. Lifecycle beans must be
+	 * initialized after obtaining.
+	 * @throws IllegalStateException if Netty is not on the class path.
+	 */
+	public static AsyncClientHttpRequestFactory createAsync(
+			VaultProperties vaultProperties) {
+
+		if (!NETTY_PRESENT) {
+			throw new IllegalStateException(
+					"Netty is required for asynchronous Vault requests");
+		}
+
+		try {
+			return (AsyncClientHttpRequestFactory) usingNetty(vaultProperties);
+		}
+		catch (IOException | GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	protected static ClientHttpRequestFactory usingHttpComponents(
 			VaultProperties vaultProperties)
 			throws GeneralSecurityException, IOException {
 
 		HttpClientBuilder httpClientBuilder = HttpClients.custom();
 
-		if (hasSslConfiguration(vaultProperties)) {
+		SSLConnectionSocketFactory sslSocketFactory = hasSslConfiguration(
+				vaultProperties)
+						? new SSLConnectionSocketFactory(
+								getSSLContext(vaultProperties.getSsl()))
+						: SSLConnectionSocketFactory.getSocketFactory();
 
-			SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(
-					getSSLContext(vaultProperties.getSsl()));
-			httpClientBuilder.setSSLSocketFactory(sslSocketFactory);
-		}
+		Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder
+				.<ConnectionSocketFactory> create() //
+				.register("http", PlainConnectionSocketFactory.getSocketFactory()) //
+				.register("https", sslSocketFactory) //
+				.build();
+
+		final VaultProperties.Http http = vaultProperties.getHttp();
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				socketFactoryRegistry);
+		connectionManager.setMaxTotal(http.getMaxTotal());
+		connectionManager.setDefaultMaxPerRoute(http.getMaxPerRoute());
+		connectionManager.setValidateAfterInactivity(http.getValidateAfterInactivity());
+
+		httpClientBuilder.setConnectionManager(connectionManager);
+		httpClientBuilder.evictExpiredConnections();
+		httpClientBuilder.evictIdleConnections(http.getIdleTimeout(),
+				TimeUnit.MILLISECONDS);
+		httpClientBuilder.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+
+			@Override
+			public long getKeepAliveDuration(HttpResponse response,
+					HttpContext context) {
+
+				long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+						.getKeepAliveDuration(response, context);
+				return keepAlive > 0 ? keepAlive : http.getKeepAlive();
+			}
+		});
 
 		RequestConfig requestConfig = RequestConfig.custom() //
 				.setConnectTimeout(vaultProperties.getConnectionTimeout()) //
@@ -157,6 +236,16 @@ class ClientHttpRequestFactoryFactory {
 
 		final OkHttpClient okHttpClient = new OkHttpClient();
 
+		VaultProperties.Http http = vaultProperties.getHttp();
+		okHttpClient.setConnectionPool(
+				new ConnectionPool(http.getMaxPerRoute(), http.getKeepAlive()));
+		okHttpClient.getDispatcher().setMaxRequests(http.getMaxTotal());
+		okHttpClient.getDispatcher().setMaxRequestsPerHost(http.getMaxPerRoute());
+
+		if (http.isHttp2()) {
+			okHttpClient.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+		}
+
 		OkHttpClientHttpRequestFactory requestFactory = new OkHttpClientHttpRequestFactory(
 				okHttpClient) {
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import org.springframework.util.StringUtils;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Value object for a Vault lease.
+ *
+ * @author Mark Paluch
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Lease {
+
+	private static final Lease NONE = new Lease(null, 0, false);
+
+	private String leaseId;
+	private long leaseDuration;
+	private boolean renewable;
+
+	/**
+	 * Creates a new {@link Lease}.
+	 *
+	 * @param leaseId may be {@literal null} or empty.
+	 * @param leaseDuration lease duration in seconds.
+	 * @param renewable {@literal true} if the lease can be renewed.
+	 * @return the created {@link Lease}
+	 */
+	public static Lease of(String leaseId, long leaseDuration, boolean renewable) {
+		return new Lease(leaseId, leaseDuration, renewable);
+	}
+
+	/**
+	 * @return a {@link Lease} without an identifier and duration.
+	 */
+	public static Lease none() {
+		return NONE;
+	}
+
+	/**
+	 * @return {@literal true} if the lease has an identifier and can be renewed.
+	 */
+	public boolean isRenewableLease() {
+		return StringUtils.hasText(leaseId) && renewable;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Value object holding secret data along with its {@link Lease}.
+ *
+ * @author Mark Paluch
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LeasedSecret {
+
+	private Map<String, String> data;
+	private Lease lease;
+
+	/**
+	 * {@literal true} if the secret could not be read because of an error other than
+	 * absence of the secret.
+	 */
+	private boolean failed;
+
+	/**
+	 * Creates a new {@link LeasedSecret}.
+	 *
+	 * @param data must not be {@literal null}.
+	 * @param lease must not be {@literal null}.
+	 * @return the created {@link LeasedSecret}
+	 */
+	public static LeasedSecret of(Map<String, String> data, Lease lease) {
+
+		Assert.notNull(data, "Data must not be null");
+		Assert.notNull(lease, "Lease must not be null");
+
+		return new LeasedSecret(data, lease, false);
+	}
+
+	/**
+	 * Creates a new {@link LeasedSecret} for a secret that could not be read.
+	 *
+	 * @param data fallback data, must not be {@literal null}.
+	 * @return the created {@link LeasedSecret}
+	 */
+	public static LeasedSecret failed(Map<String, String> data) {
+
+		Assert.notNull(data, "Data must not be null");
+
+		return new LeasedSecret(data, Lease.none(), true);
+	}
+}
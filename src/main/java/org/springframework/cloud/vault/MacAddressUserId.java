@@ -41,6 +41,8 @@ import org.springframework.util.StringUtils;
 @CommonsLog
 public class MacAddressUserId implements AppIdUserIdMechanism {
 
+	private final static char[] HEX = "0123456789ABCDEF".toCharArray();
+
 	private final VaultProperties vaultProperties;
 
 	@Override
@@ -78,11 +80,7 @@ public class MacAddressUserId implements AppIdUserIdMechanism {
 				throw new IllegalStateException(String.format("Network interface %s has no hardware address", networkInterface.getName()));
 			}
 
-			StringBuilder sb = new StringBuilder();
-			for (int i = 0; i < mac.length; i++) {
-				sb.append(String.format("%02X", mac[i]));
-			}
-			return Sha256.toSha256(sb.toString());
+			return Sha256.toSha256(Sha256.toHex(mac, HEX));
 		} catch (IOException e) {
 			throw new IllegalStateException(e);
 		}
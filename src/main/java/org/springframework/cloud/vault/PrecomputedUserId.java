@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * {@link AppIdUserIdMechanism} that computes the UserId of a delegate mechanism once in
+ * the background. Computation starts with {@link #start()} so that e.g. network
+ * interface enumeration overlaps with the remaining bootstrap instead of delaying the
+ * first login. {@link #createUserId()} waits for the computation and returns the cached
+ * UserId. A failed computation is retried with the next call.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+class PrecomputedUserId implements AppIdUserIdMechanism {
+
+	private final AppIdUserIdMechanism delegate;
+	private final VaultMetrics metrics;
+
+	private FutureTask<String> userId;
+
+	/**
+	 * Creates a new {@link PrecomputedUserId}.
+	 *
+	 * @param delegate must not be {@literal null}.
+	 * @param metrics must not be {@literal null}.
+	 */
+	PrecomputedUserId(AppIdUserIdMechanism delegate, VaultMetrics metrics) {
+
+		Assert.notNull(delegate, "AppIdUserIdMechanism must not be null");
+		Assert.notNull(metrics, "VaultMetrics must not be null");
+
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Start computing the UserId in the background.
+	 *
+	 * @return {@literal this} {@link PrecomputedUserId}.
+	 */
+	PrecomputedUserId start() {
+
+		FutureTask<String> task = getUserId();
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-userid-");
+		threadFactory.setDaemon(true);
+		threadFactory.newThread(task).start();
+
+		return this;
+	}
+
+	@Override
+	public String createUserId() {
+
+		FutureTask<String> task = getUserId();
+
+		// runs the computation in the calling thread unless it was started before
+		task.run();
+
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while obtaining the UserId", e);
+		}
+		catch (ExecutionException e) {
+
+			reset(task);
+
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new IllegalStateException("Cannot obtain the UserId", e.getCause());
+		}
+	}
+
+	private synchronized FutureTask<String> getUserId() {
+
+		if (this.userId == null) {
+			this.userId = new FutureTask<>(new Callable<String>() {
+
+				@Override
+				public String call() {
+					return compute();
+				}
+			});
+		}
+
+		return this.userId;
+	}
+
+	private synchronized void reset(FutureTask<String> failed) {
+
+		if (this.userId == failed) {
+			this.userId = null;
+		}
+	}
+
+	private String compute() {
+
+		long start = System.nanoTime();
+		boolean success = false;
+
+		try {
+			String userId = this.delegate.createUserId();
+			success = true;
+			return userId;
+		}
+		finally {
+
+			long duration = System.nanoTime() - start;
+			this.metrics.recordUserId(duration, success);
+
+			if (log.isDebugEnabled()) {
+				log.debug(String.format("Computed UserId using %s in %d ms",
+						this.delegate.getClass().getSimpleName(), duration / 1000000));
+			}
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+/**
+ * Immutable, insertion-ordered {@link Map} of property names to values optimized for
+ * property resolution. Names and values are kept in arrays, lookups use an
+ * open-addressing hash table (linear probing, load factor at most 0.5) of indexes into
+ * these arrays. {@link #getNames()} returns a cached copy of the names so enumerating
+ * property names does not allocate while modifications of that copy cannot affect
+ * lookups.
+ * <p>
+ * Mutating methods throw {@link UnsupportedOperationException}. Values may be
+ * {@literal null}, names must not be {@literal null}.
+ *
+ * @author Mark Paluch
+ */
+final class PropertyMap extends AbstractMap<String, String> {
+
+	private final static PropertyMap EMPTY = new PropertyMap(new String[0],
+			new String[0]);
+
+	private final String[] names;
+	private final String[] values;
+
+	/**
+	 * Copy of {@link #names} handed out for enumeration.
+	 */
+	private final String[] enumeration;
+
+	/**
+	 * Slots hold the index of a name plus one, {@literal 0} marks an empty slot.
+	 */
+	private final int[] table;
+	private final int mask;
+
+	private transient Set<Map.Entry<String, String>> entrySet;
+
+	private PropertyMap(String[] names, String[] values) {
+
+		this.names = names;
+		this.values = values;
+		this.enumeration = names.clone();
+
+		int capacity = 2;
+		while (capacity < names.length * 2) {
+			capacity <<= 1;
+		}
+
+		this.table = new int[capacity];
+		this.mask = capacity - 1;
+
+		for (int i = 0; i < names.length; i++) {
+
+			int slot = hash(names[i]) & this.mask;
+			while (this.table[slot] != 0) {
+				slot = (slot + 1) & this.mask;
+			}
+			this.table[slot] = i + 1;
+		}
+	}
+
+	/**
+	 * @return the empty {@link PropertyMap}.
+	 */
+	static PropertyMap empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Create a {@link PropertyMap} from {@code properties} retaining their iteration
+	 * order.
+	 *
+	 * @param properties must not be {@literal null}.
+	 * @return the {@link PropertyMap}, {@code properties} itself if it is a
+	 * {@link PropertyMap}.
+	 */
+	static PropertyMap of(Map<String, String> properties) {
+
+		Assert.notNull(properties, "Properties must not be null");
+
+		if (properties instanceof PropertyMap) {
+			return (PropertyMap) properties;
+		}
+
+		if (properties.isEmpty()) {
+			return EMPTY;
+		}
+
+		String[] names = new String[properties.size()];
+		String[] values = new String[properties.size()];
+
+		int i = 0;
+		for (Map.Entry<String, String> entry : properties.entrySet()) {
+
+			Assert.notNull(entry.getKey(), "Property names must not be null");
+			names[i] = entry.getKey();
+			values[i] = entry.getValue();
+			i++;
+		}
+
+		return new PropertyMap(names, values);
+	}
+
+	/**
+	 * @return the property names in iteration order. The array is shared between
+	 * callers and must not be modified.
+	 */
+	String[] getNames() {
+		return this.enumeration;
+	}
+
+	@Override
+	public String get(Object key) {
+
+		int index = indexOf(key);
+		return index < 0 ? null : this.values[index];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return this.names.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.names.length == 0;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+
+		return this.entrySet;
+	}
+
+	private int indexOf(Object key) {
+
+		if (!(key instanceof String)) {
+			return -1;
+		}
+
+		int slot = hash((String) key) & this.mask;
+		int entry;
+
+		while ((entry = this.table[slot]) != 0) {
+
+			if (key.equals(this.names[entry - 1])) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & this.mask;
+		}
+
+		return -1;
+	}
+
+	private static int hash(String key) {
+
+		int hash = key.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+		@Override
+		public Iterator<Map.Entry<String, String>> iterator() {
+
+			return new Iterator<Map.Entry<String, String>>() {
+
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return this.index < names.length;
+				}
+
+				@Override
+				public Map.Entry<String, String> next() {
+
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+
+					int i = this.index++;
+					return new SimpleImmutableEntry<>(names[i], values[i]);
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return names.length;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.Assert;
+
+import lombok.Value;
+
+/**
+ * Lease-aware cache for secrets read from Vault. Entries are keyed by the
+ * {@link SecureBackendAccessor#variables() accessor variables} and expire after the
+ * lease duration reported by Vault, capped at a configured maximum TTL. Secrets without
+ * a lease duration are not cached. The cache is bounded and evicts the least recently
+ * used entry once the maximum size is reached.
+ *
+ * @author Mark Paluch
+ */
+public class SecretCache {
+
+	private final long maxTtlMillis;
+	private final Map<Map<String, String>, CachedSecret> entries;
+
+	/**
+	 * Creates a new {@link SecretCache} for the given {@link VaultProperties.Cache}
+	 * settings.
+	 *
+	 * @param cache must not be {@literal null}.
+	 */
+	public SecretCache(VaultProperties.Cache cache) {
+		this(cache.getMaxTtl(), cache.getMaxSize());
+	}
+
+	/**
+	 * Creates a new {@link SecretCache}.
+	 *
+	 * @param maxTtl maximal time to live in seconds.
+	 * @param maxSize maximal number of cached secrets, must be greater than zero.
+	 */
+	public SecretCache(long maxTtl, final int maxSize) {
+
+		Assert.isTrue(maxTtl >= 0, "Max TTL must not be negative");
+		Assert.isTrue(maxSize > 0, "Max size must be greater than zero");
+
+		this.maxTtlMillis = TimeUnit.SECONDS.toMillis(maxTtl);
+		this.entries = new LinkedHashMap<Map<String, String>, CachedSecret>(16, 0.75f,
+				true) {
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Map<String, String>, CachedSecret> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Look up cached secret data for a {@link SecureBackendAccessor}.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @return the cached secret data along with its {@link Lease} or {@literal null} if
+	 * absent or expired.
+	 */
+	public LeasedSecret get(SecureBackendAccessor secureBackendAccessor) {
+
+		Map<String, String> key = secureBackendAccessor.variables();
+
+		synchronized (this.entries) {
+
+			CachedSecret cachedSecret = this.entries.get(key);
+			if (cachedSecret == null) {
+				return null;
+			}
+
+			if (cachedSecret.getExpiry() <= currentTimeMillis()) {
+				this.entries.remove(key);
+				return null;
+			}
+
+			return cachedSecret.getSecret();
+		}
+	}
+
+	/**
+	 * Cache secret data for a {@link SecureBackendAccessor}. Data is only cached if the
+	 * lease duration and the max TTL are positive.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @param data must not be {@literal null}.
+	 * @param lease must not be {@literal null}.
+	 */
+	public void put(SecureBackendAccessor secureBackendAccessor,
+			Map<String, String> data, Lease lease) {
+
+		Assert.notNull(data, "Data must not be null");
+		Assert.notNull(lease, "Lease must not be null");
+
+		long ttl = Math.min(TimeUnit.SECONDS.toMillis(lease.getLeaseDuration()),
+				this.maxTtlMillis);
+		if (ttl <= 0) {
+			return;
+		}
+
+		CachedSecret cachedSecret = new CachedSecret(LeasedSecret.of(
+				Collections.unmodifiableMap(new HashMap<>(data)), lease),
+				currentTimeMillis() + ttl);
+
+		synchronized (this.entries) {
+			this.entries.put(secureBackendAccessor.variables(), cachedSecret);
+		}
+	}
+
+	/**
+	 * Remove the cached secret for a {@link SecureBackendAccessor}.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 */
+	public void evict(SecureBackendAccessor secureBackendAccessor) {
+
+		synchronized (this.entries) {
+			this.entries.remove(secureBackendAccessor.variables());
+		}
+	}
+
+	/**
+	 * Remove all cached secrets.
+	 */
+	public void clear() {
+
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * @return the number of cached secrets including expired ones that were not yet
+	 * evicted.
+	 */
+	public int size() {
+
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	@Value
+	private static class CachedSecret {
+		private LeasedSecret secret;
+		private long expiry;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * Tracks a content hash of secrets per {@link SecureBackendAccessor#variables() accessor
+ * path} to detect unchanged secrets. Unchanged secrets are not transformed again:
+ * {@link #transform(SecureBackendAccessor, Map)} returns the same (unmodifiable)
+ * properties instance as for the previous read so callers can skip rebuilding derived
+ * state by comparing instances.
+ *
+ * @author Mark Paluch
+ */
+public class SecretChangeTracker {
+
+	private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final ConcurrentMap<Map<String, String>, TrackedSecret> secrets = new ConcurrentHashMap<>();
+
+	/**
+	 * Transform {@code data} using {@link SecureBackendAccessor#transformProperties(Map)}
+	 * unless {@code data} is unchanged since the last call for the same accessor path.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @param data must not be {@literal null}.
+	 * @return the transformed properties, the previously returned instance if
+	 * {@code data} did not change.
+	 */
+	public Map<String, String> transform(SecureBackendAccessor secureBackendAccessor,
+			Map<String, String> data) {
+
+		Assert.notNull(secureBackendAccessor, "SecureBackendAccessor must not be null");
+		Assert.notNull(data, "Data must not be null");
+
+		Map<String, String> key = secureBackendAccessor.variables();
+		byte[] digest = digest(data);
+
+		TrackedSecret trackedSecret = this.secrets.get(key);
+		if (trackedSecret != null && MessageDigest.isEqual(trackedSecret.digest, digest)) {
+			return trackedSecret.properties;
+		}
+
+		Map<String, String> properties = Collections
+				.unmodifiableMap(secureBackendAccessor.transformProperties(data));
+		this.secrets.put(key, new TrackedSecret(digest, properties));
+
+		return properties;
+	}
+
+	/**
+	 * Forget the tracked state for a {@link SecureBackendAccessor}.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 */
+	public void evict(SecureBackendAccessor secureBackendAccessor) {
+		this.secrets.remove(secureBackendAccessor.variables());
+	}
+
+	/**
+	 * Calculate a SHA-256 digest over the sorted entries of {@code data}. Keys and values
+	 * are length-prefixed so different entries can't produce the same input.
+	 */
+	private static byte[] digest(Map<String, String> data) {
+
+		MessageDigest messageDigest = Sha256.newMessageDigest();
+
+		for (Map.Entry<String, String> entry : new TreeMap<>(data).entrySet()) {
+			update(messageDigest, entry.getKey());
+			update(messageDigest, entry.getValue());
+		}
+
+		return messageDigest.digest();
+	}
+
+	private static void update(MessageDigest messageDigest, String value) {
+
+		if (value == null) {
+			messageDigest.update((byte) 0);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(UTF_8);
+		messageDigest.update((byte) 1);
+		messageDigest.update(new byte[] { (byte) (bytes.length >>> 24),
+				(byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8),
+				(byte) bytes.length });
+		messageDigest.update(bytes);
+	}
+
+	private static class TrackedSecret {
+
+		private final byte[] digest;
+		private final Map<String, String> properties;
+
+		TrackedSecret(byte[] digest, Map<String, String> properties) {
+			this.digest = digest;
+			this.properties = properties;
+		}
+	}
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import lombok.Value;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Container for leased secrets such as dynamically generated database credentials.
+ * Secrets read through this container are tracked by their {@link Lease}. Leases are
+ * renewed using {@code sys/renew} before they expire. Once a lease cannot be renewed
+ * any further (max TTL reached or renewal failed) the container obtains new secrets and
+ * notifies {@link SecretLeaseListener}s with a {@link SecretRotatedEvent}. The event is
+ * also published through the {@link ApplicationEventPublisher} of the first bootstrap
+ * context. Rotated secrets with a non-renewable lease are rotated again once their
+ * lease expires.
+ * <p>
+ * Each read of a dynamic backend issues a secret with its own lease. Secrets are
+ * therefore tracked per {@link SecureBackendAccessor} and requesting property source
+ * so that secrets read by different property sources are renewed independently. A
+ * subsequent read for the same accessor and property source (e.g. by a property source
+ * created on refresh that replaces its predecessor) supersedes the tracked secret: the
+ * container stops renewing the previous lease and revokes it using {@code sys/revoke}.
+ * <p>
+ * A {@link SecretLeaseContainer} is owned by a {@link VaultSessions.Session} rather than
+ * by a bootstrap context, so leases of property sources created on refresh are renewed
+ * after the bootstrap context that created them is closed. Secrets are read, renewed
+ * and revoked using the current {@link VaultClient} of the
+ * {@link VaultAuthenticationManager} that read the secret.
+ * <p>
+ * Leases are renewed {@link VaultProperties.LeaseRenewal#getExpiryThreshold() expiry
+ * threshold} seconds before they expire, but not later than halfway through the
+ * lease duration of the secret so that secrets with short leases are not rotated on
+ * each renewal. Renewals are scheduled at least one second apart.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+public class SecretLeaseContainer {
+
+	private final static long RETRY_DELAY_SECONDS = 10;
+
+	private final static long MIN_DELAY_MILLIS = 1000;
+
+	private final VaultProperties.LeaseRenewal leaseRenewal;
+	private final ScheduledExecutorService executor;
+	private final Random random = new Random();
+
+	private final ConcurrentMap<SecretKey, RequestedSecret> secrets = new ConcurrentHashMap<>();
+	private final List<SecretLeaseListener> listeners = new CopyOnWriteArrayList<>();
+
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	public SecretLeaseContainer(VaultProperties vaultProperties) {
+		this(vaultProperties, createExecutor());
+	}
+
+	SecretLeaseContainer(VaultProperties vaultProperties,
+			ScheduledExecutorService executor) {
+
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+		Assert.notNull(executor, "ScheduledExecutorService must not be null");
+
+		this.leaseRenewal = vaultProperties.getLeaseRenewal();
+		this.executor = executor;
+	}
+
+	private static ScheduledExecutorService createExecutor() {
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-lease-renewal-");
+		threadFactory.setDaemon(true);
+		return Executors.newSingleThreadScheduledExecutor(threadFactory);
+	}
+
+	/**
+	 * Set the {@link ApplicationEventPublisher} to publish {@link SecretRotatedEvent}s.
+	 * Has no effect if a publisher is already set, so events are published through the
+	 * first bootstrap context rather than a context created on refresh.
+	 *
+	 * @param applicationEventPublisher may be {@literal null}.
+	 */
+	public synchronized void setApplicationEventPublisher(
+			ApplicationEventPublisher applicationEventPublisher) {
+
+		if (this.applicationEventPublisher == null) {
+			this.applicationEventPublisher = applicationEventPublisher;
+		}
+	}
+
+	/**
+	 * Add a {@link SecretLeaseListener} that is notified about every rotated secret.
+	 *
+	 * @param listener must not be {@literal null}.
+	 */
+	public void addListener(SecretLeaseListener listener) {
+
+		Assert.notNull(listener, "SecretLeaseListener must not be null");
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Remove a {@link SecretLeaseListener}.
+	 *
+	 * @param listener must not be {@literal null}.
+	 */
+	public void removeListener(SecretLeaseListener listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Read a secret and track its lease if the lease is renewable.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @param authenticationManager must not be {@literal null}.
+	 * @param owner name of the property source requesting the secret, must not be
+	 * {@literal null}.
+	 * @param listener optional listener notified when this particular secret is
+	 * rotated, may be {@literal null}.
+	 * @return the transformed properties.
+	 */
+	Map<String, String> read(SecureBackendAccessor secureBackendAccessor,
+			VaultAuthenticationManager authenticationManager, String owner,
+			SecretLeaseListener listener) {
+
+		LeasedSecret secret = authenticationManager.getVaultClient()
+				.readWithLease(secureBackendAccessor, authenticationManager);
+
+		if (secret.getLease().isRenewableLease()) {
+			register(secureBackendAccessor, authenticationManager, owner,
+					secret.getLease(), listener);
+		}
+
+		return secret.getData();
+	}
+
+	/**
+	 * Read secrets for multiple {@link SecureBackendAccessor}s using
+	 * {@link VaultClient#readAllWithLease(List, VaultAuthenticationManager)} and track their leases if
+	 * the leases are renewable.
+	 *
+	 * @param secureBackendAccessors must not be {@literal null}.
+	 * @param authenticationManager must not be {@literal null}.
+	 * @param owner name of the property source requesting the secrets, must not be
+	 * {@literal null}.
+	 * @param listener optional listener notified when one of the secrets is rotated,
+	 * may be {@literal null}.
+	 * @return the transformed properties along with their {@link Lease} in the order of
+	 * {@code secureBackendAccessors}.
+	 */
+	List<LeasedSecret> readAll(List<SecureBackendAccessor> secureBackendAccessors,
+			VaultAuthenticationManager authenticationManager, String owner,
+			SecretLeaseListener listener) {
+
+		List<LeasedSecret> secrets = authenticationManager.getVaultClient()
+				.readAllWithLease(secureBackendAccessors, authenticationManager);
+
+		for (int i = 0; i < secrets.size(); i++) {
+
+			LeasedSecret secret = secrets.get(i);
+			if (secret.getLease().isRenewableLease()) {
+				register(secureBackendAccessors.get(i), authenticationManager, owner,
+						secret.getLease(), listener);
+			}
+		}
+
+		return secrets;
+	}
+
+	/**
+	 * @return the number of tracked secrets.
+	 */
+	int size() {
+		return this.secrets.size();
+	}
+
+	/**
+	 * Track {@code lease} and supersede a secret tracked for the same accessor and
+	 * owner. A superseded lease is revoked unless it is the same lease, e.g. because
+	 * the secret was served from cache.
+	 */
+	private void register(SecureBackendAccessor secureBackendAccessor,
+			VaultAuthenticationManager authenticationManager, String owner,
+			Lease lease, SecretLeaseListener listener) {
+
+		Assert.notNull(owner, "Owner must not be null");
+
+		RequestedSecret requestedSecret = new RequestedSecret(secureBackendAccessor,
+				authenticationManager, listener);
+		RequestedSecret previous;
+		Lease superseded;
+
+		synchronized (requestedSecret) {
+
+			requestedSecret.setLease(lease);
+			previous = this.secrets.put(
+					new SecretKey(secureBackendAccessor.variables(), owner),
+					requestedSecret);
+
+			superseded = previous != null ? previous.cancel() : null;
+			if (superseded != null
+					&& lease.getLeaseId().equals(superseded.getLeaseId())) {
+
+				// keep renewing the same lease, retaining its renewal state
+				requestedSecret.lease = superseded;
+				requestedSecret.issuedLeaseDuration = previous.issuedLeaseDuration;
+				superseded = null;
+			}
+
+			scheduleRenewal(requestedSecret, requestedSecret.lease);
+
+			if (superseded == null) {
+				return;
+			}
+		}
+
+		revoke(previous, superseded);
+	}
+
+	private void revoke(RequestedSecret requestedSecret, Lease lease) {
+
+		try {
+			requestedSecret.authenticationManager.getVaultClient().revokeLease(lease,
+					requestedSecret.authenticationManager.getToken());
+			log.debug(String.format("Revoked superseded lease %s", lease.getLeaseId()));
+		}
+		catch (RuntimeException e) {
+			log.warn(String.format("Cannot revoke superseded lease %s: %s",
+					lease.getLeaseId(), e.getMessage()));
+		}
+	}
+
+	private void scheduleRenewal(final RequestedSecret requestedSecret,
+			final Lease lease) {
+
+		schedule(requestedSecret, new Runnable() {
+
+			@Override
+			public void run() {
+				renew(requestedSecret, lease);
+			}
+		}, getDelayMillis(requestedSecret, lease));
+	}
+
+	private void scheduleRotation(final RequestedSecret requestedSecret,
+			long delayMillis) {
+
+		schedule(requestedSecret, new Runnable() {
+
+			@Override
+			public void run() {
+				synchronized (requestedSecret) {
+					if (!requestedSecret.cancelled) {
+						rotate(requestedSecret);
+					}
+				}
+			}
+		}, delayMillis);
+	}
+
+	/**
+	 * Calculate the delay until {@code lease} should be renewed or, for non-renewable
+	 * leases, rotated. The delay varies by up to 10 percent to spread renewals of many
+	 * instances sharing the same lease duration.
+	 */
+	long getDelayMillis(RequestedSecret requestedSecret, Lease lease) {
+
+		long delayMillis = TimeUnit.SECONDS.toMillis(lease.getLeaseDuration()
+				- getExpiryThreshold(requestedSecret));
+		long jitterMillis = (long) (this.random.nextDouble() * delayMillis / 10);
+
+		return Math.max(MIN_DELAY_MILLIS, delayMillis - jitterMillis);
+	}
+
+	/**
+	 * @return the expiry threshold in seconds, at most half of the lease duration the
+	 * secret was issued with.
+	 */
+	private long getExpiryThreshold(RequestedSecret requestedSecret) {
+		return Math.min(this.leaseRenewal.getExpiryThreshold(),
+				requestedSecret.issuedLeaseDuration / 2);
+	}
+
+	private void schedule(RequestedSecret requestedSecret, Runnable task,
+			long delayMillis) {
+
+		if (requestedSecret.cancelled) {
+			return;
+		}
+
+		if (requestedSecret.scheduledTask != null) {
+			requestedSecret.scheduledTask.cancel(false);
+		}
+
+		if (!this.executor.isShutdown()) {
+			requestedSecret.scheduledTask = this.executor.schedule(task, delayMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void renew(RequestedSecret requestedSecret, Lease lease) {
+
+		synchronized (requestedSecret) {
+
+			if (requestedSecret.cancelled || !lease.equals(requestedSecret.lease)) {
+				return;
+			}
+
+			Lease renewed;
+			try {
+				renewed = requestedSecret.authenticationManager.getVaultClient()
+						.renewLease(lease,
+								requestedSecret.authenticationManager.getToken());
+			}
+			catch (RuntimeException e) {
+
+				log.warn(String.format("Cannot renew lease %s: %s. Rotating secret",
+						lease.getLeaseId(), e.getMessage()));
+				rotate(requestedSecret);
+				return;
+			}
+
+			if (!renewed.isRenewableLease() || renewed
+					.getLeaseDuration() <= getExpiryThreshold(requestedSecret)) {
+
+				log.info(String.format("Lease %s reached its maximum TTL. Rotating secret",
+						lease.getLeaseId()));
+				rotate(requestedSecret);
+				return;
+			}
+
+			requestedSecret.lease = renewed;
+			scheduleRenewal(requestedSecret, renewed);
+		}
+	}
+
+	private void rotate(final RequestedSecret requestedSecret) {
+
+		SecureBackendAccessor accessor = requestedSecret.secureBackendAccessor;
+		VaultClient vaultClient = requestedSecret.authenticationManager
+				.getVaultClient();
+		vaultClient.evict(accessor);
+
+		LeasedSecret secret;
+		try {
+			secret = vaultClient.readWithLease(accessor,
+					requestedSecret.authenticationManager);
+		}
+		catch (RuntimeException e) {
+			log.error(String.format("Cannot rotate secret for %s", accessor.variables()),
+					e);
+			secret = null;
+		}
+
+		if (secret == null || secret.isFailed() || secret.getData().isEmpty()) {
+			scheduleRotation(requestedSecret,
+					TimeUnit.SECONDS.toMillis(RETRY_DELAY_SECONDS));
+			return;
+		}
+
+		Lease lease = secret.getLease();
+		requestedSecret.setLease(lease);
+
+		if (lease.isRenewableLease()) {
+			scheduleRenewal(requestedSecret, lease);
+		}
+		else if (lease.getLeaseDuration() > 0) {
+			scheduleRotation(requestedSecret, getDelayMillis(requestedSecret, lease));
+		}
+
+		SecretRotatedEvent event = new SecretRotatedEvent(this, accessor,
+				secret.getData(), secret.getLease());
+
+		if (requestedSecret.listener != null) {
+			notify(Collections.singletonList(requestedSecret.listener), event);
+		}
+		notify(this.listeners, event);
+
+		publish(event);
+	}
+
+	private void publish(SecretRotatedEvent event) {
+
+		ApplicationEventPublisher applicationEventPublisher;
+		synchronized (this) {
+			applicationEventPublisher = this.applicationEventPublisher;
+		}
+
+		if (applicationEventPublisher == null) {
+			return;
+		}
+
+		try {
+			applicationEventPublisher.publishEvent(event);
+		}
+		catch (RuntimeException e) {
+			log.warn("Cannot publish SecretRotatedEvent", e);
+		}
+	}
+
+	private void notify(List<SecretLeaseListener> listeners, SecretRotatedEvent event) {
+
+		for (SecretLeaseListener listener : listeners) {
+			try {
+				listener.onSecretRotated(event);
+			}
+			catch (RuntimeException e) {
+				log.warn("SecretLeaseListener failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Stop renewing and rotating secrets. Leases are not revoked.
+	 */
+	public void destroy() {
+
+		this.executor.shutdownNow();
+		this.secrets.clear();
+	}
+
+	/**
+	 * Identifies a tracked secret by the accessor variables and the name of the
+	 * property source that requested the secret.
+	 */
+	@Value
+	private static class SecretKey {
+
+		private Map<String, String> variables;
+		private String owner;
+	}
+
+	static class RequestedSecret {
+
+		private final SecureBackendAccessor secureBackendAccessor;
+		private final VaultAuthenticationManager authenticationManager;
+		private final SecretLeaseListener listener;
+
+		private Lease lease;
+		private long issuedLeaseDuration;
+		private ScheduledFuture<?> scheduledTask;
+		private boolean cancelled;
+
+		RequestedSecret(SecureBackendAccessor secureBackendAccessor,
+				VaultAuthenticationManager authenticationManager,
+				SecretLeaseListener listener) {
+			this.secureBackendAccessor = secureBackendAccessor;
+			this.authenticationManager = authenticationManager;
+			this.listener = listener;
+		}
+
+		/**
+		 * Set the lease of a newly issued secret.
+		 */
+		void setLease(Lease lease) {
+			this.lease = lease;
+			this.issuedLeaseDuration = lease.getLeaseDuration();
+		}
+
+		/**
+		 * Stop renewing and rotating this secret.
+		 *
+		 * @return the current lease.
+		 */
+		synchronized Lease cancel() {
+
+			this.cancelled = true;
+			if (this.scheduledTask != null) {
+				this.scheduledTask.cancel(false);
+			}
+
+			return this.lease;
+		}
+	}
+}
@@ -13,17 +13,19 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.springframework.cloud.vault;
 
-import lombok.Data;
-
 /**
- * State of the Vault client.
+ * Listener notified by {@link SecretLeaseContainer} when a secret was rotated.
  *
  * @author Mark Paluch
  */
-@Data
-class VaultState {
-	private VaultToken token;
+public interface SecretLeaseListener {
+
+	/**
+	 * Callback after a secret was rotated.
+	 *
+	 * @param event the {@link SecretRotatedEvent}.
+	 */
+	void onSecretRotated(SecretRotatedEvent event);
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Map;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published after a {@link SecretLeaseContainer} obtained new secrets because
+ * the lease of the previous secrets could not be renewed any further.
+ *
+ * @author Mark Paluch
+ */
+public class SecretRotatedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient SecureBackendAccessor secureBackendAccessor;
+	private final Map<String, String> properties;
+	private final Lease lease;
+
+	/**
+	 * Creates a new {@link SecretRotatedEvent}.
+	 *
+	 * @param source the {@link SecretLeaseContainer} that rotated the secret.
+	 * @param secureBackendAccessor the accessor of the rotated secret.
+	 * @param properties the new properties.
+	 * @param lease the lease of the new secret.
+	 */
+	public SecretRotatedEvent(Object source,
+			SecureBackendAccessor secureBackendAccessor, Map<String, String> properties,
+			Lease lease) {
+
+		super(source);
+		this.secureBackendAccessor = secureBackendAccessor;
+		this.properties = properties;
+		this.lease = lease;
+	}
+
+	/**
+	 * @return the accessor of the rotated secret.
+	 */
+	public SecureBackendAccessor getSecureBackendAccessor() {
+		return secureBackendAccessor;
+	}
+
+	/**
+	 * @return the new (transformed) properties.
+	 */
+	public Map<String, String> getProperties() {
+		return properties;
+	}
+
+	/**
+	 * @return the lease of the new secret.
+	 */
+	public Lease getLease() {
+		return lease;
+	}
+}
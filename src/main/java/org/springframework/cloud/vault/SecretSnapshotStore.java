@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.util.Assert;
+import org.springframework.util.Base64Utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Stores resolved secrets in an encrypted file to warm-start property sources after a
+ * restart. Snapshots are encrypted using AES/GCM with a random IV per write, so
+ * tampered or foreign snapshots are rejected. Snapshots older than the configured max
+ * staleness are ignored, as are snapshots holding dynamic secrets (database
+ * credentials) whose lease expired. AES/GCM requires a Java 8 runtime; creating the
+ * store fails if the cipher is not available.
+ * <p>
+ * The snapshot maps property source names to their properties. Writes are atomic: a
+ * temporary file is written and moved to the snapshot location.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+public class SecretSnapshotStore {
+
+	private final static String TRANSFORMATION = "AES/GCM/NoPadding";
+	private final static int IV_LENGTH = 12;
+	private final static int TAG_LENGTH_BITS = 128;
+
+	private final Path location;
+	private final SecretKeySpec key;
+	private final long maxStalenessMillis;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Creates a new {@link SecretSnapshotStore} for the given
+	 * {@link VaultProperties.Snapshot} settings.
+	 *
+	 * @param snapshot must not be {@literal null}.
+	 * @throws IllegalStateException if the AES/GCM cipher is not available.
+	 */
+	public SecretSnapshotStore(VaultProperties.Snapshot snapshot) {
+
+		Assert.notNull(snapshot, "Snapshot properties must not be null");
+		Assert.hasText(snapshot.getLocation(),
+				"Snapshot location (spring.cloud.vault.snapshot.location) must not be empty");
+		Assert.hasText(snapshot.getKey(),
+				"Snapshot key (spring.cloud.vault.snapshot.key) must not be empty");
+
+		byte[] key = Base64Utils.decodeFromString(snapshot.getKey());
+		Assert.isTrue(key.length == 16 || key.length == 24 || key.length == 32,
+				"Snapshot key must be a Base64-encoded 128, 192 or 256 bit AES key");
+
+		this.location = Paths.get(snapshot.getLocation());
+		this.key = new SecretKeySpec(key, "AES");
+		this.maxStalenessMillis = TimeUnit.SECONDS.toMillis(snapshot.getMaxStaleness());
+
+		try {
+			Cipher.getInstance(TRANSFORMATION);
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException(String.format(
+					"Vault snapshots require the %s cipher which is not available. "
+							+ "Use a Java 8 runtime or disable snapshots "
+							+ "(spring.cloud.vault.snapshot.enabled=false)",
+					TRANSFORMATION), e);
+		}
+	}
+
+	/**
+	 * Load the snapshot.
+	 *
+	 * @return property source names mapped to their properties or {@literal null} if
+	 * there is no snapshot, the snapshot is stale, the lease of a secret in the snapshot
+	 * expired or the snapshot cannot be decrypted.
+	 */
+	public Map<String, Map<String, String>> load() {
+
+		SnapshotContent content = readRecent();
+		if (content == null) {
+			return null;
+		}
+
+		if (content.getExpiresAt() > 0 && currentTimeMillis() >= content.getExpiresAt()) {
+			log.info(String.format("Ignoring Vault snapshot %s with expired leases",
+					this.location));
+			return null;
+		}
+
+		return content.getContexts();
+	}
+
+	/**
+	 * Load the property names of the snapshot to serve as index of the properties a
+	 * context supplies. Properties added to Vault after the snapshot was taken are not
+	 * part of the index, so stale snapshots are ignored to bound the staleness of the
+	 * index. Expired leases do not affect property names, so the index is used
+	 * regardless of leases.
+	 *
+	 * @return property source names mapped to their property names or {@literal null}
+	 * if there is no snapshot, the snapshot is stale or cannot be decrypted.
+	 */
+	public Map<String, Set<String>> loadPropertyNames() {
+
+		SnapshotContent content = readRecent();
+		if (content == null) {
+			return null;
+		}
+
+		Map<String, Set<String>> propertyNames = new LinkedHashMap<>();
+		for (Map.Entry<String, Map<String, String>> entry : content.getContexts()
+				.entrySet()) {
+			propertyNames.put(entry.getKey(), entry.getValue() != null
+					? entry.getValue().keySet() : Collections.<String> emptySet());
+		}
+
+		return propertyNames;
+	}
+
+	/**
+	 * @return the snapshot content or {@literal null} if there is no snapshot, the
+	 * snapshot is stale or cannot be decrypted.
+	 */
+	private SnapshotContent readRecent() {
+
+		SnapshotContent content = read();
+		if (content == null) {
+			return null;
+		}
+
+		long age = currentTimeMillis() - content.getTimestamp();
+		if (age > this.maxStalenessMillis) {
+			log.info(String.format("Ignoring stale Vault snapshot %s", this.location));
+			return null;
+		}
+
+		return content;
+	}
+
+	private SnapshotContent read() {
+
+		if (!Files.isRegularFile(this.location)) {
+			return null;
+		}
+
+		SnapshotContent content;
+		try {
+			byte[] encrypted = Files.readAllBytes(this.location);
+			content = this.objectMapper.readValue(decrypt(encrypted),
+					SnapshotContent.class);
+		}
+		catch (IOException | GeneralSecurityException | RuntimeException e) {
+			log.warn(String.format("Cannot read Vault snapshot %s: %s", this.location,
+					e.getMessage()));
+			return null;
+		}
+
+		return content.getContexts() != null ? content : null;
+	}
+
+	/**
+	 * Save a snapshot, replacing an existing snapshot. Failures are logged and do not
+	 * propagate.
+	 *
+	 * @param contexts property source names mapped to their properties, must not be
+	 * {@literal null}.
+	 */
+	public void save(Map<String, Map<String, String>> contexts) {
+		save(contexts, 0);
+	}
+
+	/**
+	 * Save a snapshot, replacing an existing snapshot. The snapshot is not loaded after
+	 * {@code expiresAt} as it holds secrets whose lease expires by then. Failures are
+	 * logged and do not propagate.
+	 *
+	 * @param contexts property source names mapped to their properties, must not be
+	 * {@literal null}.
+	 * @param expiresAt time in milliseconds since the epoch when the first lease of a
+	 * secret in {@code contexts} expires or {@literal 0} if secrets do not expire.
+	 */
+	public void save(Map<String, Map<String, String>> contexts, long expiresAt) {
+
+		Assert.notNull(contexts, "Contexts must not be null");
+
+		SnapshotContent content = new SnapshotContent();
+		content.setTimestamp(currentTimeMillis());
+		content.setExpiresAt(expiresAt);
+		content.setContexts(new LinkedHashMap<>(contexts));
+
+		Path temp = null;
+		try {
+			byte[] encrypted = encrypt(this.objectMapper.writeValueAsBytes(content));
+
+			Path directory = this.location.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+
+			// temporary files are created with owner-only permissions
+			temp = Files.createTempFile(directory,
+					this.location.getFileName().toString(), ".tmp");
+			Files.write(temp, encrypted);
+			Files.move(temp, this.location, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException | GeneralSecurityException e) {
+
+			log.warn(String.format("Cannot write Vault snapshot %s: %s", this.location,
+					e.getMessage()));
+			deleteQuietly(temp);
+		}
+	}
+
+	private byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+
+		byte[] iv = new byte[IV_LENGTH];
+		this.random.nextBytes(iv);
+
+		Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+		cipher.init(Cipher.ENCRYPT_MODE, this.key,
+				new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+		byte[] ciphertext = cipher.doFinal(plaintext);
+
+		byte[] result = Arrays.copyOf(iv, IV_LENGTH + ciphertext.length);
+		System.arraycopy(ciphertext, 0, result, IV_LENGTH, ciphertext.length);
+		return result;
+	}
+
+	private byte[] decrypt(byte[] encrypted) throws GeneralSecurityException {
+
+		if (encrypted.length <= IV_LENGTH) {
+			throw new GeneralSecurityException("Snapshot too short");
+		}
+
+		Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+		cipher.init(Cipher.DECRYPT_MODE, this.key, new GCMParameterSpec(TAG_LENGTH_BITS,
+				encrypted, 0, IV_LENGTH));
+		return cipher.doFinal(encrypted, IV_LENGTH, encrypted.length - IV_LENGTH);
+	}
+
+	private static void deleteQuietly(Path path) {
+
+		if (path == null) {
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e) {
+			log.debug(String.format("Cannot delete %s", path), e);
+		}
+	}
+
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	@Data
+	static class SnapshotContent {
+		private long timestamp;
+		private long expiresAt;
+		private LinkedHashMap<String, Map<String, String>> contexts;
+	}
+}
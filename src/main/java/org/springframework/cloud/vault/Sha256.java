@@ -20,7 +20,6 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
-import org.springframework.security.crypto.codec.Hex;
 import org.springframework.util.Assert;
 
 /**
@@ -30,6 +29,8 @@ import org.springframework.util.Assert;
  */
 class Sha256 {
 
+	private final static char[] HEX = "0123456789abcdef".toCharArray();
+
 	/**
 	 * Generates a hex-encoded SHA256 checksum from the supplied {@code content}.
 	 *
@@ -40,9 +41,30 @@ class Sha256 {
 
 		Assert.hasText(content, "Content must not be empty");
 
-		MessageDigest messageDigest = getMessageDigest("SHA-256");
+		MessageDigest messageDigest = newMessageDigest();
 		byte[] digest = messageDigest.digest(content.getBytes(StandardCharsets.US_ASCII));
-		return new String(Hex.encode(digest));
+		return toHex(digest, HEX);
+	}
+
+	/**
+	 * @return a new SHA256 {@link MessageDigest} to digest content incrementally.
+	 */
+	static MessageDigest newMessageDigest() {
+		return getMessageDigest("SHA-256");
+	}
+
+	/**
+	 * Hex-encode {@code bytes} using the given lower- or upper-case {@code alphabet}.
+	 */
+	static String toHex(byte[] bytes, char[] alphabet) {
+
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = alphabet[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = alphabet[bytes[i] & 0xF];
+		}
+
+		return new String(chars);
 	}
 
 	/**
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Coalesces concurrent requests with the same key: the first caller executes the
+ * request, callers arriving while the request is in flight share its result or
+ * exception. A request is executed again once the in-flight request has completed, so
+ * results are never reused after completion.
+ *
+ * @author Mark Paluch
+ */
+class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, SettableListenableFuture<V>> flights = new ConcurrentHashMap<>();
+
+	/**
+	 * Execute a blocking request or await the in-flight request for {@code key}.
+	 *
+	 * @param key the request key.
+	 * @param request the request.
+	 * @return the result.
+	 */
+	V execute(K key, VaultRequestExecutor.Request<V> request) {
+
+		SettableListenableFuture<V> flight = new SettableListenableFuture<>();
+		SettableListenableFuture<V> inFlight = this.flights.putIfAbsent(key, flight);
+
+		if (inFlight != null) {
+			return await(inFlight);
+		}
+
+		try {
+			V result = request.execute();
+			this.flights.remove(key, flight);
+			flight.set(result);
+			return result;
+		}
+		catch (RuntimeException e) {
+			this.flights.remove(key, flight);
+			flight.setException(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Execute a non-blocking request or join the in-flight request for {@code key}.
+	 *
+	 * @param key the request key.
+	 * @param request the request.
+	 * @return a {@link ListenableFuture} of the result.
+	 */
+	ListenableFuture<V> executeAsync(final K key,
+			VaultRequestExecutor.AsyncRequest<V> request) {
+
+		final SettableListenableFuture<V> flight = new SettableListenableFuture<>();
+		SettableListenableFuture<V> inFlight = this.flights.putIfAbsent(key, flight);
+
+		if (inFlight != null) {
+			return inFlight;
+		}
+
+		ListenableFuture<V> future;
+		try {
+			future = request.execute();
+		}
+		catch (RuntimeException e) {
+			this.flights.remove(key, flight);
+			flight.setException(e);
+			return flight;
+		}
+
+		future.addCallback(new ListenableFutureCallback<V>() {
+
+			@Override
+			public void onSuccess(V result) {
+
+				flights.remove(key, flight);
+				flight.set(result);
+			}
+
+			@Override
+			public void onFailure(Throwable ex) {
+
+				flights.remove(key, flight);
+				flight.setException(ex);
+			}
+		});
+
+		return flight;
+	}
+
+	private static <V> V await(SettableListenableFuture<V> flight) {
+
+		try {
+			return flight.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading from Vault", e);
+		}
+		catch (ExecutionException e) {
+
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new IllegalStateException("Cannot read from Vault", e.getCause());
+		}
+	}
+}
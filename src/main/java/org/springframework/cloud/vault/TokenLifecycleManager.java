@@ -0,0 +1,192 @@
+/*
+ * Copyright 2013-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cloud.vault.VaultAuthenticationManager.VersionedToken;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Manages the lifecycle of {@link VaultToken}s that carry a lease. Tokens are renewed
+ * using {@code auth/token/renew-self} once a configurable fraction of their TTL has
+ * elapsed. If renewal fails, or the renewed TTL is shorter than the previous one
+ * because the token approaches its maximum TTL, a new token is obtained with
+ * {@link VaultAuthenticationManager#reauthenticate(VersionedToken)}. The renewed token
+ * replaces the current token in {@link VaultAuthenticationManager} unless it was
+ * replaced concurrently, so subsequent reads pick up the new token without waiting for
+ * the renewal. Tokens are renewed using the current {@link VaultClient} of the
+ * {@link VaultAuthenticationManager}.
+ * <p>
+ * A {@link TokenLifecycleManager} is owned by a {@link VaultSessions.Session} rather
+ * than by a bootstrap context, so renewals continue across refreshes that create and
+ * close bootstrap contexts, and stop once the last context releases the session.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+public class TokenLifecycleManager {
+
+	private final static long RETRY_DELAY_SECONDS = 10;
+	private final static long MIN_DELAY_MILLIS = 1000;
+
+	private final VaultProperties.TokenRenewal tokenRenewal;
+	private final ScheduledExecutorService executor;
+
+	private ScheduledFuture<?> scheduledRenewal;
+	private VersionedToken scheduledToken;
+
+	public TokenLifecycleManager(VaultProperties vaultProperties) {
+		this(vaultProperties, createExecutor());
+	}
+
+	TokenLifecycleManager(VaultProperties vaultProperties,
+			ScheduledExecutorService executor) {
+
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+		Assert.notNull(executor, "ScheduledExecutorService must not be null");
+
+		this.tokenRenewal = vaultProperties.getTokenRenewal();
+		this.executor = executor;
+	}
+
+	private static ScheduledExecutorService createExecutor() {
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-token-renewal-");
+		threadFactory.setDaemon(true);
+		return Executors.newSingleThreadScheduledExecutor(threadFactory);
+	}
+
+	/**
+	 * Schedule the renewal of the current token held by
+	 * {@link VaultAuthenticationManager}. Tokens without a lease are not renewed.
+	 * Calling this method again for a token that is already scheduled for renewal has no
+	 * effect.
+	 *
+	 * @param authenticationManager must not be {@literal null}.
+	 */
+	public synchronized void scheduleRenewal(
+			VaultAuthenticationManager authenticationManager) {
+
+		Assert.notNull(authenticationManager,
+				"VaultAuthenticationManager must not be null");
+
+		VersionedToken token = authenticationManager.getCurrentToken();
+		if (token == null || token.getToken().getLeaseDuration() <= 0
+				|| token.equals(this.scheduledToken)) {
+			return;
+		}
+
+		long delay = (long) (TimeUnit.SECONDS
+				.toMillis(token.getToken().getLeaseDuration())
+				* this.tokenRenewal.getFraction());
+
+		schedule(authenticationManager, token, Math.max(MIN_DELAY_MILLIS, delay));
+	}
+
+	private void schedule(final VaultAuthenticationManager authenticationManager,
+			final VersionedToken token, long delayMillis) {
+
+		if (this.scheduledRenewal != null) {
+			this.scheduledRenewal.cancel(false);
+		}
+
+		this.scheduledToken = token;
+		this.scheduledRenewal = this.executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				renew(authenticationManager, token);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void renew(VaultAuthenticationManager authenticationManager,
+			VersionedToken token) {
+
+		if (!tryRenew(authenticationManager, token)) {
+
+			try {
+				authenticationManager.reauthenticate(token);
+			}
+			catch (RuntimeException loginFailure) {
+
+				log.error("Cannot obtain a new token", loginFailure);
+
+				synchronized (this) {
+					schedule(authenticationManager, token,
+							TimeUnit.SECONDS.toMillis(RETRY_DELAY_SECONDS));
+				}
+				return;
+			}
+		}
+
+		synchronized (this) {
+			this.scheduledToken = null;
+			scheduleRenewal(authenticationManager);
+		}
+	}
+
+	/**
+	 * Renew {@code token}. A renewed TTL that is shorter than the previous TTL means the
+	 * token is capped by its maximum TTL and will expire soon, so the token is not
+	 * renewed but replaced by a new login.
+	 *
+	 * @return {@literal true} if the token was renewed, {@literal false} if a new login
+	 * is required.
+	 */
+	private boolean tryRenew(VaultAuthenticationManager authenticationManager,
+			VersionedToken token) {
+
+		VaultToken renewed;
+		try {
+			renewed = authenticationManager.getVaultClient()
+					.renewToken(token.getToken());
+		}
+		catch (RuntimeException e) {
+
+			log.warn(String.format("Cannot renew token: %s. Trying to login again",
+					e.getMessage()));
+			return false;
+		}
+
+		if (renewed.getLeaseDuration() <= 0
+				|| renewed.getLeaseDuration() < token.getToken().getLeaseDuration()) {
+
+			log.info(String.format(
+					"Token reaches its maximum TTL (renewed TTL %d seconds). Trying to login again",
+					renewed.getLeaseDuration()));
+			return false;
+		}
+
+		authenticationManager.swap(token, renewed);
+		return true;
+	}
+
+	/**
+	 * Stop renewing tokens.
+	 */
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.cloud.vault.VaultProperties.AppIdProperties;
+import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import lombok.Value;
+
+/**
+ * Holds the {@link VaultToken} used to access Vault and performs logins. The current
+ * token is held in an atomic reference so reading the token never blocks, also not
+ * while the token is renewed. Logins are coalesced: callers that need a token while a
+ * login is in flight share the result of that login, so concurrently initialized
+ * property sources perform a single login.
+ * <p>
+ * Each token carries a version. {@link #swap(VersionedToken, VaultToken)} replaces a
+ * token only if it is still the current token, so a renewal does not override a token
+ * obtained by a concurrent login and vice versa.
+ *
+ * @author Mark Paluch
+ */
+class VaultAuthenticationManager {
+
+	private volatile VaultClient vaultClient;
+	private final VaultProperties vaultProperties;
+
+	private final AtomicReference<VersionedToken> current = new AtomicReference<>();
+	private final AtomicReference<SettableListenableFuture<VersionedToken>> login = new AtomicReference<>();
+	private final AtomicLong versions = new AtomicLong();
+
+	VaultAuthenticationManager(VaultClient vaultClient,
+			VaultProperties vaultProperties) {
+
+		Assert.notNull(vaultClient, "VaultClient must not be null");
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+
+		this.vaultClient = vaultClient;
+		this.vaultProperties = vaultProperties;
+	}
+
+	/**
+	 * @return the {@link VaultClient} used to log in.
+	 */
+	VaultClient getVaultClient() {
+		return this.vaultClient;
+	}
+
+	/**
+	 * Set the {@link VaultClient} used for subsequent logins, e.g. because the previous
+	 * {@link VaultClient} is about to be destroyed.
+	 *
+	 * @param vaultClient must not be {@literal null}.
+	 */
+	void setVaultClient(VaultClient vaultClient) {
+
+		Assert.notNull(vaultClient, "VaultClient must not be null");
+		this.vaultClient = vaultClient;
+	}
+
+	/**
+	 * Return the current token and log in if there is no token yet.
+	 *
+	 * @return the {@link VaultToken}.
+	 */
+	VaultToken getToken() {
+		return getVersionedToken().getToken();
+	}
+
+	/**
+	 * Return the current token along with its version and log in if there is no token
+	 * yet.
+	 *
+	 * @return the {@link VersionedToken}.
+	 */
+	VersionedToken getVersionedToken() {
+
+		VersionedToken token = this.current.get();
+		if (token != null) {
+			return token;
+		}
+
+		return login(null);
+	}
+
+	/**
+	 * @return the current token or {@literal null} if there is no token yet.
+	 */
+	VersionedToken getCurrentToken() {
+		return this.current.get();
+	}
+
+	/**
+	 * Log in again because {@code expected} can no longer be used (e.g. it expired or
+	 * cannot be renewed). Has no effect if {@code expected} was already replaced.
+	 *
+	 * @param expected the token to replace, must not be {@literal null}.
+	 * @return the current token.
+	 */
+	VersionedToken reauthenticate(VersionedToken expected) {
+
+		Assert.notNull(expected, "Expected token must not be null");
+		return login(expected);
+	}
+
+	/**
+	 * Replace {@code expected} with {@code token} if {@code expected} is the current
+	 * token.
+	 *
+	 * @param expected the token to replace, must not be {@literal null}.
+	 * @param token the new token, must not be {@literal null}.
+	 * @return {@literal true} if the token was replaced.
+	 */
+	boolean swap(VersionedToken expected, VaultToken token) {
+
+		Assert.notNull(expected, "Expected token must not be null");
+		Assert.notNull(token, "VaultToken must not be null");
+
+		return this.current.compareAndSet(expected, newVersion(token));
+	}
+
+	/**
+	 * Log in unless {@code expected} was already replaced. Concurrent callers share a
+	 * single login.
+	 */
+	private VersionedToken login(VersionedToken expected) {
+
+		while (true) {
+
+			VersionedToken current = this.current.get();
+			if (current != null && current != expected) {
+				return current;
+			}
+
+			SettableListenableFuture<VersionedToken> inFlight = this.login.get();
+			if (inFlight != null) {
+				return await(inFlight);
+			}
+
+			SettableListenableFuture<VersionedToken> flight = new SettableListenableFuture<>();
+			if (!this.login.compareAndSet(null, flight)) {
+				continue;
+			}
+
+			try {
+
+				// a login may have completed before this flight started
+				current = this.current.get();
+				if (current != null && current != expected) {
+					flight.set(current);
+					return current;
+				}
+
+				VersionedToken token = newVersion(createToken());
+				if (!this.current.compareAndSet(current, token)) {
+					token = this.current.get();
+				}
+
+				flight.set(token);
+				return token;
+			}
+			catch (RuntimeException e) {
+				flight.setException(e);
+				throw e;
+			}
+			finally {
+				this.login.compareAndSet(flight, null);
+			}
+		}
+	}
+
+	private VaultToken createToken() {
+
+		if (this.vaultProperties.getAuthentication() == AuthenticationMethod.TOKEN) {
+
+			Assert.hasText(this.vaultProperties.getToken(), "Token must not be empty");
+			return VaultToken.of(this.vaultProperties.getToken());
+		}
+
+		if (this.vaultProperties.getAuthentication() == AuthenticationMethod.APPID) {
+
+			AppIdProperties appIdProperties = this.vaultProperties.getAppId();
+			Assert.hasText(this.vaultProperties.getApplicationName(),
+					"AppId must not be empty");
+			Assert.hasText(appIdProperties.getAppIdPath(), "AppIdPath must not be empty");
+
+			return this.vaultClient.createToken();
+		}
+
+		throw new IllegalStateException(
+				String.format("Authentication method %s not supported",
+						this.vaultProperties.getAuthentication()));
+	}
+
+	private VersionedToken newVersion(VaultToken token) {
+		return new VersionedToken(token, this.versions.incrementAndGet());
+	}
+
+	private static VersionedToken await(SettableListenableFuture<VersionedToken> flight) {
+
+		try {
+			return flight.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while logging in to Vault", e);
+		}
+		catch (ExecutionException e) {
+
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new IllegalStateException("Cannot log in to Vault", e.getCause());
+		}
+	}
+
+	/**
+	 * A {@link VaultToken} along with its version. Versions increase with each login or
+	 * swap.
+	 */
+	@Value
+	static class VersionedToken {
+		private VaultToken token;
+		private long version;
+	}
+}
@@ -20,15 +20,18 @@ import java.util.Map;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -43,13 +46,24 @@ public class VaultBootstrapConfiguration {
 	@Bean
 	@Qualifier("vault-ClientHttpRequestFactory")
 	public ClientHttpRequestFactory clientHttpRequestFactory(){
-		return ClientHttpRequestFactoryFactory.create(vaultProperties());
+
+		VaultProperties vaultProperties = vaultProperties();
+		if (vaultProperties.getSharing().isEnabled()) {
+			return VaultSessions.get(vaultProperties)
+					.getClientHttpRequestFactory(vaultProperties);
+		}
+
+		return ClientHttpRequestFactoryFactory.create(vaultProperties);
 	}
 
 	@Bean
 	@Qualifier("vault-RestTemplate")
 	public RestTemplate restTemplate(){
-		return new RestTemplate(clientHttpRequestFactory());
+
+		RestTemplate restTemplate = new RestTemplate(clientHttpRequestFactory());
+		restTemplate.getMessageConverters().add(0,
+				new VaultResponseHttpMessageConverter());
+		return restTemplate;
 	}
 
 	@Bean
@@ -58,11 +72,42 @@ public class VaultBootstrapConfiguration {
 		VaultClient vaultClient = new VaultClient(vaultProperties());
 		vaultClient.setRest(restTemplate());
 
+		if (vaultProperties().getWarmup().isEnabled()) {
+			new VaultConnectionWarmup(vaultClient, vaultProperties()).start();
+		}
+
+		Map<String, AsyncRestTemplate> asyncRestTemplates = applicationContext
+				.getBeansOfType(AsyncRestTemplate.class);
+		if (!asyncRestTemplates.isEmpty()) {
+			vaultClient.setAsyncRest(asyncRestTemplates.values().iterator().next());
+		}
+
+		if (vaultProperties().getCache().isEnabled()) {
+			vaultClient.setSecretCache(new SecretCache(vaultProperties().getCache()));
+		}
+
+		if (vaultProperties().getChangeDetection().isEnabled()) {
+			vaultClient.setSecretChangeTracker(new SecretChangeTracker());
+		}
+
+		VaultMetrics metrics = VaultMetrics.NONE;
+		Map<String, VaultMetrics> vaultMetrics = applicationContext
+				.getBeansOfType(VaultMetrics.class);
+		if (!vaultMetrics.isEmpty()) {
+			metrics = vaultMetrics.values().iterator().next();
+			vaultClient.setMetrics(metrics);
+		}
+
 		Map<String, AppIdUserIdMechanism> appIdUserIdMechanisms = applicationContext
 				.getBeansOfType(AppIdUserIdMechanism.class);
 		if (!appIdUserIdMechanisms.isEmpty()) {
-			vaultClient.setAppIdUserIdMechanism(
-					appIdUserIdMechanisms.values().iterator().next());
+
+			AppIdUserIdMechanism mechanism = appIdUserIdMechanisms.values().iterator()
+					.next();
+
+			// compute the UserId while the remaining bootstrap proceeds
+			vaultClient.setAppIdUserIdMechanism(mechanism instanceof StaticUserId
+					? mechanism : new PrecomputedUserId(mechanism, metrics).start());
 		}
 
 		return vaultClient;
@@ -102,7 +147,66 @@ public class VaultBootstrapConfiguration {
 	@Bean
 	public VaultPropertySourceLocator vaultPropertySourceLocator(
 			ApplicationContext applicationContext) {
-		return new VaultPropertySourceLocator(vaultClient(applicationContext),
-				vaultProperties());
+
+		VaultPropertySourceLocator locator = new VaultPropertySourceLocator(
+				vaultClient(applicationContext), vaultProperties());
+
+		for (VaultPropertySourceListener listener : applicationContext
+				.getBeansOfType(VaultPropertySourceListener.class).values()) {
+			locator.addPropertySourceListener(listener);
+		}
+
+		Assert.state(!vaultProperties().getLazy().isEnabled()
+				|| vaultProperties().getSnapshot().isEnabled(),
+				"Lazy property sources (spring.cloud.vault.lazy.enabled) require a "
+						+ "snapshot (spring.cloud.vault.snapshot.enabled) as index");
+
+		if (vaultProperties().getSnapshot().isEnabled()) {
+			locator.setSecretSnapshotStore(
+					new SecretSnapshotStore(vaultProperties().getSnapshot()));
+		}
+
+		return locator;
+	}
+
+	/**
+	 * Metrics configuration, used if the actuator is on the class-path.
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.PublicMetrics")
+	@ConditionalOnProperty(prefix = "spring.cloud.vault.metrics", name = "enabled", matchIfMissing = true)
+	protected static class MetricsConfiguration {
+
+		@Bean
+		public ActuatorVaultMetrics vaultMetrics() {
+			return new ActuatorVaultMetrics();
+		}
+	}
+
+	/**
+	 * Asynchronous HTTP client configuration, used if Netty is on the class-path.
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "io.netty.channel.nio.NioEventLoopGroup")
+	protected static class AsyncClientConfiguration {
+
+		@Bean
+		@Qualifier("vault-AsyncClientHttpRequestFactory")
+		public AsyncClientHttpRequestFactory asyncClientHttpRequestFactory(
+				VaultProperties vaultProperties) {
+			return ClientHttpRequestFactoryFactory.createAsync(vaultProperties);
+		}
+
+		@Bean
+		@Qualifier("vault-AsyncRestTemplate")
+		public AsyncRestTemplate asyncRestTemplate(
+				@Qualifier("vault-AsyncClientHttpRequestFactory") AsyncClientHttpRequestFactory asyncClientHttpRequestFactory) {
+
+			AsyncRestTemplate asyncRestTemplate = new AsyncRestTemplate(
+					asyncClientHttpRequestFactory);
+			asyncRestTemplate.getMessageConverters().add(0,
+					new VaultResponseHttpMessageConverter());
+			return asyncRestTemplate;
+		}
 	}
 }
@@ -16,12 +16,23 @@
 package org.springframework.cloud.vault;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.vault.VaultAuthenticationManager.VersionedToken;
 import org.springframework.cloud.vault.VaultProperties.AppIdProperties;
 import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
 import org.springframework.http.HttpEntity;
@@ -31,9 +42,18 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureAdapter;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import lombok.Setter;
@@ -48,7 +68,7 @@ import lombok.extern.apachecommons.CommonsLog;
  * @author Mark Paluch
  */
 @CommonsLog
-public class VaultClient {
+public class VaultClient implements DisposableBean {
 
 	public static final String API_VERSION = "v1";
 	public static final String VAULT_TOKEN = "X-Vault-Token";
@@ -56,56 +76,745 @@ public class VaultClient {
 	@Setter
 	private RestTemplate rest = new RestTemplate();
 
+	@Setter
+	private AsyncRestTemplate asyncRest;
+
 	@Setter
 	private AppIdUserIdMechanism appIdUserIdMechanism;
 
+	@Setter
+	private SecretCache secretCache;
+
+	@Setter
+	private SecretChangeTracker secretChangeTracker;
+
+	private VaultMetrics metrics = VaultMetrics.NONE;
+
 	private ClientHttpRequestFactory clientHttpRequestFactory;
 	private final VaultProperties properties;
+	private final VaultRequestExecutor requestExecutor;
+	private final VaultEndpoints endpoints;
+	private final SingleFlight<ReadKey, ResponseEntity<VaultResponse>> reads = new SingleFlight<>();
+
+	private ExecutorService batchExecutor;
 
 	public VaultClient(VaultProperties properties) {
 
 		Assert.notNull(properties, "VaultProperties must not be null");
 
 		this.properties = properties;
+		this.requestExecutor = new VaultRequestExecutor(properties);
+		this.endpoints = new VaultEndpoints(properties, new VaultEndpoints.HealthCheck() {
+
+			@Override
+			public VaultEndpoints.Status check(String baseUrl) {
+				return checkHealth(baseUrl);
+			}
+		});
+	}
+
+	/**
+	 * Set the {@link VaultMetrics} to record request metrics.
+	 *
+	 * @param metrics must not be {@literal null}.
+	 */
+	public void setMetrics(VaultMetrics metrics) {
+
+		Assert.notNull(metrics, "VaultMetrics must not be null");
+		this.metrics = metrics;
+	}
+
+	VaultMetrics getMetrics() {
+		return this.metrics;
 	}
 
 	public Map<String, String> read(SecureBackendAccessor secureBackendAccessor,
 			VaultToken vaultToken) {
+		return readWithLease(secureBackendAccessor, vaultToken).getData();
+	}
+
+	/**
+	 * Reads data from a secret backend and retains the {@link Lease} reported by Vault.
+	 * Failures are handled as in {@link #read(SecureBackendAccessor, VaultToken)} and
+	 * result in {@link Lease#none()}.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @param vaultToken must not be {@literal null}.
+	 * @return the transformed properties along with their {@link Lease}.
+	 */
+	public LeasedSecret readWithLease(SecureBackendAccessor secureBackendAccessor,
+			VaultToken vaultToken) {
 
 		Assert.notNull(secureBackendAccessor, "SecureBackendAccessor must not be empty!");
 		Assert.notNull(vaultToken, "VaultToken must not be null!");
 
-		String url = buildUrl();
+		return readWithLease(secureBackendAccessor, createRequest(vaultToken), null,
+				null);
+	}
 
-		HttpHeaders headers = createHeaders(vaultToken);
-		Exception error = null;
-		String errorBody = null;
+	/**
+	 * Reads data from a secret backend using the token of a
+	 * {@link VaultAuthenticationManager}. If Vault rejects the token with
+	 * {@code 403 Forbidden}, e.g. because it was revoked or expired ahead of its renewal,
+	 * the token is invalidated, the {@link VaultAuthenticationManager} logs in again and
+	 * the read is retried once with the new token. See
+	 * {@link #readWithLease(SecureBackendAccessor, VaultToken)}.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @param authenticationManager must not be {@literal null}.
+	 * @return the transformed properties along with their {@link Lease}.
+	 */
+	LeasedSecret readWithLease(SecureBackendAccessor secureBackendAccessor,
+			VaultAuthenticationManager authenticationManager) {
 
-		URI uri = this.rest.getUriTemplateHandler().expand(url, secureBackendAccessor.variables());
-		log.info(String.format("Fetching config from server at: %s", uri));
+		Assert.notNull(secureBackendAccessor, "SecureBackendAccessor must not be empty!");
+		Assert.notNull(authenticationManager,
+				"VaultAuthenticationManager must not be null!");
+
+		VersionedToken token = authenticationManager.getVersionedToken();
+		return readWithLease(secureBackendAccessor, createRequest(token.getToken()),
+				authenticationManager, token);
+	}
+
+	/**
+	 * Reads data for multiple secret backends. Requests are issued concurrently over the
+	 * pooled connections of the configured {@link RestTemplate} and share the same
+	 * request headers, so reading multiple backends costs roughly the latency of the
+	 * slowest request. Concurrency is bounded by the number of pooled connections per
+	 * route. Failures are handled as in {@link #read(SecureBackendAccessor, VaultToken)}.
+	 *
+	 * @param secureBackendAccessors must not be {@literal null}.
+	 * @param vaultToken must not be {@literal null}.
+	 * @return the transformed properties in the order of {@code secureBackendAccessors}.
+	 */
+	public List<Map<String, String>> readAll(
+			List<SecureBackendAccessor> secureBackendAccessors, VaultToken vaultToken) {
+
+		List<LeasedSecret> secrets = readAllWithLease(secureBackendAccessors,
+				vaultToken);
+		List<Map<String, String>> result = new ArrayList<>(secrets.size());
+
+		for (LeasedSecret secret : secrets) {
+			result.add(secret.getData());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads data for multiple secret backends and retains the {@link Lease}s reported by
+	 * Vault. See {@link #readAll(List, VaultToken)}.
+	 *
+	 * @param secureBackendAccessors must not be {@literal null}.
+	 * @param vaultToken must not be {@literal null}.
+	 * @return the transformed properties along with their {@link Lease} in the order of
+	 * {@code secureBackendAccessors}.
+	 */
+	public List<LeasedSecret> readAllWithLease(
+			List<SecureBackendAccessor> secureBackendAccessors, VaultToken vaultToken) {
 
+		Assert.notNull(secureBackendAccessors,
+				"SecureBackendAccessors must not be null!");
+		Assert.notNull(vaultToken, "VaultToken must not be null!");
+
+		return readAllWithLease(secureBackendAccessors, createRequest(vaultToken), null,
+				null);
+	}
+
+	/**
+	 * Reads data for multiple secret backends using the token of a
+	 * {@link VaultAuthenticationManager}. Reads rejected with {@code 403 Forbidden} are
+	 * retried once after logging in again, see
+	 * {@link #readWithLease(SecureBackendAccessor, VaultAuthenticationManager)}.
+	 * Concurrent reads rejected with the same token share a single login.
+	 *
+	 * @param secureBackendAccessors must not be {@literal null}.
+	 * @param authenticationManager must not be {@literal null}.
+	 * @return the transformed properties along with their {@link Lease} in the order of
+	 * {@code secureBackendAccessors}.
+	 */
+	List<LeasedSecret> readAllWithLease(List<SecureBackendAccessor> secureBackendAccessors,
+			VaultAuthenticationManager authenticationManager) {
+
+		Assert.notNull(secureBackendAccessors,
+				"SecureBackendAccessors must not be null!");
+		Assert.notNull(authenticationManager,
+				"VaultAuthenticationManager must not be null!");
+
+		VersionedToken token = authenticationManager.getVersionedToken();
+		return readAllWithLease(secureBackendAccessors, createRequest(token.getToken()),
+				authenticationManager, token);
+	}
+
+	private List<LeasedSecret> readAllWithLease(
+			List<SecureBackendAccessor> secureBackendAccessors,
+			final HttpEntity<Void> request,
+			final VaultAuthenticationManager authenticationManager,
+			final VersionedToken token) {
+
+		List<LeasedSecret> result = new ArrayList<>(secureBackendAccessors.size());
+
+		if (secureBackendAccessors.size() < 2) {
+
+			for (SecureBackendAccessor accessor : secureBackendAccessors) {
+				result.add(readWithLease(accessor, request, authenticationManager,
+						token));
+			}
+
+			return result;
+		}
+
+		// the calling thread reads the first accessor, the others are read concurrently
+		// using pooled connections
+		List<Future<LeasedSecret>> futures = new ArrayList<>(
+				secureBackendAccessors.size() - 1);
+		ExecutorService executor = getBatchExecutor();
 		try {
-			ResponseEntity<VaultResponse> response = this.rest.exchange(uri,
-					HttpMethod.GET, new HttpEntity<>(headers), VaultResponse.class);
 
-			HttpStatus status = response.getStatusCode();
-			if (status == HttpStatus.OK) {
-				if (response.getBody().getData() != null) {
-					return secureBackendAccessor
-							.transformProperties(response.getBody().getData());
+			for (final SecureBackendAccessor accessor : secureBackendAccessors.subList(1,
+					secureBackendAccessors.size())) {
+
+				futures.add(executor.submit(new Callable<LeasedSecret>() {
+
+					@Override
+					public LeasedSecret call() {
+						return readWithLease(accessor, request,
+								authenticationManager, token);
+					}
+				}));
+			}
+
+			result.add(readWithLease(secureBackendAccessors.get(0), request,
+					authenticationManager, token));
+
+			for (Future<LeasedSecret> future : futures) {
+				result.add(getResult(future));
+			}
+		}
+		finally {
+			for (Future<LeasedSecret> future : futures) {
+				future.cancel(true);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads data from a secret backend without blocking the calling thread. The
+	 * request is issued through the configured {@link AsyncRestTemplate}. Falls back to
+	 * a blocking {@link #read(SecureBackendAccessor, VaultToken)} if no
+	 * {@link AsyncRestTemplate} is configured. Failures are handled as in
+	 * {@link #read(SecureBackendAccessor, VaultToken)}: the future completes
+	 * exceptionally if fail fast is enabled and with an empty map otherwise.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 * @param vaultToken must not be {@literal null}.
+	 * @return a {@link ListenableFuture} of the transformed properties.
+	 */
+	public ListenableFuture<Map<String, String>> readAsync(
+			SecureBackendAccessor secureBackendAccessor, VaultToken vaultToken) {
+
+		Assert.notNull(secureBackendAccessor, "SecureBackendAccessor must not be empty!");
+		Assert.notNull(vaultToken, "VaultToken must not be null!");
+
+		if (this.asyncRest == null) {
+
+			SettableListenableFuture<Map<String, String>> result = new SettableListenableFuture<>();
+			try {
+				result.set(read(secureBackendAccessor, vaultToken));
+			}
+			catch (RuntimeException e) {
+				result.setException(e);
+			}
+
+			return result;
+		}
+
+		return new ListenableFutureAdapter<Map<String, String>, LeasedSecret>(
+				readWithLeaseAsync(secureBackendAccessor, createRequest(vaultToken))) {
+
+			@Override
+			protected Map<String, String> adapt(LeasedSecret secret) {
+				return secret.getData();
+			}
+		};
+	}
+
+	private LeasedSecret readWithLease(SecureBackendAccessor secureBackendAccessor,
+			HttpEntity<Void> request, VaultAuthenticationManager authenticationManager,
+			VersionedToken token) {
+
+		LeasedSecret cached = readFromCache(secureBackendAccessor);
+		if (cached != null) {
+			return cached;
+		}
+
+		try {
+
+			ResponseEntity<VaultResponse> response;
+			try {
+				response = fetch(secureBackendAccessor, request);
+			}
+			catch (HttpClientErrorException e) {
+
+				HttpEntity<Void> retry = reauthenticate(e, authenticationManager, token);
+				if (retry == null) {
+					throw e;
+				}
+
+				response = fetch(secureBackendAccessor, retry);
+			}
+
+			LeasedSecret secret = toSecret(secureBackendAccessor, response);
+			if (secret != null) {
+				return secret;
+			}
+		}
+		catch (Exception e) {
+			return toFailedSecret(e);
+		}
+
+		return toFailedSecret(null);
+	}
+
+	private ListenableFuture<LeasedSecret> readWithLeaseAsync(
+			final SecureBackendAccessor secureBackendAccessor, HttpEntity<Void> request) {
+
+		final SettableListenableFuture<LeasedSecret> result = new SettableListenableFuture<>();
+
+		LeasedSecret cached = readFromCache(secureBackendAccessor);
+		if (cached != null) {
+			result.set(cached);
+			return result;
+		}
+
+		ListenableFuture<ResponseEntity<VaultResponse>> future = fetchAsync(
+				secureBackendAccessor, request);
+
+		future.addCallback(new ListenableFutureCallback<ResponseEntity<VaultResponse>>() {
+
+			@Override
+			public void onSuccess(ResponseEntity<VaultResponse> response) {
+
+				try {
+					LeasedSecret secret = toSecret(secureBackendAccessor, response);
+					result.set(secret != null ? secret : toFailedSecret(null));
+				}
+				catch (RuntimeException e) {
+					result.setException(e);
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable ex) {
+
+				try {
+					result.set(toFailedSecret(ex));
+				}
+				catch (RuntimeException e) {
+					result.setException(e);
+				}
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Invalidate {@code token} if Vault rejected it and log in again.
+	 *
+	 * @return the request to retry with the new token or {@literal null} if the request
+	 * should not be retried.
+	 */
+	private HttpEntity<Void> reauthenticate(HttpClientErrorException e,
+			VaultAuthenticationManager authenticationManager, VersionedToken token) {
+
+		if (authenticationManager == null
+				|| e.getStatusCode() != HttpStatus.FORBIDDEN) {
+			return null;
+		}
+
+		VersionedToken current = authenticationManager.reauthenticate(token);
+
+		// a static token cannot be replaced by logging in again
+		if (current.getToken().getToken().equals(token.getToken().getToken())) {
+			return null;
+		}
+
+		log.info("Vault rejected the token, retrying with a new token");
+		return createRequest(current.getToken());
+	}
+
+	/**
+	 * Fetch a secret from Vault. Concurrent reads of the same secret using the same
+	 * token share a single request.
+	 */
+	private ResponseEntity<VaultResponse> fetch(
+			final SecureBackendAccessor secureBackendAccessor,
+			final HttpEntity<Void> request) {
+
+		return this.reads.execute(ReadKey.of(secureBackendAccessor, request),
+				new VaultRequestExecutor.Request<ResponseEntity<VaultResponse>>() {
+
+					@Override
+					public ResponseEntity<VaultResponse> execute() {
+
+						long start = System.nanoTime();
+						try {
+							ResponseEntity<VaultResponse> response = exchange(
+									secureBackendAccessor.variables(), HttpMethod.GET,
+									request);
+							recordRead(secureBackendAccessor, response, start);
+							return response;
+						}
+						catch (RuntimeException e) {
+							recordReadFailure(secureBackendAccessor, e, start);
+							throw e;
+						}
+					}
+				});
+	}
+
+	/**
+	 * Fetch a secret from Vault without blocking. Concurrent reads of the same secret
+	 * using the same token share a single request.
+	 */
+	private ListenableFuture<ResponseEntity<VaultResponse>> fetchAsync(
+			final SecureBackendAccessor secureBackendAccessor,
+			final HttpEntity<Void> request) {
+
+		return this.reads.executeAsync(ReadKey.of(secureBackendAccessor, request),
+				new VaultRequestExecutor.AsyncRequest<ResponseEntity<VaultResponse>>() {
+
+					@Override
+					public ListenableFuture<ResponseEntity<VaultResponse>> execute() {
+
+						final long start = System.nanoTime();
+						ListenableFuture<ResponseEntity<VaultResponse>> future = exchangeAsync(
+								secureBackendAccessor.variables(), request);
+
+						future.addCallback(
+								new ListenableFutureCallback<ResponseEntity<VaultResponse>>() {
+
+									@Override
+									public void onSuccess(
+											ResponseEntity<VaultResponse> response) {
+										recordRead(secureBackendAccessor, response, start);
+									}
+
+									@Override
+									public void onFailure(Throwable ex) {
+										recordReadFailure(secureBackendAccessor, ex, start);
+									}
+								});
+
+						return future;
+					}
+				});
+	}
+
+	/**
+	 * Executor for batch reads. Its size is bounded by the number of pooled connections
+	 * per route and idle threads terminate.
+	 */
+	private synchronized ExecutorService getBatchExecutor() {
+
+		if (this.batchExecutor == null) {
+
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+					"vault-batch-");
+			threadFactory.setDaemon(true);
+
+			int threads = this.properties.getHttp().getMaxPerRoute();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					threadFactory);
+			executor.allowCoreThreadTimeOut(true);
+
+			this.batchExecutor = executor;
+		}
+
+		return this.batchExecutor;
+	}
+
+	private static <T> T getResult(Future<T> future) {
+
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading from Vault", e);
+		}
+		catch (ExecutionException e) {
+
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new IllegalStateException("Cannot read from Vault", e.getCause());
+		}
+	}
+
+	private URI expand(VaultEndpoints.Endpoint endpoint, Map<String, String> variables) {
+		return this.rest.getUriTemplateHandler().expand(buildUrl(endpoint), variables);
+	}
+
+	/**
+	 * Exchange a request with the preferred Vault endpoint. Fails over to the next
+	 * endpoint on I/O and server errors.
+	 */
+	private ResponseEntity<VaultResponse> exchange(Map<String, String> variables,
+			HttpMethod method, HttpEntity<?> request) {
+
+		Iterator<VaultEndpoints.Endpoint> endpoints = this.endpoints
+				.select(method == HttpMethod.GET).iterator();
+
+		while (true) {
+
+			VaultEndpoints.Endpoint endpoint = endpoints.next();
+			URI uri = expand(endpoint, variables);
+			if (method == HttpMethod.GET) {
+				log.info(String.format("Fetching config from server at: %s", uri));
+			}
+
+			long start = System.nanoTime();
+			try {
+				ResponseEntity<VaultResponse> response = exchange(uri, method, request);
+				endpoint.onSuccess(System.nanoTime() - start);
+				return response;
+			}
+			catch (RestClientException e) {
+
+				if (!isFailover(e)) {
+					throw e;
+				}
+
+				endpoint.onFailure();
+				if (!endpoints.hasNext()) {
+					throw e;
 				}
+
+				log.warn(String.format("Request to %s failed, failing over: %s", uri,
+						e.getMessage()));
+			}
+		}
+	}
+
+	private ListenableFuture<ResponseEntity<VaultResponse>> exchangeAsync(
+			Map<String, String> variables, HttpEntity<?> request) {
+
+		SettableListenableFuture<ResponseEntity<VaultResponse>> result = new SettableListenableFuture<>();
+		exchangeAsync(this.endpoints.select(true).iterator(), variables, request, result);
+
+		return result;
+	}
+
+	private void exchangeAsync(final Iterator<VaultEndpoints.Endpoint> endpoints,
+			final Map<String, String> variables, final HttpEntity<?> request,
+			final SettableListenableFuture<ResponseEntity<VaultResponse>> result) {
+
+		final VaultEndpoints.Endpoint endpoint = endpoints.next();
+		final URI uri = expand(endpoint, variables);
+		log.info(String.format("Fetching config from server at: %s", uri));
+
+		final long start = System.nanoTime();
+		exchangeAsync(uri, request).addCallback(
+				new ListenableFutureCallback<ResponseEntity<VaultResponse>>() {
+
+					@Override
+					public void onSuccess(ResponseEntity<VaultResponse> response) {
+
+						endpoint.onSuccess(System.nanoTime() - start);
+						result.set(response);
+					}
+
+					@Override
+					public void onFailure(Throwable ex) {
+
+						if (!isFailover(ex)) {
+							result.setException(ex);
+							return;
+						}
+
+						endpoint.onFailure();
+						if (!endpoints.hasNext()) {
+							result.setException(ex);
+							return;
+						}
+
+						log.warn(String.format("Request to %s failed, failing over: %s",
+								uri, ex.getMessage()));
+						exchangeAsync(endpoints, variables, request, result);
+					}
+				});
+	}
+
+	private static boolean isFailover(Throwable e) {
+		return e instanceof ResourceAccessException
+				|| e instanceof HttpServerErrorException;
+	}
+
+	/**
+	 * Request the health of the preferred Vault endpoint to establish a connection (DNS
+	 * resolution, TCP connect and TLS handshake) ahead of the first read. A pooling
+	 * {@link ClientHttpRequestFactory} retains the connection for subsequent requests.
+	 *
+	 * @throws RestClientException if the health request fails.
+	 */
+	void warmUp() {
+
+		VaultEndpoints.Endpoint endpoint = this.endpoints.select(true).get(0);
+
+		long start = System.nanoTime();
+		VaultEndpoints.Status status = checkHealth(endpoint.getBaseUrl());
+		endpoint.onHealthCheck(status, System.nanoTime() - start);
+	}
+
+	private VaultEndpoints.Status checkHealth(String baseUrl) {
+
+		Map<?, ?> health = this.rest.getForObject(
+				String.format("%s/%s/sys/health?standbyok=true&perfstandbyok=true",
+						baseUrl, API_VERSION),
+				Map.class);
+
+		return health != null && Boolean.TRUE.equals(health.get("standby"))
+				? VaultEndpoints.Status.STANDBY : VaultEndpoints.Status.ACTIVE;
+	}
+
+	private ResponseEntity<VaultResponse> exchange(final URI uri,
+			final HttpMethod method, final HttpEntity<?> request) {
+
+		return this.requestExecutor.execute(uri, method,
+				new VaultRequestExecutor.Request<ResponseEntity<VaultResponse>>() {
+
+					@Override
+					public ResponseEntity<VaultResponse> execute() {
+						return rest.exchange(uri, method, request, VaultResponse.class);
+					}
+				});
+	}
+
+	private ListenableFuture<ResponseEntity<VaultResponse>> exchangeAsync(final URI uri,
+			final HttpEntity<?> request) {
+
+		return this.requestExecutor.executeAsync(uri,
+				new VaultRequestExecutor.AsyncRequest<ResponseEntity<VaultResponse>>() {
+
+					@Override
+					public ListenableFuture<ResponseEntity<VaultResponse>> execute() {
+						return asyncRest.exchange(uri, HttpMethod.GET, request,
+								VaultResponse.class);
+					}
+				});
+	}
+
+	private LeasedSecret toSecret(SecureBackendAccessor secureBackendAccessor,
+			ResponseEntity<VaultResponse> response) {
+
+		HttpStatus status = response.getStatusCode();
+		if (status == HttpStatus.OK && response.getBody().getData() != null) {
+
+			VaultResponse body = response.getBody();
+			Lease lease = Lease.of(body.getLeaseId(), body.getLeaseDuration(),
+					body.isRenewable());
+
+			if (this.secretCache != null) {
+				this.secretCache.put(secureBackendAccessor, body.getData(), lease);
 			}
+
+			return LeasedSecret.of(transform(secureBackendAccessor, body.getData()),
+					lease);
+		}
+
+		return null;
+	}
+
+	private LeasedSecret readFromCache(SecureBackendAccessor secureBackendAccessor) {
+
+		if (this.secretCache == null) {
+			return null;
+		}
+
+		LeasedSecret cached = this.secretCache.get(secureBackendAccessor);
+		this.metrics.recordCacheAccess(secureBackendAccessor.variables(),
+				cached != null);
+		if (cached == null) {
+			return null;
+		}
+
+		log.debug(String.format("Serving %s from cache",
+				secureBackendAccessor.variables()));
+		return LeasedSecret.of(transform(secureBackendAccessor, cached.getData()),
+				cached.getLease());
+	}
+
+	private Map<String, String> transform(SecureBackendAccessor secureBackendAccessor,
+			Map<String, String> data) {
+
+		if (this.secretChangeTracker != null) {
+			return this.secretChangeTracker.transform(secureBackendAccessor, data);
+		}
+
+		return secureBackendAccessor.transformProperties(data);
+	}
+
+	/**
+	 * Remove a cached secret so the next read obtains the secret from Vault. Has no
+	 * effect if no {@link SecretCache} is configured.
+	 *
+	 * @param secureBackendAccessor must not be {@literal null}.
+	 */
+	public void evict(SecureBackendAccessor secureBackendAccessor) {
+
+		if (this.secretCache != null) {
+			this.secretCache.evict(secureBackendAccessor);
 		}
-		catch (HttpServerErrorException e) {
-			error = e;
+	}
+
+	private void recordRead(SecureBackendAccessor secureBackendAccessor,
+			ResponseEntity<?> response, long start) {
+
+		this.metrics.recordRead(secureBackendAccessor.variables(),
+				response.getStatusCode().value(), System.nanoTime() - start,
+				response.getHeaders().getContentLength());
+	}
+
+	private void recordReadFailure(SecureBackendAccessor secureBackendAccessor,
+			Throwable error, long start) {
+
+		int statusCode = error instanceof HttpStatusCodeException
+				? ((HttpStatusCodeException) error).getStatusCode().value() : 0;
+
+		this.metrics.recordReadFailure(secureBackendAccessor.variables(), statusCode,
+				System.nanoTime() - start);
+	}
+
+	private LeasedSecret toFailedSecret(Throwable error) {
+
+		Map<String, String> data = onReadFailure(error);
+
+		boolean notFound = error == null || (error instanceof HttpClientErrorException
+				&& ((HttpClientErrorException) error)
+						.getStatusCode() == HttpStatus.NOT_FOUND);
+
+		return notFound ? LeasedSecret.of(data, Lease.none())
+				: LeasedSecret.failed(data);
+	}
+
+	private Map<String, String> onReadFailure(Throwable error) {
+
+		String errorBody = null;
+
+		if (error instanceof HttpServerErrorException) {
+
+			HttpServerErrorException e = (HttpServerErrorException) error;
 			if (MediaType.APPLICATION_JSON
 					.includes(e.getResponseHeaders().getContentType())) {
 				errorBody = e.getResponseBodyAsString();
 			}
 		}
-		catch (Exception e) {
-			error = e;
-		}
 
 		if (properties.isFailFast()) {
 			throw new IllegalStateException(
@@ -129,6 +838,15 @@ public class VaultClient {
 		return headers;
 	}
 
+	/**
+	 * Create a request entity with read-only headers that can be shared across
+	 * concurrent requests.
+	 */
+	private HttpEntity<Void> createRequest(VaultToken vaultToken) {
+		return new HttpEntity<Void>(
+				HttpHeaders.readOnlyHttpHeaders(createHeaders(vaultToken)));
+	}
+
 	/**
 	 * Creates a token using a configured authentication mechanism.
 	 *
@@ -139,8 +857,20 @@ public class VaultClient {
 		if (properties.getAuthentication() == AuthenticationMethod.APPID
 				&& appIdUserIdMechanism != null) {
 			AppIdProperties appId = properties.getAppId();
-			return createTokenUsingAppId(new AppIdTuple(properties.getApplicationName(),
-					appIdUserIdMechanism.createUserId()), appId);
+			long start = System.nanoTime();
+			boolean success = false;
+
+			try {
+				VaultToken token = createTokenUsingAppId(
+						new AppIdTuple(properties.getApplicationName(),
+								appIdUserIdMechanism.createUserId()),
+						appId);
+				success = true;
+				return token;
+			}
+			finally {
+				this.metrics.recordLogin("app-id", System.nanoTime() - start, success);
+			}
 		}
 
 		throw new UnsupportedOperationException(
@@ -151,7 +881,6 @@ public class VaultClient {
 	private VaultToken createTokenUsingAppId(AppIdTuple appIdTuple,
 			AppIdProperties appId) {
 
-		String url = buildUrl();
 		Map<String, String> variables = new HashMap<>();
 		variables.put("backend", "auth/" + appId.getAppIdPath());
 		variables.put("key", "login");
@@ -159,19 +888,15 @@ public class VaultClient {
 		Map<String, String> login = getAppIdLogin(appIdTuple);
 
 		try {
-			ResponseEntity<VaultResponse> response = this.rest.exchange(url,
-					HttpMethod.POST, new HttpEntity<>(login), VaultResponse.class,
-					variables);
+			ResponseEntity<VaultResponse> response = exchange(variables,
+					HttpMethod.POST, new HttpEntity<>(login));
 
 			HttpStatus status = response.getStatusCode();
 			if (!status.is2xxSuccessful()) {
 				throw new IllegalStateException("Cannot login using app-id");
 			}
 
-			VaultResponse body = response.getBody();
-			String token = (String) body.getAuth().get("client_token");
-
-			return VaultToken.of(token, body.getLeaseDuration());
+			return toToken(response.getBody());
 		}
 		catch (HttpClientErrorException e) {
 
@@ -184,6 +909,137 @@ public class VaultClient {
 		}
 	}
 
+	/**
+	 * Renews a {@link VaultToken} using {@code auth/token/renew-self}.
+	 *
+	 * @param vaultToken must not be {@literal null}.
+	 * @return the renewed {@link VaultToken} carrying the new lease duration.
+	 */
+	public VaultToken renewToken(VaultToken vaultToken) {
+
+		Assert.notNull(vaultToken, "VaultToken must not be null!");
+
+		Map<String, String> variables = new HashMap<>();
+		variables.put("backend", "auth/token");
+		variables.put("key", "renew-self");
+
+		try {
+			ResponseEntity<VaultResponse> response = exchange(variables,
+					HttpMethod.POST, new HttpEntity<>(createHeaders(vaultToken)));
+
+			HttpStatus status = response.getStatusCode();
+			if (!status.is2xxSuccessful()) {
+				throw new IllegalStateException("Cannot renew token");
+			}
+
+			return toToken(response.getBody());
+		}
+		catch (HttpClientErrorException e) {
+			throw new IllegalStateException(String.format("Cannot renew token: %s",
+					e.getResponseBodyAsString()), e);
+		}
+	}
+
+	/**
+	 * Renews a {@link Lease} using {@code sys/renew}.
+	 *
+	 * @param lease must not be {@literal null}.
+	 * @param vaultToken must not be {@literal null}.
+	 * @return the renewed {@link Lease}.
+	 */
+	public Lease renewLease(Lease lease, VaultToken vaultToken) {
+
+		Assert.notNull(lease, "Lease must not be null!");
+		Assert.hasText(lease.getLeaseId(), "Lease must have a lease id!");
+		Assert.notNull(vaultToken, "VaultToken must not be null!");
+
+		Map<String, String> variables = new HashMap<>();
+		variables.put("backend", "sys/renew");
+		variables.put("key", lease.getLeaseId());
+
+		try {
+			ResponseEntity<VaultResponse> response = exchange(variables,
+					HttpMethod.PUT, new HttpEntity<>(createHeaders(vaultToken)));
+
+			HttpStatus status = response.getStatusCode();
+			if (!status.is2xxSuccessful()) {
+				throw new IllegalStateException(
+						String.format("Cannot renew lease %s", lease.getLeaseId()));
+			}
+
+			VaultResponse body = response.getBody();
+			return Lease.of(body.getLeaseId(), body.getLeaseDuration(),
+					body.isRenewable());
+		}
+		catch (HttpClientErrorException e) {
+			throw new IllegalStateException(String.format("Cannot renew lease %s: %s",
+					lease.getLeaseId(), e.getResponseBodyAsString()), e);
+		}
+	}
+
+	/**
+	 * Revokes a {@link Lease} using {@code sys/revoke} so the secret (e.g. database
+	 * credentials) is invalidated before its lease expires.
+	 *
+	 * @param lease must not be {@literal null}.
+	 * @param vaultToken must not be {@literal null}.
+	 */
+	public void revokeLease(Lease lease, VaultToken vaultToken) {
+
+		Assert.notNull(lease, "Lease must not be null!");
+		Assert.hasText(lease.getLeaseId(), "Lease must have a lease id!");
+		Assert.notNull(vaultToken, "VaultToken must not be null!");
+
+		Map<String, String> variables = new HashMap<>();
+		variables.put("backend", "sys/revoke");
+		variables.put("key", lease.getLeaseId());
+
+		try {
+			ResponseEntity<VaultResponse> response = exchange(variables,
+					HttpMethod.PUT, new HttpEntity<>(createHeaders(vaultToken)));
+
+			HttpStatus status = response.getStatusCode();
+			if (!status.is2xxSuccessful()) {
+				throw new IllegalStateException(
+						String.format("Cannot revoke lease %s", lease.getLeaseId()));
+			}
+		}
+		catch (HttpClientErrorException e) {
+			throw new IllegalStateException(String.format("Cannot revoke lease %s: %s",
+					lease.getLeaseId(), e.getResponseBodyAsString()), e);
+		}
+	}
+
+	/**
+	 * Stop background health checks, pending retries and batch read threads.
+	 */
+	@Override
+	public void destroy() {
+
+		this.endpoints.destroy();
+		this.requestExecutor.destroy();
+
+		synchronized (this) {
+			if (this.batchExecutor != null) {
+				this.batchExecutor.shutdownNow();
+				this.batchExecutor = null;
+			}
+		}
+	}
+
+	private VaultToken toToken(VaultResponse body) {
+
+		Map<String, Object> auth = body.getAuth();
+		String token = (String) auth.get("client_token");
+
+		long leaseDuration = body.getLeaseDuration();
+		if (leaseDuration == 0 && auth.get("lease_duration") instanceof Number) {
+			leaseDuration = ((Number) auth.get("lease_duration")).longValue();
+		}
+
+		return VaultToken.of(token, leaseDuration);
+	}
+
 	private Map<String, String> getAppIdLogin(AppIdTuple appIdTuple) {
 
 		Map<String, String> login = new HashMap<>();
@@ -192,9 +1048,8 @@ public class VaultClient {
 		return login;
 	}
 
-	private String buildUrl() {
-		return String.format("%s://%s:%s/%s/{backend}/{key}", this.properties.getScheme(),
-				this.properties.getHost(), this.properties.getPort(), API_VERSION);
+	private static String buildUrl(VaultEndpoints.Endpoint endpoint) {
+		return String.format("%s/%s/{backend}/{key}", endpoint.getBaseUrl(), API_VERSION);
 	}
 
 	@Value
@@ -202,4 +1057,20 @@ public class VaultClient {
 		private String appId;
 		private String userId;
 	}
+
+	/**
+	 * Identifies a secret read: the accessor path and the token used to read it.
+	 */
+	@Value
+	private static class ReadKey {
+
+		private Map<String, String> variables;
+		private String token;
+
+		static ReadKey of(SecureBackendAccessor secureBackendAccessor,
+				HttpEntity<?> request) {
+			return new ReadKey(secureBackendAccessor.variables(),
+					request.getHeaders().getFirst(VAULT_TOKEN));
+		}
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Establishes connections to Vault in the background. Each connection is opened by a
+ * concurrent health request on a daemon thread, so DNS resolution, TCP connect and the
+ * TLS handshake happen while the bootstrap proceeds (e.g. while the AppId UserId is
+ * computed). Failures are logged and do not affect the bootstrap.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+class VaultConnectionWarmup {
+
+	private final VaultClient vaultClient;
+	private final int connections;
+	private final CountDownLatch completed;
+
+	/**
+	 * Creates a new {@link VaultConnectionWarmup}.
+	 *
+	 * @param vaultClient must not be {@literal null}.
+	 * @param vaultProperties must not be {@literal null}.
+	 */
+	VaultConnectionWarmup(VaultClient vaultClient, VaultProperties vaultProperties) {
+
+		Assert.notNull(vaultClient, "VaultClient must not be null");
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+
+		this.vaultClient = vaultClient;
+		this.connections = Math.max(1, Math.min(vaultProperties.getWarmup()
+				.getConnections(), vaultProperties.getHttp().getMaxPerRoute()));
+		this.completed = new CountDownLatch(this.connections);
+	}
+
+	/**
+	 * Start establishing connections.
+	 *
+	 * @return {@literal this} {@link VaultConnectionWarmup}.
+	 */
+	VaultConnectionWarmup start() {
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-warmup-");
+		threadFactory.setDaemon(true);
+
+		for (int i = 0; i < this.connections; i++) {
+			threadFactory.newThread(new Runnable() {
+
+				@Override
+				public void run() {
+					warmUp();
+				}
+			}).start();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Wait until all connection attempts completed.
+	 *
+	 * @return {@literal true} if all attempts completed within {@code timeout}.
+	 */
+	boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.completed.await(timeout, unit);
+	}
+
+	int getConnections() {
+		return this.connections;
+	}
+
+	private void warmUp() {
+
+		long start = System.nanoTime();
+		try {
+
+			this.vaultClient.warmUp();
+
+			if (log.isDebugEnabled()) {
+				log.debug(String.format("Established connection to Vault in %d ms",
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+			}
+		}
+		catch (RuntimeException e) {
+			log.debug(String.format("Cannot establish connection to Vault: %s",
+					e.getMessage()));
+		}
+		finally {
+			this.completed.countDown();
+		}
+	}
+}
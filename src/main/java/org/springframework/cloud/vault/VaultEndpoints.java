@@ -0,0 +1,339 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Vault endpoints of a cluster ordered by health and latency. Endpoints are either the
+ * configured {@link VaultProperties.Cluster#getNodes() cluster nodes} or the single
+ * endpoint configured by scheme, host and port.
+ * <p>
+ * Each endpoint tracks an exponentially weighted moving average (EWMA) of its response
+ * times. {@link #select(boolean)} returns all endpoints ordered by preference so callers
+ * can fail over to the next endpoint: healthy endpoints before standby nodes (unless
+ * standby reads are enabled) before unavailable endpoints, each group ordered by
+ * latency. Endpoints without latency samples are preferred so every endpoint gets
+ * sampled. Health checks run periodically in the background using {@code sys/health}
+ * to detect standby and sealed nodes and to sample latency of idle endpoints.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+class VaultEndpoints {
+
+	/**
+	 * Weight of a new latency sample.
+	 */
+	private final static double DECAY = 0.3;
+
+	private final VaultProperties properties;
+	private final HealthCheck healthCheck;
+
+	private volatile List<Endpoint> endpoints;
+	private ScheduledExecutorService scheduler;
+
+	VaultEndpoints(VaultProperties properties, HealthCheck healthCheck) {
+
+		Assert.notNull(properties, "VaultProperties must not be null");
+		Assert.notNull(healthCheck, "HealthCheck must not be null");
+
+		this.properties = properties;
+		this.healthCheck = healthCheck;
+	}
+
+	/**
+	 * Select endpoints for a request.
+	 *
+	 * @param read {@literal true} for read requests that may be served by standby nodes.
+	 * @return all endpoints ordered by preference.
+	 */
+	List<Endpoint> select(boolean read) {
+
+		List<Endpoint> endpoints = getEndpoints();
+		if (endpoints.size() == 1) {
+			return endpoints;
+		}
+
+		startHealthChecks();
+
+		boolean standbyOk = read && this.properties.getCluster().isStandbyReads();
+
+		// snapshot state so concurrent updates can't break sorting
+		List<Candidate> candidates = new ArrayList<>(endpoints.size());
+		for (Endpoint endpoint : endpoints) {
+			candidates.add(new Candidate(endpoint, standbyOk));
+		}
+
+		Collections.sort(candidates, new Comparator<Candidate>() {
+
+			@Override
+			public int compare(Candidate left, Candidate right) {
+
+				if (left.rank != right.rank) {
+					return left.rank < right.rank ? -1 : 1;
+				}
+
+				return Double.compare(left.latency, right.latency);
+			}
+		});
+
+		List<Endpoint> result = new ArrayList<>(candidates.size());
+		for (Candidate candidate : candidates) {
+			result.add(candidate.endpoint);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check the health of all endpoints.
+	 */
+	void checkHealth() {
+
+		for (Endpoint endpoint : getEndpoints()) {
+
+			long start = System.nanoTime();
+			try {
+				Status status = this.healthCheck.check(endpoint.getBaseUrl());
+				endpoint.onHealthCheck(status, System.nanoTime() - start);
+			}
+			catch (RuntimeException e) {
+
+				if (endpoint.getStatus() != Status.UNAVAILABLE) {
+					log.warn(String.format("Vault endpoint %s is unavailable: %s",
+							endpoint.getBaseUrl(), e.getMessage()));
+				}
+
+				endpoint.onFailure();
+			}
+		}
+	}
+
+	List<Endpoint> getEndpoints() {
+
+		List<Endpoint> endpoints = this.endpoints;
+		if (endpoints == null) {
+			synchronized (this) {
+
+				if (this.endpoints == null) {
+					this.endpoints = createEndpoints();
+				}
+				endpoints = this.endpoints;
+			}
+		}
+
+		return endpoints;
+	}
+
+	private List<Endpoint> createEndpoints() {
+
+		List<String> nodes = this.properties.getCluster().getNodes();
+		if (nodes == null || nodes.isEmpty()) {
+			return Collections.singletonList(new Endpoint(String.format("%s://%s:%s",
+					this.properties.getScheme(), this.properties.getHost(),
+					this.properties.getPort())));
+		}
+
+		List<Endpoint> endpoints = new ArrayList<>(nodes.size());
+		for (String node : nodes) {
+
+			String baseUrl = StringUtils.trimTrailingCharacter(node.trim(), '/');
+			URI uri = URI.create(baseUrl);
+			Assert.isTrue(uri.getScheme() != null && uri.getHost() != null,
+					String.format(
+							"Cluster node %s must be an absolute URI like https://vault:8200",
+							node));
+
+			endpoints.add(new Endpoint(baseUrl));
+		}
+
+		return Collections.unmodifiableList(endpoints);
+	}
+
+	private synchronized void startHealthChecks() {
+
+		long interval = this.properties.getCluster().getHealthCheckInterval();
+		if (this.scheduler != null || interval <= 0) {
+			return;
+		}
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-health-");
+		threadFactory.setDaemon(true);
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		this.scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				checkHealth();
+			}
+		}, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop background health checks. Health checks start again with the next
+	 * {@link #select(boolean)}.
+	 */
+	synchronized void destroy() {
+
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+	}
+
+	/**
+	 * Health of an endpoint.
+	 */
+	enum Status {
+
+		/**
+		 * No health information available yet.
+		 */
+		UNKNOWN,
+
+		/**
+		 * Active node.
+		 */
+		ACTIVE,
+
+		/**
+		 * Standby node (including performance standby nodes).
+		 */
+		STANDBY,
+
+		/**
+		 * Unreachable, sealed or failing node.
+		 */
+		UNAVAILABLE
+	}
+
+	/**
+	 * Checks the health of a Vault endpoint.
+	 */
+	interface HealthCheck {
+
+		/**
+		 * @param baseUrl base URL of the endpoint, e.g. {@code https://vault:8200}.
+		 * @return the {@link Status} of the endpoint.
+		 * @throws RuntimeException if the endpoint is unavailable.
+		 */
+		Status check(String baseUrl);
+	}
+
+	/**
+	 * A single Vault endpoint.
+	 */
+	static class Endpoint {
+
+		private final String baseUrl;
+
+		private volatile Status status = Status.UNKNOWN;
+		private volatile double latency;
+
+		Endpoint(String baseUrl) {
+			this.baseUrl = baseUrl;
+		}
+
+		String getBaseUrl() {
+			return this.baseUrl;
+		}
+
+		Status getStatus() {
+			return this.status;
+		}
+
+		/**
+		 * @return EWMA of response times in nanoseconds, {@literal 0} if not sampled yet.
+		 */
+		double getLatency() {
+			return this.latency;
+		}
+
+		/**
+		 * Record a successful response.
+		 */
+		void onSuccess(long durationNanos) {
+
+			recordLatency(durationNanos);
+			if (this.status == Status.UNAVAILABLE) {
+				this.status = Status.UNKNOWN;
+			}
+		}
+
+		/**
+		 * Record a failed request (I/O or server error).
+		 */
+		void onFailure() {
+			this.status = Status.UNAVAILABLE;
+		}
+
+		void onHealthCheck(Status status, long durationNanos) {
+
+			recordLatency(durationNanos);
+			this.status = status;
+		}
+
+		private synchronized void recordLatency(long durationNanos) {
+			this.latency = this.latency == 0 ? durationNanos
+					: DECAY * durationNanos + (1 - DECAY) * this.latency;
+		}
+
+		@Override
+		public String toString() {
+			return this.baseUrl;
+		}
+	}
+
+	private static class Candidate {
+
+		private final Endpoint endpoint;
+		private final int rank;
+		private final double latency;
+
+		Candidate(Endpoint endpoint, boolean standbyOk) {
+
+			this.endpoint = endpoint;
+			this.latency = endpoint.getLatency();
+
+			switch (endpoint.getStatus()) {
+			case UNAVAILABLE:
+				this.rank = 2;
+				break;
+			case STANDBY:
+				this.rank = standbyOk ? 0 : 1;
+				break;
+			default:
+				this.rank = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Publishes an {@link EnvironmentChangeEvent} when properties of a
+ * {@link VaultPropertySource} of the application {@link Environment} change outside of a
+ * context refresh, e.g. after revalidating a snapshot, refreshing in the background,
+ * polling or rotating secrets. Property sources are registered when the context starts
+ * and again after each {@link EnvironmentChangeEvent}, as a refresh may replace them.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+public class VaultEnvironmentChangePublisher implements VaultPropertySourceListener,
+		ApplicationListener<EnvironmentChangeEvent>, ApplicationEventPublisherAware,
+		EnvironmentAware, InitializingBean, DisposableBean {
+
+	private final Set<VaultPropertySource> propertySources = newIdentitySet();
+
+	private ApplicationEventPublisher applicationEventPublisher;
+	private ConfigurableEnvironment environment;
+
+	@Override
+	public void setApplicationEventPublisher(
+			ApplicationEventPublisher applicationEventPublisher) {
+		this.applicationEventPublisher = applicationEventPublisher;
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+
+		Assert.isInstanceOf(ConfigurableEnvironment.class, environment);
+		this.environment = (ConfigurableEnvironment) environment;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		register();
+	}
+
+	@Override
+	public void onApplicationEvent(EnvironmentChangeEvent event) {
+		register();
+	}
+
+	@Override
+	public void onPropertiesChanged(VaultPropertySource propertySource,
+			Set<String> changedKeys) {
+
+		if (this.applicationEventPublisher == null) {
+			return;
+		}
+
+		try {
+			this.applicationEventPublisher
+					.publishEvent(new EnvironmentChangeEvent(changedKeys));
+		}
+		catch (RuntimeException e) {
+			log.warn(String.format("Cannot publish changes of %s",
+					propertySource.getName()), e);
+		}
+	}
+
+	/**
+	 * Listen to the {@link VaultPropertySource}s of the {@link Environment} and stop
+	 * listening to property sources that were removed from the {@link Environment}.
+	 */
+	synchronized void register() {
+
+		Set<VaultPropertySource> current = getVaultPropertySources(this.environment);
+
+		for (VaultPropertySource propertySource : current) {
+			if (this.propertySources.add(propertySource)) {
+				propertySource.addListener(this);
+			}
+		}
+
+		for (Iterator<VaultPropertySource> iterator = this.propertySources
+				.iterator(); iterator.hasNext();) {
+
+			VaultPropertySource propertySource = iterator.next();
+			if (!current.contains(propertySource)) {
+				propertySource.removeListener(this);
+				iterator.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+
+		for (VaultPropertySource propertySource : this.propertySources) {
+			propertySource.removeListener(this);
+		}
+
+		this.propertySources.clear();
+	}
+
+	/**
+	 * Collect the {@link VaultPropertySource}s of {@code environment} including these
+	 * nested in {@link CompositePropertySource}s.
+	 *
+	 * @param environment may be {@literal null}.
+	 * @return the {@link VaultPropertySource}s.
+	 */
+	static Set<VaultPropertySource> getVaultPropertySources(
+			ConfigurableEnvironment environment) {
+
+		Set<VaultPropertySource> propertySources = newIdentitySet();
+
+		if (environment != null) {
+			for (PropertySource<?> propertySource : environment.getPropertySources()) {
+				collect(propertySource, propertySources);
+			}
+		}
+
+		return propertySources;
+	}
+
+	private static void collect(PropertySource<?> propertySource,
+			Set<VaultPropertySource> propertySources) {
+
+		if (propertySource instanceof VaultPropertySource) {
+			propertySources.add((VaultPropertySource) propertySource);
+			return;
+		}
+
+		if (propertySource instanceof CompositePropertySource) {
+
+			List<PropertySource<?>> nested = new ArrayList<>(
+					((CompositePropertySource) propertySource).getPropertySources());
+			for (PropertySource<?> nestedPropertySource : nested) {
+				collect(nestedPropertySource, propertySources);
+			}
+		}
+	}
+
+	private static Set<VaultPropertySource> newIdentitySet() {
+		return Collections
+				.newSetFromMap(new IdentityHashMap<VaultPropertySource, Boolean>());
+	}
+}
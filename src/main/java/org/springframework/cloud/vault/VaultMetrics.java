@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Map;
+
+/**
+ * Callback interface to record metrics of Vault interaction. Implementations are
+ * called from request threads and must be thread-safe and non-blocking.
+ *
+ * @author Mark Paluch
+ * @see ActuatorVaultMetrics
+ */
+public interface VaultMetrics {
+
+	/**
+	 * {@link VaultMetrics} that does not record anything.
+	 */
+	VaultMetrics NONE = new VaultMetrics() {
+
+		@Override
+		public void recordRead(Map<String, String> variables, int statusCode,
+				long durationNanos, long contentLength) {
+		}
+
+		@Override
+		public void recordReadFailure(Map<String, String> variables, int statusCode,
+				long durationNanos) {
+		}
+
+		@Override
+		public void recordLogin(String authenticationMethod, long durationNanos,
+				boolean success) {
+		}
+
+		@Override
+		public void recordUserId(long durationNanos, boolean success) {
+		}
+
+		@Override
+		public void recordCacheAccess(Map<String, String> variables, boolean hit) {
+		}
+
+		@Override
+		public void recordPropertySourceInit(String context, long durationNanos) {
+		}
+	};
+
+	/**
+	 * Record a completed secret read.
+	 *
+	 * @param variables the {@link SecureBackendAccessor#variables() accessor variables}
+	 * containing {@code backend} and {@code key}.
+	 * @param statusCode HTTP status code.
+	 * @param durationNanos round-trip duration in nanoseconds.
+	 * @param contentLength response body size in bytes or {@literal -1} if unknown.
+	 */
+	void recordRead(Map<String, String> variables, int statusCode, long durationNanos,
+			long contentLength);
+
+	/**
+	 * Record a failed secret read.
+	 *
+	 * @param variables the {@link SecureBackendAccessor#variables() accessor variables}
+	 * containing {@code backend} and {@code key}.
+	 * @param statusCode HTTP status code or {@literal 0} if the request failed without
+	 * a response (I/O error, unreadable response).
+	 * @param durationNanos duration until the failure in nanoseconds.
+	 */
+	void recordReadFailure(Map<String, String> variables, int statusCode,
+			long durationNanos);
+
+	/**
+	 * Record a login attempt.
+	 *
+	 * @param authenticationMethod name of the authentication method.
+	 * @param durationNanos login duration in nanoseconds.
+	 * @param success {@literal true} if a token was obtained.
+	 */
+	void recordLogin(String authenticationMethod, long durationNanos, boolean success);
+
+	/**
+	 * Record the computation of an AppId UserId.
+	 *
+	 * @param durationNanos computation duration in nanoseconds.
+	 * @param success {@literal true} if a UserId was computed.
+	 */
+	void recordUserId(long durationNanos, boolean success);
+
+	/**
+	 * Record a {@link SecretCache} lookup.
+	 *
+	 * @param variables the {@link SecureBackendAccessor#variables() accessor variables}.
+	 * @param hit {@literal true} if the secret was served from the cache.
+	 */
+	void recordCacheAccess(Map<String, String> variables, boolean hit);
+
+	/**
+	 * Record the initialization of a {@link VaultPropertySource}.
+	 *
+	 * @param context the property source context.
+	 * @param durationNanos initialization duration in nanoseconds.
+	 */
+	void recordPropertySourceInit(String context, long durationNanos);
+}
@@ -15,6 +15,9 @@
  */
 package org.springframework.cloud.vault;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.hibernate.validator.constraints.NotEmpty;
 import org.hibernate.validator.constraints.Range;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -94,12 +97,44 @@ public class VaultProperties {
 
 	private Ssl ssl = new Ssl();
 
+	private Http http = new Http();
+
 	private MySql mysql = new MySql();
 
 	private PostgreSql postgresql = new PostgreSql();
 
 	private Cassandra cassandra = new Cassandra();
 
+	private Concurrency concurrency = new Concurrency();
+
+	private Cache cache = new Cache();
+
+	private TokenRenewal tokenRenewal = new TokenRenewal();
+
+	private LeaseRenewal leaseRenewal = new LeaseRenewal();
+
+	private Metrics metrics = new Metrics();
+
+	private Snapshot snapshot = new Snapshot();
+
+	private Refresh refresh = new Refresh();
+
+	private ChangeDetection changeDetection = new ChangeDetection();
+
+	private Watch watch = new Watch();
+
+	private Retry retry = new Retry();
+
+	private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+	private Cluster cluster = new Cluster();
+
+	private Sharing sharing = new Sharing();
+
+	private Lazy lazy = new Lazy();
+
+	private Warmup warmup = new Warmup();
+
 	/**
 	 * Application name for AppId authentication.
 	 */
@@ -155,6 +190,324 @@ public class VaultProperties {
 		private String trustStorePassword;
 	}
 
+	@Data
+	public static class Http {
+
+		/**
+		 * Maximum number of pooled connections.
+		 */
+		@Range(min = 1)
+		private int maxTotal = 20;
+
+		/**
+		 * Maximum number of pooled connections per route (host).
+		 */
+		@Range(min = 1)
+		private int maxPerRoute = 10;
+
+		/**
+		 * Inactivity period in milliseconds after which a pooled connection is
+		 * validated before it is reused.
+		 */
+		private int validateAfterInactivity = 2000;
+
+		/**
+		 * Time in milliseconds after which idle connections are evicted from the pool.
+		 */
+		private long idleTimeout = 30000;
+
+		/**
+		 * Keep-alive duration in milliseconds for connections if the server does not
+		 * send a keep-alive header.
+		 */
+		private long keepAlive = 30000;
+
+		/**
+		 * Enable HTTP/2 to multiplex requests over a single TLS connection. Requires
+		 * OkHttp on the class-path and ALPN support of the JVM.
+		 */
+		private boolean http2 = false;
+	}
+
+	@Data
+	public static class Concurrency {
+
+		/**
+		 * Enable concurrent fetching of Vault contexts during property source location.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of contexts fetched concurrently.
+		 */
+		@Range(min = 1, max = 64)
+		private int parallelism = 4;
+	}
+
+	@Data
+	public static class Cache {
+
+		/**
+		 * Enable caching of secrets for the duration of their lease.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum time in seconds a secret is cached regardless of its lease duration.
+		 */
+		private long maxTtl = 300;
+
+		/**
+		 * Maximum number of cached secrets.
+		 */
+		@Range(min = 1)
+		private int maxSize = 256;
+	}
+
+	@Data
+	public static class TokenRenewal {
+
+		/**
+		 * Enable renewal of tokens that carry a lease (e.g. tokens obtained by login).
+		 * Contexts renewing tokens share the token of their session.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Fraction of the token TTL after which the token is renewed.
+		 */
+		private double fraction = 0.7;
+	}
+
+	@Data
+	public static class LeaseRenewal {
+
+		/**
+		 * Enable renewal and rotation of leased secrets (e.g. database credentials).
+		 * Contexts renewing leases share the token of their session.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Remaining lease time in seconds at which a lease is renewed. Leases that can't
+		 * be renewed beyond this threshold are rotated.
+		 */
+		private long expiryThreshold = 60;
+	}
+
+	@Data
+	public static class Retry {
+
+		/**
+		 * Enable retries of requests that failed because of I/O errors, server errors
+		 * (5xx) or throttling (429).
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of attempts including the initial request.
+		 */
+		@Range(min = 1)
+		private int maxAttempts = 3;
+
+		/**
+		 * Backoff in milliseconds before the first retry.
+		 */
+		private long initialInterval = 100;
+
+		/**
+		 * Multiplier applied to the backoff after each retry.
+		 */
+		private double multiplier = 2;
+
+		/**
+		 * Maximum backoff in milliseconds.
+		 */
+		private long maxInterval = 2000;
+
+		/**
+		 * Ratio of retries to requests that is allowed on top of the retry reserve.
+		 * Limits retries while Vault is degraded.
+		 */
+		private double budgetRatio = 0.2;
+
+		/**
+		 * Number of retries allowed regardless of the number of requests.
+		 */
+		private int budgetReserve = 10;
+	}
+
+	@Data
+	public static class CircuitBreaker {
+
+		/**
+		 * Enable a circuit breaker per Vault host that rejects requests after
+		 * consecutive failures.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Number of consecutive failed requests that open the circuit.
+		 */
+		@Range(min = 1)
+		private int failureThreshold = 5;
+
+		/**
+		 * Time in milliseconds the circuit stays open before a single probe request is
+		 * allowed.
+		 */
+		private long openDuration = 10000;
+	}
+
+	@Data
+	public static class Cluster {
+
+		/**
+		 * Base URIs of Vault cluster nodes (e.g. {@code https://vault-1:8200}). Overrides
+		 * {@link VaultProperties#host}, {@link VaultProperties#port} and
+		 * {@link VaultProperties#scheme} if set.
+		 */
+		private List<String> nodes = new ArrayList<>();
+
+		/**
+		 * Allow reads from standby nodes. Useful with performance standby nodes that
+		 * serve reads locally.
+		 */
+		private boolean standbyReads = false;
+
+		/**
+		 * Interval in milliseconds between health checks of cluster nodes. {@literal 0}
+		 * disables health checks.
+		 */
+		private long healthCheckInterval = 10000;
+	}
+
+	@Data
+	public static class Sharing {
+
+		/**
+		 * Share tokens, HTTP connection pools and located properties between application
+		 * contexts of the JVM that use the same Vault endpoint and authentication.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Time in seconds located properties are reused for contexts with the same
+		 * application name and profiles. Contexts created by a refresh within this time
+		 * reuse the located properties as well. {@literal 0} (default) disables reuse of
+		 * located properties.
+		 */
+		private long locatedTtl = 0;
+	}
+
+	@Data
+	public static class Lazy {
+
+		/**
+		 * Fetch the properties of a context when a property is requested for the first
+		 * time instead of at bootstrap. Property names of a previous snapshot are used to
+		 * fetch only contexts that supply a requested property. Requires snapshots to be
+		 * enabled. Contexts missing from the snapshot are fetched at bootstrap.
+		 */
+		private boolean enabled = false;
+	}
+
+	@Data
+	public static class Warmup {
+
+		/**
+		 * Establish connections to Vault in the background while bootstrapping, so the
+		 * first read reuses an established connection.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Number of connections to establish. Limited to
+		 * {@link Http#maxPerRoute}.
+		 */
+		@Range(min = 1)
+		private int connections = 2;
+	}
+
+	@Data
+	public static class Watch {
+
+		/**
+		 * Enable polling Vault for changed secrets.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Polling interval in seconds. Each interval varies randomly by up to 10
+		 * percent.
+		 */
+		@Range(min = 1)
+		private long interval = 30;
+
+		/**
+		 * Maximum polling interval in seconds while Vault cannot be reached. The
+		 * interval doubles with each failed poll up to this value.
+		 */
+		@Range(min = 1)
+		private long maxInterval = 600;
+	}
+
+	@Data
+	public static class ChangeDetection {
+
+		/**
+		 * Enable detection of unchanged secrets using a content hash per secret path.
+		 * Unchanged secrets do not rebuild property sources on refresh.
+		 */
+		private boolean enabled = false;
+	}
+
+	@Data
+	public static class Refresh {
+
+		/**
+		 * Refresh mode. {@code blocking} reads secrets from Vault when the context is
+		 * refreshed. {@code background} keeps serving the current properties and
+		 * replaces them once secrets were read in the background.
+		 */
+		private RefreshMode mode = RefreshMode.BLOCKING;
+	}
+
+	@Data
+	public static class Snapshot {
+
+		/**
+		 * Enable an encrypted local snapshot of resolved secrets to warm-start after a
+		 * restart.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Location of the snapshot file.
+		 */
+		private String location;
+
+		/**
+		 * Base64-encoded 128, 192 or 256 bit AES key to encrypt the snapshot.
+		 */
+		private String key;
+
+		/**
+		 * Maximum age in seconds of a snapshot that is used to warm-start.
+		 */
+		private long maxStaleness = 3600;
+	}
+
+	@Data
+	public static class Metrics {
+
+		/**
+		 * Enable recording of Vault request metrics. Metrics are exposed through the
+		 * actuator metrics endpoint if the actuator is on the class-path.
+		 */
+		private boolean enabled = true;
+	}
+
 	@Data
 	public static class MySql implements DatabaseSecretProperties {
 
@@ -284,4 +637,8 @@ public class VaultProperties {
 	public enum AuthenticationMethod {
 		TOKEN, APPID,
 	}
+
+	public enum RefreshMode {
+		BLOCKING, BACKGROUND,
+	}
 }
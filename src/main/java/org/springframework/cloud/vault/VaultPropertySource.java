@@ -17,11 +17,13 @@
 package org.springframework.cloud.vault;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
-import org.springframework.cloud.vault.VaultProperties.AppIdProperties;
-import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
 import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
 
 import lombok.extern.apachecommons.CommonsLog;
 
@@ -35,49 +37,537 @@ public class VaultPropertySource extends EnumerablePropertySource<VaultClient> {
 	private final VaultProperties vaultProperties;
 
 	private String context;
-	private Map<String, String> properties = new LinkedHashMap<>();
+	private volatile PropertyMap properties = PropertyMap.empty();
+	private volatile List<Map<String, String>> secrets;
+	private volatile Pending pending;
+	private volatile boolean failed;
+	private volatile long leaseExpiry = Long.MAX_VALUE;
 
-	private transient VaultState vaultState;
+	private transient VaultAuthenticationManager authenticationManager;
+	private transient SecretLeaseContainer secretLeaseContainer;
+	private final List<VaultPropertySourceListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final SecretLeaseListener rotationListener = new SecretLeaseListener() {
+
+		@Override
+		public void onSecretRotated(SecretRotatedEvent event) {
+			updateProperties(event.getSecureBackendAccessor(), event.getProperties());
+		}
+	};
 
 	public VaultPropertySource(String context, VaultClient source,
-			VaultProperties properties, VaultState state) {
+			VaultProperties properties,
+			VaultAuthenticationManager authenticationManager) {
 		super(context, source);
 		this.context = context;
 		this.vaultProperties = properties;
-		this.vaultState = state;
+		this.authenticationManager = authenticationManager;
+	}
+
+	/**
+	 * Set the {@link SecretLeaseContainer} to renew and rotate leased secrets.
+	 *
+	 * @param secretLeaseContainer may be {@literal null}.
+	 */
+	public void setSecretLeaseContainer(SecretLeaseContainer secretLeaseContainer) {
+		this.secretLeaseContainer = secretLeaseContainer;
+	}
+
+	/**
+	 * Add a {@link VaultPropertySourceListener} that is notified about changed
+	 * properties.
+	 *
+	 * @param listener must not be {@literal null}.
+	 */
+	public void addListener(VaultPropertySourceListener listener) {
+
+		Assert.notNull(listener, "VaultPropertySourceListener must not be null");
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Remove a {@link VaultPropertySourceListener}.
+	 *
+	 * @param listener must not be {@literal null}.
+	 */
+	public void removeListener(VaultPropertySourceListener listener) {
+		this.listeners.remove(listener);
 	}
 
 	public void init() {
 
+		long start = System.nanoTime();
+		this.properties = fetchProperties();
+		this.source.getMetrics().recordPropertySourceInit(this.context,
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Fetch properties from Vault to replace properties that were
+	 * {@link #restore(Map) restored} from a snapshot.
+	 * {@link VaultPropertySourceListener}s are notified about properties that differ
+	 * from the snapshot. The restored properties are retained if a secret cannot be
+	 * read.
+	 *
+	 * @return {@literal true} if properties were obtained from Vault.
+	 */
+	boolean revalidate() {
+
+		long start = System.nanoTime();
+		try {
+			swapProperties(fetchProperties(true, false));
+			return true;
+		}
+		catch (RuntimeException e) {
+
+			log.warn(String.format("Cannot revalidate %s, keeping snapshot: %s",
+					getName(), e.getMessage()));
+			return false;
+		}
+		finally {
+			this.source.getMetrics().recordPropertySourceInit(this.context,
+					System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Defer fetching properties until a property is requested. If {@code propertyNames}
+	 * are known (e.g. from a previous snapshot), properties are only fetched if a
+	 * requested property is one of {@code propertyNames}. Otherwise, properties are
+	 * fetched on the first property access.
+	 *
+	 * @param propertyNames names of properties this property source is expected to
+	 * supply, may be {@literal null} if unknown.
+	 * @param callback invoked after properties were fetched, may be {@literal null}.
+	 */
+	void initLazily(Collection<String> propertyNames, Runnable callback) {
+		this.pending = new Pending(propertyNames, callback);
+	}
+
+	/**
+	 * @return {@literal true} if properties were not fetched yet.
+	 */
+	boolean isPending() {
+		return this.pending != null;
+	}
+
+	/**
+	 * Check whether the property {@code name} can be supplied and fetch properties if
+	 * they were deferred.
+	 *
+	 * @return {@literal false} if properties are pending and {@code name} is not part
+	 * of the expected property names.
+	 */
+	private boolean mayContain(String name) {
+
+		Pending pending = this.pending;
+		if (pending == null) {
+			return true;
+		}
+
+		if (pending.propertyNames != null && !pending.propertyNames.contains(name)) {
+			return false;
+		}
+
+		initPending(pending);
+		return true;
+	}
+
+	private void initPending(Pending pending) {
+
+		synchronized (pending) {
+
+			if (this.pending != pending) {
+				return;
+			}
+
+			init();
+			this.pending = null;
+		}
+
+		if (pending.callback != null) {
+			pending.callback.run();
+		}
+	}
+
+	/**
+	 * Fetch properties from Vault and replace the current properties once all
+	 * properties were obtained. The current properties are served until then.
+	 * {@link VaultPropertySourceListener}s are notified if properties changed. The
+	 * current properties are retained if a secret cannot be read. Pending properties
+	 * that are limited by an index of property names are fetched.
+	 *
+	 * @return names of added, changed or removed properties.
+	 * @throws IllegalStateException if a secret cannot be read.
+	 */
+	public Set<String> refresh() {
+
+		Pending pending = this.pending;
+		if (pending != null) {
+			return refreshPending(pending);
+		}
+
+		return swapProperties(fetchProperties(true, false));
+	}
+
+	/**
+	 * Refresh properties of the generic backend only. Dynamic secrets (database
+	 * credentials) are retained as reading them again issues new credentials; their
+	 * renewal and rotation is left to {@link SecretLeaseContainer}. Falls back to
+	 * {@link #refresh()} if dynamic secrets were not obtained before.
+	 *
+	 * @return names of added, changed or removed properties.
+	 * @throws IllegalStateException if a secret cannot be read.
+	 */
+	public Set<String> refreshGeneric() {
+
+		Pending pending = this.pending;
+		if (pending != null) {
+			return refreshPending(pending);
+		}
+
+		return swapProperties(fetchProperties(true, true));
+	}
+
+	/**
+	 * Fetch pending properties that are limited by an index of property names. The
+	 * index may lack properties that were added to Vault after it was built, so a
+	 * refresh fetches properties to make these available. Properties without index are
+	 * fetched on the first property access anyway and are not fetched by a refresh.
+	 *
+	 * @return names of properties that differ from the index.
+	 */
+	private Set<String> refreshPending(Pending pending) {
+
+		if (pending.propertyNames == null) {
+			return Collections.emptySet();
+		}
+
+		initPending(pending);
+
+		Set<String> changedKeys = new LinkedHashSet<>();
+		for (String name : this.properties.keySet()) {
+			if (!pending.propertyNames.contains(name)) {
+				changedKeys.add(name);
+			}
+		}
+
+		for (String name : pending.propertyNames) {
+			if (!this.properties.containsKey(name)) {
+				changedKeys.add(name);
+			}
+		}
+
+		if (!changedKeys.isEmpty()) {
+
+			log.info(String.format("Properties of %s differ from index: %s", getName(),
+					changedKeys));
+			notifyListeners(changedKeys);
+		}
+
+		return changedKeys;
+	}
+
+	private PropertyMap fetchProperties() {
+		return fetchProperties(false, false);
+	}
+
+	/**
+	 * Read properties from Vault.
+	 *
+	 * @param refresh {@literal true} to fail if a secret cannot be read instead of
+	 * falling back to empty properties.
+	 * @param genericOnly {@literal true} to read the generic backend only and retain
+	 * previously read dynamic secrets.
+	 * @return the properties, the current properties if secrets did not change.
+	 */
+	private PropertyMap fetchProperties(boolean refresh, boolean genericOnly) {
+
 		Assert.hasText(vaultProperties.getBackend(),
 				"No generic secret backend configured (spring.cloud.vault.backend)");
 
+		List<Map<String, String>> previous = this.secrets;
+		boolean retainDynamic = genericOnly && previous != null;
+
 		List<SecureBackendAccessor> accessors = getSecureBackendAccessors();
+		if (retainDynamic) {
+			accessors = accessors.subList(0, 1);
+		}
 
-		for (SecureBackendAccessor accessor : accessors) {
-			try {
-				Map<String, String> values = this.source.read(accessor, obtainToken());
+		List<LeasedSecret> leasedSecrets;
+		try {
+			leasedSecrets = readAll(accessors);
+		}
+		catch (Exception e) {
+
+			if (!retainDynamic) {
+				this.secrets = null;
+			}
 
-				if (values != null) {
-					this.properties.putAll(values);
+			String message = String.format(
+					"Unable to read properties from vault for %s ",
+					getVariables(accessors));
+			if (vaultProperties.isFailFast() || refresh) {
+				if (e instanceof RuntimeException) {
+					throw e;
 				}
+
+				throw new IllegalStateException(message, e);
 			}
-			catch (Exception e) {
 
-				String message = String.format(
-						"Unable to read properties from vault for %s ",
-						accessor.variables());
-				if (vaultProperties.isFailFast()) {
-					if (e instanceof RuntimeException) {
-						throw e;
-					}
+			log.error(message, e);
+			this.failed = true;
+			return PropertyMap.empty();
+		}
+
+		boolean failed = false;
+		List<Map<String, String>> secrets = new ArrayList<>(leasedSecrets.size());
+		for (int i = 0; i < leasedSecrets.size(); i++) {
 
-					throw new IllegalStateException(message, e);
+			LeasedSecret secret = leasedSecrets.get(i);
+			if (secret.isFailed()) {
+
+				if (refresh) {
+					throw new IllegalStateException(String.format(
+							"Unable to read properties from vault for %s, keeping properties",
+							accessors.get(i).variables()));
 				}
 
-				log.error(message, e);
+				failed = true;
+			}
+
+			secrets.add(secret.getData());
+		}
+
+		this.failed = failed;
+
+		if (retainDynamic) {
+			secrets.addAll(previous.subList(1, previous.size()));
+		}
+		else {
+			this.leaseExpiry = getLeaseExpiry(leasedSecrets);
+		}
+
+		if (isUnchanged(secrets)) {
+			return this.properties;
+		}
+
+		Map<String, String> properties = new LinkedHashMap<>();
+		for (Map<String, String> values : secrets) {
+			properties.putAll(values);
+		}
+
+		this.secrets = secrets;
+		return PropertyMap.of(properties);
+	}
+
+	/**
+	 * Check whether {@code secrets} are the same instances as obtained by the previous
+	 * read. {@link SecretChangeTracker} returns the same instances for unchanged secrets.
+	 */
+	private boolean isUnchanged(List<Map<String, String>> secrets) {
+
+		List<Map<String, String>> previous = this.secrets;
+		if (previous == null || previous.size() != secrets.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < secrets.size(); i++) {
+			if (previous.get(i) != secrets.get(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the time in milliseconds since the epoch when the first lease of
+	 * {@code leasedSecrets} expires or {@link Long#MAX_VALUE} if no secret has a lease.
+	 */
+	private static long getLeaseExpiry(List<LeasedSecret> leasedSecrets) {
+
+		long now = System.currentTimeMillis();
+		long expiry = Long.MAX_VALUE;
+
+		for (LeasedSecret secret : leasedSecrets) {
+
+			Lease lease = secret.getLease();
+			if (StringUtils.hasText(lease.getLeaseId())) {
+				expiry = Math.min(expiry,
+						now + TimeUnit.SECONDS.toMillis(lease.getLeaseDuration()));
+			}
+		}
+
+		return expiry;
+	}
+
+	private List<LeasedSecret> readAll(List<SecureBackendAccessor> accessors) {
+
+		if (this.secretLeaseContainer != null) {
+			return this.secretLeaseContainer.readAll(accessors,
+					this.authenticationManager, getName(), rotationListener);
+		}
+
+		return this.source.readAllWithLease(accessors, this.authenticationManager);
+	}
+
+	private static List<Map<String, String>> getVariables(
+			List<SecureBackendAccessor> accessors) {
+
+		List<Map<String, String>> variables = new ArrayList<>(accessors.size());
+		for (SecureBackendAccessor accessor : accessors) {
+			variables.add(accessor.variables());
+		}
+		return variables;
+	}
+
+	/**
+	 * @return the current properties.
+	 */
+	Map<String, String> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * @return {@literal true} if at least one secret could not be read the last time
+	 * properties were fetched.
+	 */
+	boolean isFailed() {
+		return this.failed;
+	}
+
+	/**
+	 * @return the time in milliseconds since the epoch when the first lease of the
+	 * secrets read the last time expires or {@link Long#MAX_VALUE} if no secret has a
+	 * lease. Lease renewal is not taken into account.
+	 */
+	long getLeaseExpiry() {
+		return this.leaseExpiry;
+	}
+
+	/**
+	 * Replace the properties with previously obtained {@code properties}, e.g. from a
+	 * snapshot.
+	 *
+	 * @param properties must not be {@literal null}.
+	 */
+	synchronized void restore(Map<String, String> properties) {
+
+		Assert.notNull(properties, "Properties must not be null");
+		this.properties = PropertyMap.of(properties);
+		this.pending = null;
+	}
+
+	/**
+	 * Merge rotated secret {@code values} into the current properties. The cached
+	 * secret of {@code accessor} is replaced as well so that a refresh of the generic
+	 * backend retains the rotated instead of the revoked secret.
+	 */
+	private void updateProperties(SecureBackendAccessor accessor,
+			Map<String, String> values) {
+
+		PropertyMap previous;
+		PropertyMap properties;
+
+		synchronized (this) {
+
+			previous = this.properties;
+			Map<String, String> merged = new LinkedHashMap<>(previous);
+			merged.putAll(values);
+			properties = PropertyMap.of(merged);
+			this.properties = properties;
+			this.secrets = replaceSecret(this.secrets, accessor, values);
+		}
+
+		onPropertiesChanged(previous, properties);
+	}
+
+	private List<Map<String, String>> replaceSecret(List<Map<String, String>> secrets,
+			SecureBackendAccessor accessor, Map<String, String> values) {
+
+		if (secrets == null) {
+			return null;
+		}
+
+		List<SecureBackendAccessor> accessors = getSecureBackendAccessors();
+		if (accessors.size() != secrets.size()) {
+			return secrets;
+		}
+
+		for (int i = 0; i < accessors.size(); i++) {
+
+			if (accessors.get(i).variables().equals(accessor.variables())) {
+
+				List<Map<String, String>> replaced = new ArrayList<>(secrets);
+				replaced.set(i, values);
+				return replaced;
+			}
+		}
+
+		return secrets;
+	}
+
+	private Set<String> swapProperties(PropertyMap properties) {
+
+		PropertyMap previous;
+		synchronized (this) {
+			previous = this.properties;
+			this.properties = properties;
+		}
+
+		return onPropertiesChanged(previous, properties);
+	}
+
+	private Set<String> onPropertiesChanged(Map<String, String> previous,
+			Map<String, String> current) {
+
+		if (previous == current) {
+			return Collections.emptySet();
+		}
+
+		Set<String> changedKeys = getChangedKeys(previous, current);
+		if (!changedKeys.isEmpty()) {
+
+			log.info(String.format("Properties of %s changed: %s", getName(),
+					changedKeys));
+			notifyListeners(changedKeys);
+		}
+
+		return changedKeys;
+	}
+
+	private void notifyListeners(Set<String> changedKeys) {
+
+		for (VaultPropertySourceListener listener : this.listeners) {
+			try {
+				listener.onPropertiesChanged(this, changedKeys);
+			}
+			catch (RuntimeException e) {
+				log.warn("VaultPropertySourceListener failed", e);
+			}
+		}
+	}
+
+	private static Set<String> getChangedKeys(Map<String, String> previous,
+			Map<String, String> current) {
+
+		Set<String> changedKeys = new LinkedHashSet<>();
+
+		for (Map.Entry<String, String> entry : current.entrySet()) {
+			if (!ObjectUtils.nullSafeEquals(entry.getValue(),
+					previous.get(entry.getKey()))) {
+				changedKeys.add(entry.getKey());
+			}
+		}
+
+		for (String key : previous.keySet()) {
+			if (!current.containsKey(key)) {
+				changedKeys.add(key);
 			}
 		}
+
+		return Collections.unmodifiableSet(changedKeys);
 	}
 
 	private List<SecureBackendAccessor> getSecureBackendAccessors() {
@@ -104,44 +594,53 @@ public class VaultPropertySource extends EnumerablePropertySource<VaultClient> {
 		return accessors;
 	}
 
-	private VaultToken obtainToken() {
-
-		if (vaultState.getToken() != null) {
-			return vaultState.getToken();
-		}
-
-		if (vaultProperties.getAuthentication() == AuthenticationMethod.TOKEN) {
+	@Override
+	public boolean containsProperty(String name) {
+		return mayContain(name) && this.properties.containsKey(name);
+	}
 
-			Assert.hasText(vaultProperties.getToken(), "Token must not be empty");
-			vaultState.setToken(VaultToken.of(vaultProperties.getToken()));
+	@Override
+	public Object getProperty(String name) {
+		return mayContain(name) ? this.properties.get(name) : null;
+	}
 
-			return vaultState.getToken();
-		}
+	/**
+	 * Return the names of all properties. The array is cached until properties change and
+	 * must not be modified. Pending properties with known property names report these
+	 * names without fetching properties.
+	 */
+	@Override
+	public String[] getPropertyNames() {
 
-		if (vaultProperties.getAuthentication() == AuthenticationMethod.APPID) {
+		Pending pending = this.pending;
+		if (pending != null) {
 
-			AppIdProperties appIdProperties = vaultProperties.getAppId();
-			Assert.hasText(vaultProperties.getApplicationName(),
-					"AppId must not be empty");
-			Assert.hasText(appIdProperties.getAppIdPath(), "AppIdPath must not be empty");
+			if (pending.propertyNames != null) {
+				return pending.names;
+			}
 
-			vaultState.setToken(source.createToken());
-			return vaultState.getToken();
+			initPending(pending);
 		}
 
-		throw new IllegalStateException(
-				String.format("Authentication method %s not supported",
-						vaultProperties.getAuthentication()));
+		return this.properties.getNames();
 	}
 
-	@Override
-	public Object getProperty(String name) {
-		return this.properties.get(name);
-	}
+	/**
+	 * Deferred initialization.
+	 */
+	private static class Pending {
 
-	@Override
-	public String[] getPropertyNames() {
-		Set<String> strings = this.properties.keySet();
-		return strings.toArray(new String[strings.size()]);
+		private final Set<String> propertyNames;
+		private final String[] names;
+		private final Runnable callback;
+
+		Pending(Collection<String> propertyNames, Runnable callback) {
+
+			this.propertyNames = propertyNames != null
+					? new HashSet<>(propertyNames) : null;
+			this.names = propertyNames != null
+					? propertyNames.toArray(new String[propertyNames.size()]) : null;
+			this.callback = callback;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.Set;
+
+/**
+ * Listener notified when the properties of a {@link VaultPropertySource} change after
+ * a refresh or a secret rotation.
+ *
+ * @author Mark Paluch
+ */
+public interface VaultPropertySourceListener {
+
+	/**
+	 * Callback after properties of a {@link VaultPropertySource} were replaced.
+	 *
+	 * @param propertySource the {@link VaultPropertySource}.
+	 * @param changedKeys names of added, changed or removed properties, never empty.
+	 */
+	void onPropertiesChanged(VaultPropertySource propertySource, Set<String> changedKeys);
+}
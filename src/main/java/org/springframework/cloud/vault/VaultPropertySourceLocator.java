@@ -19,29 +19,152 @@ package org.springframework.cloud.vault;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.bootstrap.config.PropertySourceLocator;
+import org.springframework.cloud.vault.VaultProperties.RefreshMode;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.core.env.CompositePropertySource;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.PropertySource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
 
 /**
  * {@link PropertySourceLocator} using {@link VaultClient}.
  *
  * @author Spencer Gibb
  */
-public class VaultPropertySourceLocator implements PropertySourceLocator {
+@CommonsLog
+public class VaultPropertySourceLocator implements PropertySourceLocator,
+		ApplicationEventPublisherAware, DisposableBean {
 
 	private VaultClient vault;
 
 	private VaultProperties properties;
-	private transient final VaultState vaultState = new VaultState();
+	private transient final VaultSessions.Session session;
+	private transient final VaultAuthenticationManager authenticationManager;
+
+	private TokenLifecycleManager tokenLifecycleManager;
+
+	private SecretLeaseContainer secretLeaseContainer;
+
+	private SecretSnapshotStore secretSnapshotStore;
+
+	private final List<VaultPropertySourceListener> propertySourceListeners = new ArrayList<>();
 
 	public VaultPropertySourceLocator(VaultClient vault, VaultProperties properties) {
 		this.vault = vault;
 		this.properties = properties;
+		this.session = requiresSession(properties)
+				? VaultSessions.acquire(properties, vault) : null;
+		this.authenticationManager = usesSessionAuthentication(properties)
+				? this.session.getAuthenticationManager(properties)
+				: new VaultAuthenticationManager(vault, properties);
+
+		if (properties.getTokenRenewal().isEnabled()) {
+			this.tokenLifecycleManager = this.session
+					.getTokenLifecycleManager(properties);
+		}
+
+		if (properties.getLeaseRenewal().isEnabled()) {
+			this.secretLeaseContainer = this.session
+					.getSecretLeaseContainer(properties);
+		}
+	}
+
+	/**
+	 * @return {@literal true} if state must be retained across contexts because
+	 * {@link VaultProperties.Sharing sharing}, token or lease renewal or background
+	 * refresh is enabled.
+	 */
+	private static boolean requiresSession(VaultProperties properties) {
+		return usesSessionAuthentication(properties)
+				|| properties.getRefresh().getMode() == RefreshMode.BACKGROUND;
+	}
+
+	/**
+	 * @return {@literal true} if the token is shared across contexts because the
+	 * session renews the token or leases obtained with it, or
+	 * {@link VaultProperties.Sharing sharing} is enabled.
+	 */
+	private static boolean usesSessionAuthentication(VaultProperties properties) {
+		return properties.getSharing().isEnabled()
+				|| properties.getTokenRenewal().isEnabled()
+				|| properties.getLeaseRenewal().isEnabled();
+	}
+
+	/**
+	 * Set the {@link TokenLifecycleManager} to renew tokens obtained while locating
+	 * property sources. Defaults to the {@link TokenLifecycleManager} of the session if
+	 * token renewal is enabled.
+	 *
+	 * @param tokenLifecycleManager may be {@literal null}.
+	 */
+	public void setTokenLifecycleManager(TokenLifecycleManager tokenLifecycleManager) {
+		this.tokenLifecycleManager = tokenLifecycleManager;
+	}
+
+	/**
+	 * Set the {@link SecretLeaseContainer} to renew and rotate leased secrets. Defaults
+	 * to the {@link SecretLeaseContainer} of the session if lease renewal is enabled.
+	 *
+	 * @param secretLeaseContainer may be {@literal null}.
+	 */
+	public void setSecretLeaseContainer(SecretLeaseContainer secretLeaseContainer) {
+		this.secretLeaseContainer = secretLeaseContainer;
+	}
+
+	/**
+	 * Set the {@link ApplicationEventPublisher} to publish {@link SecretRotatedEvent}s.
+	 *
+	 * @param applicationEventPublisher may be {@literal null}.
+	 * @see SecretLeaseContainer#setApplicationEventPublisher(ApplicationEventPublisher)
+	 */
+	@Override
+	public void setApplicationEventPublisher(
+			ApplicationEventPublisher applicationEventPublisher) {
+
+		if (this.secretLeaseContainer != null) {
+			this.secretLeaseContainer
+					.setApplicationEventPublisher(applicationEventPublisher);
+		}
+	}
+
+	/**
+	 * Set the {@link SecretSnapshotStore} to warm-start from and to save resolved
+	 * secrets to.
+	 *
+	 * @param secretSnapshotStore may be {@literal null}.
+	 */
+	public void setSecretSnapshotStore(SecretSnapshotStore secretSnapshotStore) {
+		this.secretSnapshotStore = secretSnapshotStore;
+	}
+
+	/**
+	 * Add a {@link VaultPropertySourceListener} to property sources created by this
+	 * locator.
+	 *
+	 * @param listener must not be {@literal null}.
+	 */
+	public void addPropertySourceListener(VaultPropertySourceListener listener) {
+
+		Assert.notNull(listener, "VaultPropertySourceListener must not be null");
+		this.propertySourceListeners.add(listener);
 	}
 
 	@Override
@@ -63,12 +186,54 @@ public class VaultPropertySourceLocator implements PropertySourceLocator {
 
 			Collections.reverse(contexts);
 
-			CompositePropertySource composite = new CompositePropertySource("vault");
+			boolean background = this.properties.getRefresh()
+					.getMode() == RefreshMode.BACKGROUND;
 
-			for (String propertySourceContext : contexts) {
-				VaultPropertySource propertySource = create(propertySourceContext);
-				propertySource.init();
-				composite.addPropertySource(propertySource);
+			if (background) {
+
+				List<VaultPropertySource> located = getBackgroundPropertySources(
+						contexts);
+				if (located != null) {
+
+					refreshInBackground(located);
+					return createComposite(located);
+				}
+			}
+
+			List<VaultPropertySource> propertySources = createPropertySources(contexts);
+			CompositePropertySource composite = createComposite(propertySources);
+
+			Map<String, Map<String, String>> located = background ? null
+					: getLocated(contexts);
+			if (located != null) {
+
+				log.debug("Using properties located by another context");
+				restore(propertySources, located);
+				return composite;
+			}
+
+			Map<String, Map<String, String>> snapshot = this.secretSnapshotStore != null
+					? this.secretSnapshotStore.load() : null;
+
+			if (snapshot != null && snapshot.keySet().containsAll(contexts)) {
+
+				log.info("Using Vault snapshot, revalidating in the background");
+				restore(propertySources, snapshot);
+				revalidate(propertySources);
+			}
+			else if (this.properties.getLazy().isEnabled()) {
+				initLazily(propertySources);
+			}
+			else {
+				initPropertySources(propertySources);
+				onInitialized(propertySources);
+			}
+
+			if (background) {
+				for (VaultPropertySource propertySource : propertySources) {
+					this.session.putPropertySource(getKey(propertySource.getName()),
+							propertySource);
+				}
 			}
 
 			return composite;
@@ -76,8 +241,351 @@ public class VaultPropertySourceLocator implements PropertySourceLocator {
 		return null;
 	}
 
+	/**
+	 * Release the {@link VaultSessions.Session session} if this locator acquired one.
+	 */
+	@Override
+	public void destroy() {
+
+		if (this.session != null) {
+			VaultSessions.release(this.session, this.vault);
+		}
+	}
+
+	private CompositePropertySource createComposite(
+			List<VaultPropertySource> propertySources) {
+
+		CompositePropertySource composite = new CompositePropertySource("vault");
+
+		for (VaultPropertySource propertySource : propertySources) {
+			composite.addPropertySource(propertySource);
+		}
+
+		return composite;
+	}
+
+	/**
+	 * Look up property sources that were located before in background refresh mode.
+	 *
+	 * @param contexts must not be {@literal null}.
+	 * @return the property sources in the order of {@code contexts} or {@literal null}
+	 * if at least one context was not located before.
+	 */
+	private List<VaultPropertySource> getBackgroundPropertySources(
+			List<String> contexts) {
+
+		List<VaultPropertySource> propertySources = new ArrayList<>(contexts.size());
+
+		for (String context : contexts) {
+
+			VaultPropertySource propertySource = this.session
+					.getPropertySource(getKey(context));
+			if (propertySource == null) {
+				return null;
+			}
+
+			propertySources.add(propertySource);
+		}
+
+		return propertySources;
+	}
+
+	/**
+	 * Look up properties located recently by a context with the same application name
+	 * and profiles if {@link VaultProperties.Sharing sharing} is enabled.
+	 *
+	 * @param contexts must not be {@literal null}.
+	 * @return property source names mapped to their properties or {@literal null}.
+	 */
+	private Map<String, Map<String, String>> getLocated(List<String> contexts) {
+
+		VaultProperties.Sharing sharing = this.properties.getSharing();
+		if (!sharing.isEnabled() || sharing.getLocatedTtl() <= 0) {
+			return null;
+		}
+
+		Map<String, Map<String, String>> located = this.session.getLocated(
+				getKey(contexts.toString()),
+				TimeUnit.SECONDS.toMillis(sharing.getLocatedTtl()));
+
+		return located != null && located.keySet().containsAll(contexts) ? located
+				: null;
+	}
+
+	private String getKey(String context) {
+		return String.format("%s/%s", this.properties.getBackend(), context);
+	}
+
+	/**
+	 * Refresh property sources in the background. Property sources keep serving their
+	 * current properties until the refresh completes.
+	 */
+	private void refreshInBackground(final List<VaultPropertySource> propertySources) {
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-refresh-");
+		threadFactory.setDaemon(true);
+
+		threadFactory.newThread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				for (VaultPropertySource propertySource : propertySources) {
+					try {
+						propertySource.refresh();
+					}
+					catch (RuntimeException e) {
+						log.warn(String.format("Cannot refresh %s, keeping properties",
+								propertySource.getName()), e);
+					}
+				}
+			}
+		}).start();
+	}
+
+	/**
+	 * Creates {@link VaultPropertySource}s for the given {@code contexts} retaining the
+	 * order of {@code contexts}.
+	 *
+	 * @param contexts must not be {@literal null}.
+	 * @return the property sources.
+	 */
+	private List<VaultPropertySource> createPropertySources(List<String> contexts) {
+
+		List<VaultPropertySource> propertySources = new ArrayList<>(contexts.size());
+
+		for (String propertySourceContext : contexts) {
+			propertySources.add(create(propertySourceContext));
+		}
+
+		return propertySources;
+	}
+
+	/**
+	 * Initializes {@link VaultPropertySource}s either sequentially or concurrently.
+	 *
+	 * @param propertySources must not be {@literal null}.
+	 */
+	private void initPropertySources(List<VaultPropertySource> propertySources) {
+
+		VaultProperties.Concurrency concurrency = this.properties.getConcurrency();
+		if (!concurrency.isEnabled() || propertySources.size() < 2) {
+
+			for (VaultPropertySource propertySource : propertySources) {
+				propertySource.init();
+			}
+
+			return;
+		}
+
+		initConcurrently(propertySources,
+				Math.min(concurrency.getParallelism(), propertySources.size()));
+	}
+
+	/**
+	 * Fetch properties of property sources that were restored from a snapshot in the
+	 * background. Properties of a context that cannot be read from Vault (e.g. because
+	 * Vault is unavailable) are kept from the snapshot. The snapshot is only replaced if
+	 * all contexts were read from Vault.
+	 */
+	private void revalidate(final List<VaultPropertySource> propertySources) {
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-snapshot-");
+		threadFactory.setDaemon(true);
+
+		threadFactory.newThread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				boolean complete = true;
+				for (VaultPropertySource propertySource : propertySources) {
+					if (!propertySource.revalidate()) {
+						complete = false;
+					}
+				}
+
+				if (complete) {
+					onInitialized(propertySources);
+				}
+				else if (tokenLifecycleManager != null) {
+					tokenLifecycleManager.scheduleRenewal(authenticationManager);
+				}
+			}
+		}).start();
+	}
+
+	/**
+	 * Defer fetching properties until properties are requested. Property names of a
+	 * (possibly stale) snapshot limit fetching to contexts that supply a requested
+	 * property. Contexts without property names in the snapshot would be fetched on the
+	 * first property lookup anyway, so they are initialized right away. Property sources
+	 * are considered initialized once all property sources fetched their properties.
+	 */
+	private void initLazily(final List<VaultPropertySource> propertySources) {
+
+		Map<String, Set<String>> propertyNames = this.secretSnapshotStore != null
+				? this.secretSnapshotStore.loadPropertyNames() : null;
+
+		List<VaultPropertySource> eager = new ArrayList<>();
+		for (VaultPropertySource propertySource : propertySources) {
+			if (propertyNames == null
+					|| !propertyNames.containsKey(propertySource.getName())) {
+				eager.add(propertySource);
+			}
+		}
+
+		initPropertySources(eager);
+
+		if (eager.size() == propertySources.size()) {
+			onInitialized(propertySources);
+			return;
+		}
+
+		log.debug(String.format("Deferring %d of %d contexts",
+				propertySources.size() - eager.size(), propertySources.size()));
+
+		Runnable callback = new Runnable() {
+
+			@Override
+			public void run() {
+
+				for (VaultPropertySource propertySource : propertySources) {
+					if (propertySource.isPending()) {
+
+						if (tokenLifecycleManager != null) {
+							tokenLifecycleManager.scheduleRenewal(authenticationManager);
+						}
+						return;
+					}
+				}
+
+				onInitialized(propertySources);
+			}
+		};
+
+		for (VaultPropertySource propertySource : propertySources) {
+			if (!eager.contains(propertySource)) {
+				propertySource.initLazily(propertyNames.get(propertySource.getName()),
+						callback);
+			}
+		}
+	}
+
+	private void restore(List<VaultPropertySource> propertySources,
+			Map<String, Map<String, String>> snapshot) {
+
+		for (VaultPropertySource propertySource : propertySources) {
+			propertySource.restore(snapshot.get(propertySource.getName()));
+		}
+	}
+
+	/**
+	 * Schedule token renewal and retain the properties for other contexts and as
+	 * snapshot. Properties are only retained if all property sources were read
+	 * successfully so that a boot during a Vault outage does not replace a good snapshot.
+	 * The snapshot expires along with the first lease of its secrets.
+	 */
+	private void onInitialized(List<VaultPropertySource> propertySources) {
+
+		if (this.tokenLifecycleManager != null) {
+			this.tokenLifecycleManager.scheduleRenewal(this.authenticationManager);
+		}
+
+		VaultProperties.Sharing sharing = this.properties.getSharing();
+		boolean retainLocated = sharing.isEnabled() && sharing.getLocatedTtl() > 0;
+		if (this.secretSnapshotStore == null && !retainLocated) {
+			return;
+		}
+
+		List<String> contexts = new ArrayList<>(propertySources.size());
+		Map<String, Map<String, String>> snapshot = new LinkedHashMap<>();
+		long leaseExpiry = Long.MAX_VALUE;
+		for (VaultPropertySource propertySource : propertySources) {
+
+			if (propertySource.isFailed()) {
+				log.debug(String.format(
+						"Properties of %s could not be read, not retaining properties",
+						propertySource.getName()));
+				return;
+			}
+
+			contexts.add(propertySource.getName());
+			snapshot.put(propertySource.getName(), propertySource.getProperties());
+			leaseExpiry = Math.min(leaseExpiry, propertySource.getLeaseExpiry());
+		}
+
+		if (retainLocated) {
+			this.session.setLocated(getKey(contexts.toString()), snapshot);
+		}
+
+		if (this.secretSnapshotStore != null) {
+			this.secretSnapshotStore.save(snapshot,
+					leaseExpiry != Long.MAX_VALUE ? leaseExpiry : 0);
+		}
+	}
+
+	private void initConcurrently(List<VaultPropertySource> propertySources,
+			int parallelism) {
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-locator-");
+		threadFactory.setDaemon(true);
+
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+				threadFactory);
+
+		try {
+
+			List<Future<?>> futures = new ArrayList<>(propertySources.size());
+
+			for (final VaultPropertySource propertySource : propertySources) {
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						propertySource.init();
+						return null;
+					}
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while fetching properties from Vault", e);
+		}
+		catch (ExecutionException e) {
+
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new IllegalStateException(
+					"Unable to read properties from Vault", e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	private VaultPropertySource create(String context) {
-		return new VaultPropertySource(context, this.vault, this.properties, this.vaultState);
+
+		VaultPropertySource propertySource = new VaultPropertySource(context, this.vault,
+				this.properties, this.authenticationManager);
+		propertySource.setSecretLeaseContainer(this.secretLeaseContainer);
+
+		for (VaultPropertySourceListener listener : this.propertySourceListeners) {
+			propertySource.addListener(listener);
+		}
+
+		return propertySource;
 	}
 
 	private void addProfiles(List<String> contexts, String baseContext,
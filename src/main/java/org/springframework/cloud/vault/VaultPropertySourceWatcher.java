@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.vault.VaultProperties.RefreshMode;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Polls Vault for changed secrets. The watcher refreshes the
+ * {@link VaultPropertySource}s of the application {@link Environment} in place, so only
+ * changed keys are reported and unchanged secrets do not cause any
+ * {@link EnvironmentChangeEvent}. Events for changed properties are published by
+ * {@link VaultEnvironmentChangePublisher}. Only secrets of the generic backend are
+ * polled: reading database credentials issues new credentials, so these are left to
+ * {@link SecretLeaseContainer}.
+ * <p>
+ * Polling intervals vary randomly to spread polls of many instances. The interval
+ * doubles with each failed poll (e.g. Vault is sealed or unavailable) up to a maximum
+ * interval and is reset after a successful poll.
+ * <p>
+ * The watcher requires the {@link RefreshMode#BACKGROUND background} refresh mode. A
+ * blocking refresh replaces the property sources and destroys the clients of the
+ * previous ones, so the watcher would keep polling with destroyed clients.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+public class VaultPropertySourceWatcher
+		implements EnvironmentAware, InitializingBean, DisposableBean {
+
+	private final static int MAX_BACKOFF_EXPONENT = 16;
+
+	private final VaultProperties.Watch watch;
+	private final ScheduledExecutorService executor;
+	private final Random random = new Random();
+
+	private ConfigurableEnvironment environment;
+
+	private int failures;
+
+	/**
+	 * Creates a new {@link VaultPropertySourceWatcher}.
+	 *
+	 * @param vaultProperties must not be {@literal null}.
+	 * @throws IllegalStateException if the refresh mode is not
+	 * {@link RefreshMode#BACKGROUND background}.
+	 */
+	public VaultPropertySourceWatcher(VaultProperties vaultProperties) {
+
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+		Assert.state(vaultProperties.getRefresh().getMode() == RefreshMode.BACKGROUND,
+				"Watching secrets (spring.cloud.vault.watch.enabled) requires "
+						+ "spring.cloud.vault.refresh.mode=background");
+
+		this.watch = vaultProperties.getWatch();
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-watch-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+	}
+
+	@Override
+	public void setEnvironment(Environment environment) {
+
+		Assert.isInstanceOf(ConfigurableEnvironment.class, environment);
+		this.environment = (ConfigurableEnvironment) environment;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		schedule();
+	}
+
+	/**
+	 * Refresh all {@link VaultPropertySource}s.
+	 *
+	 * @return names of changed properties.
+	 */
+	public Set<String> poll() {
+
+		Set<String> changedKeys = new LinkedHashSet<>();
+		boolean failed = false;
+
+		for (VaultPropertySource propertySource : VaultEnvironmentChangePublisher
+				.getVaultPropertySources(this.environment)) {
+			try {
+				changedKeys.addAll(propertySource.refreshGeneric());
+			}
+			catch (RuntimeException e) {
+
+				log.warn(String.format("Cannot poll %s: %s", propertySource.getName(),
+						e.getMessage()));
+				failed = true;
+			}
+		}
+
+		synchronized (this) {
+			this.failures = failed ? this.failures + 1 : 0;
+		}
+
+		return changedKeys;
+	}
+
+	private void schedule() {
+
+		if (this.executor.isShutdown()) {
+			return;
+		}
+
+		this.executor.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try {
+					poll();
+				}
+				catch (RuntimeException e) {
+					log.warn("Cannot poll Vault", e);
+				}
+				finally {
+					schedule();
+				}
+			}
+		}, getDelayMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the delay until the next poll considering failed polls and jitter.
+	 */
+	synchronized long getDelayMillis() {
+
+		long interval = TimeUnit.SECONDS.toMillis(this.watch.getInterval());
+		long maxInterval = Math.max(interval,
+				TimeUnit.SECONDS.toMillis(this.watch.getMaxInterval()));
+
+		long delay = Math.min(interval
+				<< Math.min(this.failures, MAX_BACKOFF_EXPONENT), maxInterval);
+
+		// +/- 10 percent
+		return delay + (long) ((this.random.nextDouble() - 0.5) * delay / 5);
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+}
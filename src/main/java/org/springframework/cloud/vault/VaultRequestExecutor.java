@@ -0,0 +1,461 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * Executes requests to Vault applying retries and a circuit breaker per host.
+ * <p>
+ * Requests failing with I/O errors, server errors (5xx) or throttling (429) are
+ * retried with exponential backoff and jitter as long as the retry budget permits.
+ * The retry budget allows a ratio of retries to requests plus a fixed reserve so a
+ * degraded Vault is not overloaded by retries. Consecutive failures open the circuit
+ * of a host: requests are rejected with {@link ResourceAccessException} until the open
+ * duration has passed, then a single probe request is allowed. A successful probe
+ * closes the circuit, a failed probe keeps it open. Client errors (4xx other than 429)
+ * indicate a healthy Vault and are neither retried nor counted as failures. Blocking
+ * and non-blocking requests classify errors the same way, regardless of whether a
+ * request fails immediately or its future completes exceptionally.
+ * <p>
+ * Only idempotent ({@code GET}) requests are retried. Logins ({@code POST}) and lease
+ * renewals ({@code PUT}) may have been processed by Vault before the error occurred,
+ * so they fail after the first attempt and are subject to the circuit breaker only.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+class VaultRequestExecutor {
+
+	private final VaultProperties.Retry retry;
+	private final VaultProperties.CircuitBreaker circuitBreaker;
+	private final RetryBudget retryBudget;
+	private final Random random = new Random();
+
+	private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService scheduler;
+
+	VaultRequestExecutor(VaultProperties vaultProperties) {
+
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+
+		this.retry = vaultProperties.getRetry();
+		this.circuitBreaker = vaultProperties.getCircuitBreaker();
+		this.retryBudget = new RetryBudget(this.retry.getBudgetRatio(),
+				this.retry.getBudgetReserve());
+	}
+
+	/**
+	 * Execute a blocking idempotent request.
+	 *
+	 * @param uri target {@link URI} identifying the host.
+	 * @param request the request.
+	 * @return the request result.
+	 * @throws RestClientException if the request fails after all attempts or the
+	 * circuit is open.
+	 */
+	<T> T execute(URI uri, Request<T> request) {
+		return execute(uri, HttpMethod.GET, request);
+	}
+
+	/**
+	 * Execute a blocking request. Requests using other methods than {@code GET} are not
+	 * retried.
+	 *
+	 * @param uri target {@link URI} identifying the host.
+	 * @param method the HTTP method of the request.
+	 * @param request the request.
+	 * @return the request result.
+	 * @throws RestClientException if the request fails after all attempts or the
+	 * circuit is open.
+	 */
+	<T> T execute(URI uri, HttpMethod method, Request<T> request) {
+
+		CircuitBreaker circuitBreaker = getCircuitBreaker(uri);
+		boolean idempotent = method == HttpMethod.GET;
+		this.retryBudget.onRequest();
+		RuntimeException lastError = null;
+
+		for (int attempt = 1;; attempt++) {
+
+			if (!circuitBreaker.tryAcquire()) {
+				throw lastError != null ? lastError : circuitOpen(uri);
+			}
+
+			try {
+				T result = request.execute();
+				circuitBreaker.onSuccess();
+				return result;
+			}
+			catch (RuntimeException e) {
+
+				if (!isRetryable(e)) {
+
+					// Vault responded, release a half-open probe
+					circuitBreaker.onSuccess();
+					throw e;
+				}
+
+				circuitBreaker.onFailure();
+				if (!idempotent || !canRetry(attempt)) {
+					throw e;
+				}
+
+				lastError = e;
+
+				long backoff = getBackoff(attempt);
+				log.debug(String.format("Request to %s failed: %s. Retrying in %d ms",
+						uri, e.getMessage(), backoff));
+
+				try {
+					Thread.sleep(backoff);
+				}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Execute a non-blocking idempotent request. Retries are scheduled without blocking
+	 * the calling thread.
+	 *
+	 * @param uri target {@link URI} identifying the host.
+	 * @param request the request.
+	 * @return a {@link ListenableFuture} completing with the result or the
+	 * {@link RestClientException} of the last attempt.
+	 */
+	<T> ListenableFuture<T> executeAsync(URI uri, AsyncRequest<T> request) {
+
+		SettableListenableFuture<T> result = new SettableListenableFuture<>();
+		this.retryBudget.onRequest();
+		executeAsync(uri, request, result, 1);
+
+		return result;
+	}
+
+	private <T> void executeAsync(final URI uri, final AsyncRequest<T> request,
+			final SettableListenableFuture<T> result, final int attempt) {
+
+		final CircuitBreaker circuitBreaker = getCircuitBreaker(uri);
+		if (!circuitBreaker.tryAcquire()) {
+			result.setException(circuitOpen(uri));
+			return;
+		}
+
+		ListenableFuture<T> future;
+		try {
+			future = request.execute();
+		}
+		catch (RuntimeException e) {
+
+			// e.g. the connection could not be opened, same as a failed future
+			onAsyncFailure(uri, request, result, attempt, circuitBreaker, e);
+			return;
+		}
+
+		future.addCallback(new ListenableFutureCallback<T>() {
+
+			@Override
+			public void onSuccess(T value) {
+
+				circuitBreaker.onSuccess();
+				result.set(value);
+			}
+
+			@Override
+			public void onFailure(Throwable ex) {
+				onAsyncFailure(uri, request, result, attempt, circuitBreaker, ex);
+			}
+		});
+	}
+
+	private <T> void onAsyncFailure(final URI uri, final AsyncRequest<T> request,
+			final SettableListenableFuture<T> result, final int attempt,
+			CircuitBreaker circuitBreaker, Throwable ex) {
+
+		if (!isRetryable(ex)) {
+
+			// Vault responded, release a half-open probe
+			circuitBreaker.onSuccess();
+			result.setException(ex);
+			return;
+		}
+
+		circuitBreaker.onFailure();
+		if (!canRetry(attempt)) {
+			result.setException(ex);
+			return;
+		}
+
+		long backoff = getBackoff(attempt);
+		log.debug(String.format("Request to %s failed: %s. Retrying in %d ms", uri,
+				ex.getMessage(), backoff));
+
+		try {
+			getScheduler().schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					executeAsync(uri, request, result, attempt + 1);
+				}
+			}, backoff, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException e) {
+			result.setException(ex);
+		}
+	}
+
+	private boolean canRetry(int attempt) {
+
+		if (!this.retry.isEnabled() || attempt >= this.retry.getMaxAttempts()) {
+			return false;
+		}
+
+		if (!this.retryBudget.tryRetry()) {
+			log.debug("Retry budget exhausted, not retrying");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Exponential backoff with equal jitter: half of the backoff is fixed, the other
+	 * half is random.
+	 */
+	long getBackoff(int attempt) {
+
+		double backoff = this.retry.getInitialInterval()
+				* Math.pow(this.retry.getMultiplier(), attempt - 1);
+		long capped = (long) Math.min(backoff, this.retry.getMaxInterval());
+
+		return capped / 2 + (long) (this.random.nextDouble() * (capped / 2));
+	}
+
+	CircuitBreaker getCircuitBreaker(URI uri) {
+
+		String host = String.format("%s://%s", uri.getScheme(), uri.getAuthority());
+
+		CircuitBreaker circuitBreaker = this.circuitBreakers.get(host);
+		if (circuitBreaker == null) {
+
+			circuitBreaker = new CircuitBreaker(this.circuitBreaker);
+			CircuitBreaker existing = this.circuitBreakers.putIfAbsent(host,
+					circuitBreaker);
+			if (existing != null) {
+				circuitBreaker = existing;
+			}
+		}
+
+		return circuitBreaker;
+	}
+
+	/**
+	 * Stop the retry scheduler once already scheduled retries have run. The scheduler is
+	 * created again with the next retry.
+	 */
+	synchronized void destroy() {
+
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+			this.scheduler = null;
+		}
+	}
+
+	private synchronized ScheduledExecutorService getScheduler() {
+
+		if (this.scheduler == null) {
+
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+					"vault-retry-");
+			threadFactory.setDaemon(true);
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		}
+
+		return this.scheduler;
+	}
+
+	private static ResourceAccessException circuitOpen(URI uri) {
+		return new ResourceAccessException(String.format(
+				"Circuit breaker for %s://%s is open", uri.getScheme(),
+				uri.getAuthority()));
+	}
+
+	private static boolean isRetryable(Throwable e) {
+
+		return e instanceof ResourceAccessException
+				|| e instanceof HttpServerErrorException
+				|| (e instanceof HttpClientErrorException
+						&& ((HttpClientErrorException) e)
+								.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS);
+	}
+
+	/**
+	 * A blocking request.
+	 */
+	interface Request<T> {
+		T execute();
+	}
+
+	/**
+	 * A non-blocking request.
+	 */
+	interface AsyncRequest<T> {
+		ListenableFuture<T> execute();
+	}
+
+	/**
+	 * Circuit breaker for a single host.
+	 */
+	static class CircuitBreaker {
+
+		enum State {
+			CLOSED, OPEN, HALF_OPEN
+		}
+
+		private final VaultProperties.CircuitBreaker settings;
+
+		private State state = State.CLOSED;
+		private int failures;
+		private long openedAt;
+
+		CircuitBreaker(VaultProperties.CircuitBreaker settings) {
+			this.settings = settings;
+		}
+
+		/**
+		 * @return {@literal true} if a request may be issued.
+		 */
+		synchronized boolean tryAcquire() {
+
+			if (!this.settings.isEnabled()) {
+				return true;
+			}
+
+			switch (this.state) {
+			case OPEN:
+				if (currentTimeMillis() - this.openedAt < this.settings
+						.getOpenDuration()) {
+					return false;
+				}
+
+				// allow a single probe
+				this.state = State.HALF_OPEN;
+				return true;
+
+			case HALF_OPEN:
+				return false;
+
+			default:
+				return true;
+			}
+		}
+
+		synchronized void onSuccess() {
+
+			this.state = State.CLOSED;
+			this.failures = 0;
+		}
+
+		synchronized void onFailure() {
+
+			if (!this.settings.isEnabled()) {
+				return;
+			}
+
+			this.failures++;
+
+			if (this.state == State.HALF_OPEN
+					|| this.failures >= this.settings.getFailureThreshold()) {
+
+				if (this.state != State.OPEN) {
+					log.warn(String.format(
+							"Opening circuit breaker after %d consecutive failures",
+							this.failures));
+				}
+
+				this.state = State.OPEN;
+				this.openedAt = currentTimeMillis();
+			}
+		}
+
+		synchronized State getState() {
+			return this.state;
+		}
+
+		long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Token bucket limiting retries to a ratio of requests. Each request deposits
+	 * {@code ratio} tokens, each retry withdraws one token. The bucket holds at most
+	 * {@code reserve} (at least one) tokens and starts full.
+	 */
+	static class RetryBudget {
+
+		private final double ratio;
+		private final int reserve;
+		private double tokens;
+
+		RetryBudget(double ratio, int reserve) {
+
+			this.ratio = ratio;
+			this.reserve = Math.max(reserve, 1);
+			this.tokens = this.reserve;
+		}
+
+		synchronized void onRequest() {
+			this.tokens = Math.min(this.reserve, this.tokens + this.ratio);
+		}
+
+		synchronized boolean tryRetry() {
+
+			if (this.tokens < 1) {
+				return false;
+			}
+
+			this.tokens--;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads {@link VaultResponse} using the Jackson streaming API. Only fields of
+ * {@link VaultResponse} are read: {@code data} and {@code metadata} are written
+ * directly into their property maps without building an intermediate tree, unknown
+ * sections (e.g. {@code warnings}, {@code wrap_info}) are skipped. Scalar values are
+ * read as text, nested objects and arrays within {@code data} are read as their JSON
+ * representation.
+ * <p>
+ * This converter only reads responses. Register it before the Jackson converter of a
+ * {@link org.springframework.web.client.RestTemplate}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultResponseHttpMessageConverter
+		extends AbstractHttpMessageConverter<VaultResponse> {
+
+	private final static TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+	};
+
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Creates a new {@link VaultResponseHttpMessageConverter}.
+	 */
+	public VaultResponseHttpMessageConverter() {
+		this(new ObjectMapper());
+	}
+
+	/**
+	 * Creates a new {@link VaultResponseHttpMessageConverter} using the given
+	 * {@link ObjectMapper} to create parsers and to read {@code auth}.
+	 *
+	 * @param objectMapper must not be {@literal null}.
+	 */
+	public VaultResponseHttpMessageConverter(ObjectMapper objectMapper) {
+
+		super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+
+		Assert.notNull(objectMapper, "ObjectMapper must not be null");
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return VaultResponse.class == clazz;
+	}
+
+	@Override
+	public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected VaultResponse readInternal(Class<? extends VaultResponse> clazz,
+			HttpInputMessage inputMessage) throws IOException {
+
+		try (JsonParser parser = this.objectMapper.getFactory()
+				.createParser(inputMessage.getBody())) {
+			return read(parser);
+		}
+		catch (JsonProcessingException e) {
+			throw new HttpMessageNotReadableException(
+					String.format("Cannot read VaultResponse: %s", e.getMessage()), e);
+		}
+	}
+
+	@Override
+	protected void writeInternal(VaultResponse vaultResponse,
+			HttpOutputMessage outputMessage) {
+		throw new UnsupportedOperationException("Writing VaultResponse is not supported");
+	}
+
+	/**
+	 * Read a {@link VaultResponse} from {@code parser}.
+	 *
+	 * @param parser must not be {@literal null}.
+	 * @return the {@link VaultResponse}.
+	 * @throws IOException if the input cannot be read or is not a JSON object.
+	 */
+	VaultResponse read(JsonParser parser) throws IOException {
+
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new JsonParseException("Expected a JSON object",
+					parser.getCurrentLocation());
+		}
+
+		VaultResponse response = new VaultResponse();
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+			String field = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+
+			switch (field) {
+			case "data":
+				response.setData(readProperties(parser, token));
+				break;
+			case "metadata":
+				response.setMetadata(readProperties(parser, token));
+				break;
+			case "auth":
+				response.setAuth(token == JsonToken.VALUE_NULL ? null
+						: parser.<Map<String, Object>> readValueAs(MAP_TYPE));
+				break;
+			case "lease_duration":
+				response.setLeaseDuration(parser.getValueAsLong());
+				break;
+			case "lease_id":
+				response.setLeaseId(parser.getValueAsString());
+				break;
+			case "renewable":
+				response.setRenewable(parser.getValueAsBoolean());
+				break;
+			default:
+				break;
+			}
+
+			// skip unknown sections and unexpected structures
+			parser.skipChildren();
+		}
+
+		return response;
+	}
+
+	private Map<String, String> readProperties(JsonParser parser, JsonToken token)
+			throws IOException {
+
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+
+		if (token != JsonToken.START_OBJECT) {
+			throw new JsonParseException(
+					String.format("Expected a JSON object for %s",
+							parser.getCurrentName()),
+					parser.getCurrentLocation());
+		}
+
+		Map<String, String> properties = new LinkedHashMap<>();
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+			String key = parser.getCurrentName();
+			properties.put(key, readValue(parser, parser.nextToken()));
+		}
+
+		return properties;
+	}
+
+	private String readValue(JsonParser parser, JsonToken token) throws IOException {
+
+		switch (token) {
+		case VALUE_NULL:
+			return null;
+		case START_OBJECT:
+		case START_ARRAY:
+
+			StringWriter writer = new StringWriter();
+			try (JsonGenerator generator = this.objectMapper.getFactory()
+					.createGenerator(writer)) {
+				generator.copyCurrentStructure(parser);
+			}
+			return writer.toString();
+		default:
+			return parser.getText();
+		}
+	}
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * JVM-wide registry of {@link Session}s keyed by Vault endpoint and authentication
+ * identity. Spring Cloud locates bootstrap properties again for each bootstrap context
+ * (e.g. on refresh or for child contexts). A {@link Session} retains state across these
+ * contexts: property sources located in background refresh mode until the context that
+ * located them is closed, the authentication along with its
+ * {@link TokenLifecycleManager} and {@link SecretLeaseContainer} if token or lease
+ * renewal is enabled and, if {@link VaultProperties.Sharing sharing} is enabled, the
+ * authentication, the HTTP connection pool and recently located properties.
+ * <p>
+ * Contexts {@link #acquire(VaultProperties, VaultClient) acquire} a session only if
+ * they use one of these features and {@link #release(Session, VaultClient) release} it
+ * once they are closed. The session is removed from the registry along with its
+ * connection pool and authentication, and stops renewing tokens and leases, when the
+ * last context releases it.
+ *
+ * @author Mark Paluch
+ */
+@CommonsLog
+final class VaultSessions {
+
+	private final static ConcurrentMap<String, Session> SESSIONS = new ConcurrentHashMap<>();
+
+	private VaultSessions() {
+	}
+
+	/**
+	 * Obtain the {@link Session} for the endpoint and authentication identity of
+	 * {@link VaultProperties} without acquiring it.
+	 *
+	 * @param vaultProperties must not be {@literal null}.
+	 * @return the {@link Session}.
+	 */
+	static Session get(VaultProperties vaultProperties) {
+
+		Assert.notNull(vaultProperties, "VaultProperties must not be null");
+
+		synchronized (SESSIONS) {
+
+			String key = getKey(vaultProperties);
+
+			Session session = SESSIONS.get(key);
+			if (session == null) {
+				session = new Session(key);
+				SESSIONS.put(key, session);
+			}
+
+			return session;
+		}
+	}
+
+	/**
+	 * Acquire the {@link Session} for the endpoint and authentication identity of
+	 * {@link VaultProperties} on behalf of the context using {@code vaultClient}.
+	 *
+	 * @param vaultProperties must not be {@literal null}.
+	 * @param vaultClient the {@link VaultClient} of the context, must not be
+	 * {@literal null}.
+	 * @return the {@link Session}.
+	 * @see #release(Session, VaultClient)
+	 */
+	static Session acquire(VaultProperties vaultProperties, VaultClient vaultClient) {
+
+		Assert.notNull(vaultClient, "VaultClient must not be null");
+
+		synchronized (SESSIONS) {
+
+			Session session = get(vaultProperties);
+			session.addClient(vaultClient);
+			return session;
+		}
+	}
+
+	/**
+	 * Release {@code session} on behalf of the context using {@code vaultClient}. The
+	 * session is removed and closed once the last context released it.
+	 *
+	 * @param session must not be {@literal null}.
+	 * @param vaultClient the {@link VaultClient} of the context, must not be
+	 * {@literal null}.
+	 */
+	static void release(Session session, VaultClient vaultClient) {
+
+		Assert.notNull(session, "Session must not be null");
+
+		synchronized (SESSIONS) {
+
+			if (session.removeClient(vaultClient)) {
+				SESSIONS.remove(session.key, session);
+				session.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of registered sessions.
+	 */
+	static int size() {
+		return SESSIONS.size();
+	}
+
+	/**
+	 * Remove all sessions.
+	 */
+	static void clear() {
+
+		synchronized (SESSIONS) {
+
+			for (Session session : SESSIONS.values()) {
+				session.close();
+			}
+			SESSIONS.clear();
+		}
+	}
+
+	/**
+	 * Create the session key from the Vault endpoint and the authentication identity.
+	 * Tokens are hashed so the registry does not retain them as key.
+	 */
+	static String getKey(VaultProperties vaultProperties) {
+
+		StringBuilder key = new StringBuilder();
+
+		if (vaultProperties.getCluster().getNodes().isEmpty()) {
+			key.append(String.format("%s://%s:%s", vaultProperties.getScheme(),
+					vaultProperties.getHost(), vaultProperties.getPort()));
+		}
+		else {
+			key.append(StringUtils.collectionToCommaDelimitedString(
+					vaultProperties.getCluster().getNodes()));
+		}
+
+		key.append('|').append(vaultProperties.getAuthentication());
+
+		switch (vaultProperties.getAuthentication()) {
+		case TOKEN:
+			if (StringUtils.hasText(vaultProperties.getToken())) {
+				key.append('|').append(Sha256.toSha256(vaultProperties.getToken()));
+			}
+			break;
+
+		case APPID:
+			VaultProperties.AppIdProperties appId = vaultProperties.getAppId();
+			key.append('|').append(appId.getAppIdPath()).append('|')
+					.append(vaultProperties.getApplicationName()).append('|')
+					.append(appId.getUserId()).append('|')
+					.append(appId.getNetworkInterface());
+			break;
+
+		default:
+			break;
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * State shared by application contexts using the same Vault endpoint and
+	 * authentication identity.
+	 */
+	static class Session {
+
+		private final String key;
+
+		private final ConcurrentMap<String, VaultPropertySource> propertySources = new ConcurrentHashMap<>();
+
+		private final ConcurrentMap<String, Located> located = new ConcurrentHashMap<>();
+
+		private final List<VaultClient> clients = new ArrayList<>();
+
+		private VaultAuthenticationManager authenticationManager;
+
+		private TokenLifecycleManager tokenLifecycleManager;
+
+		private SecretLeaseContainer secretLeaseContainer;
+
+		private ClientHttpRequestFactory clientHttpRequestFactory;
+
+		private ClientHttpRequestFactory pooledClientHttpRequestFactory;
+
+		Session(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * Look up a property source located in background refresh mode.
+		 *
+		 * @param key backend and context, must not be {@literal null}.
+		 * @return the property source or {@literal null} if not located before.
+		 */
+		VaultPropertySource getPropertySource(String key) {
+			return this.propertySources.get(key);
+		}
+
+		/**
+		 * Retain a property source located in background refresh mode for contexts
+		 * locating it later. The property source is discarded once the context whose
+		 * {@link VaultClient} it reads with releases the session.
+		 *
+		 * @param key backend and context, must not be {@literal null}.
+		 * @param propertySource must not be {@literal null}.
+		 */
+		void putPropertySource(String key, VaultPropertySource propertySource) {
+			this.propertySources.put(key, propertySource);
+		}
+
+		/**
+		 * Obtain the shared {@link VaultAuthenticationManager}. Logins use the
+		 * {@link VaultClient} of a context that did not release the session yet.
+		 *
+		 * @param vaultProperties must not be {@literal null}.
+		 * @return the shared {@link VaultAuthenticationManager}.
+		 * @throws IllegalStateException if no context acquired the session.
+		 */
+		synchronized VaultAuthenticationManager getAuthenticationManager(
+				VaultProperties vaultProperties) {
+
+			if (this.authenticationManager == null) {
+
+				Assert.state(!this.clients.isEmpty(), "Session was not acquired");
+				this.authenticationManager = new VaultAuthenticationManager(
+						this.clients.get(0), vaultProperties);
+			}
+
+			return this.authenticationManager;
+		}
+
+		/**
+		 * Obtain the {@link TokenLifecycleManager} renewing the token of the shared
+		 * {@link VaultAuthenticationManager}. Renewals continue until the last context
+		 * releases the session.
+		 *
+		 * @param vaultProperties must not be {@literal null}.
+		 * @return the {@link TokenLifecycleManager}.
+		 */
+		synchronized TokenLifecycleManager getTokenLifecycleManager(
+				VaultProperties vaultProperties) {
+
+			if (this.tokenLifecycleManager == null) {
+				this.tokenLifecycleManager = new TokenLifecycleManager(vaultProperties);
+			}
+
+			return this.tokenLifecycleManager;
+		}
+
+		/**
+		 * Obtain the {@link SecretLeaseContainer} renewing leased secrets of property
+		 * sources using this session. Renewals continue until the last context
+		 * releases the session.
+		 *
+		 * @param vaultProperties must not be {@literal null}.
+		 * @return the {@link SecretLeaseContainer}.
+		 */
+		synchronized SecretLeaseContainer getSecretLeaseContainer(
+				VaultProperties vaultProperties) {
+
+			if (this.secretLeaseContainer == null) {
+				this.secretLeaseContainer = new SecretLeaseContainer(vaultProperties);
+			}
+
+			return this.secretLeaseContainer;
+		}
+
+		private synchronized void addClient(VaultClient vaultClient) {
+			this.clients.add(vaultClient);
+		}
+
+		/**
+		 * Remove {@code vaultClient} along with the property sources reading with it.
+		 * Logins switch to the {@link VaultClient} of another context if
+		 * {@code vaultClient} was used to log in.
+		 *
+		 * @return {@literal true} if no other context uses this session.
+		 */
+		private synchronized boolean removeClient(VaultClient vaultClient) {
+
+			if (!this.clients.remove(vaultClient)) {
+				return false;
+			}
+
+			for (Iterator<VaultPropertySource> iterator = this.propertySources.values()
+					.iterator(); iterator.hasNext();) {
+				if (iterator.next().getSource() == vaultClient) {
+					iterator.remove();
+				}
+			}
+
+			if (this.clients.isEmpty()) {
+				return true;
+			}
+
+			if (this.authenticationManager != null
+					&& this.authenticationManager.getVaultClient() == vaultClient) {
+				this.authenticationManager.setVaultClient(this.clients.get(0));
+			}
+
+			return false;
+		}
+
+		/**
+		 * Stop token and lease renewal, close the shared connection pool and discard
+		 * the authentication and located properties.
+		 */
+		private synchronized void close() {
+
+			if (this.tokenLifecycleManager != null) {
+				this.tokenLifecycleManager.destroy();
+				this.tokenLifecycleManager = null;
+			}
+
+			if (this.secretLeaseContainer != null) {
+				this.secretLeaseContainer.destroy();
+				this.secretLeaseContainer = null;
+			}
+
+			this.authenticationManager = null;
+			this.located.clear();
+			this.propertySources.clear();
+			closeClientHttpRequestFactory();
+		}
+
+		private void closeClientHttpRequestFactory() {
+
+			ClientHttpRequestFactory requestFactory = this.pooledClientHttpRequestFactory;
+			this.clientHttpRequestFactory = null;
+			this.pooledClientHttpRequestFactory = null;
+
+			if (requestFactory instanceof DisposableBean) {
+				try {
+					((DisposableBean) requestFactory).destroy();
+				}
+				catch (Exception e) {
+					log.warn("Cannot close shared ClientHttpRequestFactory", e);
+				}
+			}
+		}
+
+		/**
+		 * Obtain the shared {@link ClientHttpRequestFactory}. The returned factory does
+		 * not expose lifecycle methods of the pooling factory, so closing a context does
+		 * not close the connection pool of other contexts. The pool is closed when the
+		 * last context releases the session.
+		 *
+		 * @param vaultProperties must not be {@literal null}.
+		 * @return the shared {@link ClientHttpRequestFactory}.
+		 */
+		synchronized ClientHttpRequestFactory getClientHttpRequestFactory(
+				VaultProperties vaultProperties) {
+
+			if (this.clientHttpRequestFactory == null) {
+				this.pooledClientHttpRequestFactory = ClientHttpRequestFactoryFactory
+						.create(vaultProperties);
+				this.clientHttpRequestFactory = new SharedClientHttpRequestFactory(
+						this.pooledClientHttpRequestFactory);
+			}
+
+			return this.clientHttpRequestFactory;
+		}
+
+		/**
+		 * Look up properties located for {@code fingerprint}.
+		 *
+		 * @param fingerprint must not be {@literal null}.
+		 * @param ttlMillis maximum age of located properties.
+		 * @return property source names mapped to their properties or {@literal null}
+		 * if not located within {@code ttlMillis}.
+		 */
+		Map<String, Map<String, String>> getLocated(String fingerprint, long ttlMillis) {
+
+			Located located = this.located.get(fingerprint);
+			if (located == null) {
+				return null;
+			}
+
+			if (currentTimeMillis() - located.timestamp >= ttlMillis) {
+				this.located.remove(fingerprint, located);
+				return null;
+			}
+
+			return located.contexts;
+		}
+
+		/**
+		 * Retain located properties for {@code fingerprint}.
+		 *
+		 * @param fingerprint must not be {@literal null}.
+		 * @param contexts property source names mapped to their properties, must not be
+		 * {@literal null}.
+		 */
+		void setLocated(String fingerprint, Map<String, Map<String, String>> contexts) {
+			this.located.put(fingerprint, new Located(currentTimeMillis(), contexts));
+		}
+
+		long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	}
+
+	private static class Located {
+
+		private final long timestamp;
+		private final Map<String, Map<String, String>> contexts;
+
+		Located(long timestamp, Map<String, Map<String, String>> contexts) {
+			this.timestamp = timestamp;
+			this.contexts = contexts;
+		}
+	}
+
+	/**
+	 * {@link ClientHttpRequestFactory} delegating to a shared factory.
+	 */
+	private static class SharedClientHttpRequestFactory
+			implements ClientHttpRequestFactory {
+
+		private final ClientHttpRequestFactory delegate;
+
+		SharedClientHttpRequestFactory(ClientHttpRequestFactory delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod)
+				throws IOException {
+			return this.delegate.createRequest(uri, httpMethod);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.vault;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto-configuration for {@link VaultPropertySourceWatcher}. Registered in the
+ * application context so {@link org.springframework.cloud.context.environment.EnvironmentChangeEvent}s
+ * reach the application. {@link VaultProperties} are obtained from the bootstrap
+ * context.
+ *
+ * @author Mark Paluch
+ */
+@Configuration
+@ConditionalOnBean(VaultProperties.class)
+@ConditionalOnProperty(prefix = "spring.cloud.vault.watch", name = "enabled", havingValue = "true")
+public class VaultWatchConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public VaultPropertySourceWatcher vaultPropertySourceWatcher(
+			VaultProperties vaultProperties) {
+		return new VaultPropertySourceWatcher(vaultProperties);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.cloud.vault.SecureBackendAccessors.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Unit tests for {@link ActuatorVaultMetrics}.
+ *
+ * @author Mark Paluch
+ */
+public class ActuatorVaultMetricsTests {
+
+	private ActuatorVaultMetrics metrics = new ActuatorVaultMetrics();
+
+	@Test
+	public void shouldRecordReads() {
+
+		metrics.recordRead(generic("secret", "my-app/cloud").variables(), 200,
+				TimeUnit.MILLISECONDS.toNanos(42), 100);
+		metrics.recordRead(generic("secret", "application").variables(), 200,
+				TimeUnit.MILLISECONDS.toNanos(10), -1);
+
+		Map<String, Number> values = values();
+
+		assertThat(values.get("timer.vault.read.secret.my-app_cloud").longValue())
+				.isEqualTo(42);
+		assertThat(values.get("timer.vault.read.secret.application").longValue())
+				.isEqualTo(10);
+		assertThat(values.get("counter.vault.read.requests").longValue()).isEqualTo(2);
+		assertThat(values.get("counter.vault.read.bytes").longValue()).isEqualTo(100);
+	}
+
+	@Test
+	public void shouldRecordErrorsByStatusCode() {
+
+		Map<String, String> variables = generic("secret", "app").variables();
+		metrics.recordReadFailure(variables, 503, 0);
+		metrics.recordReadFailure(variables, 503, 0);
+		metrics.recordReadFailure(variables, 0, 0);
+
+		Map<String, Number> values = values();
+
+		assertThat(values.get("counter.vault.read.errors.503").longValue()).isEqualTo(2);
+		assertThat(values.get("counter.vault.read.errors.io").longValue()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRecordLogin() {
+
+		metrics.recordLogin("app-id", TimeUnit.MILLISECONDS.toNanos(5), true);
+		metrics.recordLogin("app-id", TimeUnit.MILLISECONDS.toNanos(7), false);
+
+		Map<String, Number> values = values();
+
+		assertThat(values.get("timer.vault.login.app-id").longValue()).isEqualTo(7);
+		assertThat(values.get("counter.vault.login.errors").longValue()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRecordUserId() {
+
+		metrics.recordUserId(TimeUnit.MILLISECONDS.toNanos(3), true);
+		metrics.recordUserId(TimeUnit.MILLISECONDS.toNanos(4), false);
+
+		Map<String, Number> values = values();
+
+		assertThat(values.get("timer.vault.user-id").longValue()).isEqualTo(4);
+		assertThat(values.get("counter.vault.user-id.errors").longValue())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRecordCacheHitRatio() {
+
+		Map<String, String> variables = generic("secret", "app").variables();
+		metrics.recordCacheAccess(variables, false);
+		metrics.recordCacheAccess(variables, true);
+		metrics.recordCacheAccess(variables, true);
+		metrics.recordCacheAccess(variables, true);
+
+		Map<String, Number> values = values();
+
+		assertThat(values.get("counter.vault.cache.hits").longValue()).isEqualTo(3);
+		assertThat(values.get("counter.vault.cache.misses").longValue()).isEqualTo(1);
+		assertThat(values.get("gauge.vault.cache.hit-ratio").doubleValue())
+				.isEqualTo(0.75);
+	}
+
+	private Map<String, Number> values() {
+
+		Map<String, Number> values = new HashMap<>();
+		for (Metric<?> metric : metrics.metrics()) {
+			values.put(metric.getName(), metric.getValue());
+		}
+		return values;
+	}
+}
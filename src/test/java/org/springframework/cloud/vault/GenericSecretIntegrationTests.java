@@ -18,12 +18,18 @@ package org.springframework.cloud.vault;
 import static org.assertj.core.api.Assertions.*;
 import static org.springframework.cloud.vault.SecureBackendAccessors.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.cloud.vault.util.Settings;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.web.client.AsyncRestTemplate;
 
 /**
  * Integration tests for {@link VaultClient} using the generic secret backend.
@@ -61,6 +67,39 @@ public class GenericSecretIntegrationTests extends AbstractIntegrationTests {
 		assertThat(secretProperties).isEmpty();
 	}
 
+	@Test
+	public void shouldReturnSecretsAsynchronously() throws Exception {
+
+		AsyncClientHttpRequestFactory factory = ClientHttpRequestFactoryFactory
+				.createAsync(vaultProperties);
+		((InitializingBean) factory).afterPropertiesSet();
+		vaultClient.setAsyncRest(new AsyncRestTemplate(factory));
+
+		try {
+			Map<String, String> secretProperties = vaultClient
+					.readAsync(generic(vaultProperties, "app-name"), createToken())
+					.get();
+
+			assertThat(secretProperties).containsAllEntriesOf(createExpectedMap());
+		}
+		finally {
+			((DisposableBean) factory).destroy();
+		}
+	}
+
+	@Test
+	public void shouldReadAllSecretsInOrder() throws Exception {
+
+		List<Map<String, String>> secrets = vaultClient.readAll(
+				Arrays.asList(generic(vaultProperties, "missing"),
+						generic(vaultProperties, "app-name")),
+				createToken());
+
+		assertThat(secrets).hasSize(2);
+		assertThat(secrets.get(0)).isEmpty();
+		assertThat(secrets.get(1)).containsAllEntriesOf(createExpectedMap());
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void shouldFailOnFailFast() throws Exception {
 
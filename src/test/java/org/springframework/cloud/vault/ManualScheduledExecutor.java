@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor retaining scheduled tasks to run them on demand.
+ *
+ * @author Mark Paluch
+ */
+class ManualScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+	private final Map<ScheduledFuture<?>, Runnable> scheduled = new LinkedHashMap<>();
+	private Runnable task;
+	private long delay;
+
+	ManualScheduledExecutor() {
+		super(1);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+
+		this.task = command;
+		this.delay = unit.toMillis(delay);
+
+		ScheduledFuture<?> future = super.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		}, 1, TimeUnit.DAYS);
+		this.scheduled.put(future, command);
+
+		return future;
+	}
+
+	/**
+	 * @return {@literal true} if a task is scheduled.
+	 */
+	boolean hasScheduled() {
+		return this.task != null;
+	}
+
+	long getDelay() {
+		return this.delay;
+	}
+
+	/**
+	 * Run the last scheduled task.
+	 */
+	void runScheduled() {
+
+		Runnable task = this.task;
+		this.task = null;
+		this.scheduled.values().remove(task);
+		task.run();
+	}
+
+	/**
+	 * Run all scheduled tasks that were not cancelled in the order they were scheduled.
+	 * Tasks scheduled while running are retained.
+	 */
+	void runAllScheduled() {
+
+		Map<ScheduledFuture<?>, Runnable> entries = new LinkedHashMap<>(this.scheduled);
+		this.scheduled.clear();
+		this.task = null;
+
+		for (Map.Entry<ScheduledFuture<?>, Runnable> entry : entries.entrySet()) {
+			if (!entry.getKey().isCancelled()) {
+				entry.getValue().run();
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PrecomputedUserId} and {@link Sha256}.
+ *
+ * @author Mark Paluch
+ */
+public class PrecomputedUserIdTests {
+
+	private AtomicInteger computations = new AtomicInteger();
+	private AtomicInteger recorded = new AtomicInteger();
+	private volatile boolean failing;
+	private volatile String computingThread;
+
+	private AppIdUserIdMechanism mechanism = new AppIdUserIdMechanism() {
+
+		@Override
+		public String createUserId() {
+
+			computingThread = Thread.currentThread().getName();
+			computations.incrementAndGet();
+
+			if (failing) {
+				throw new IllegalStateException("No network interface");
+			}
+
+			return "user-id";
+		}
+	};
+
+	private ActuatorVaultMetrics metrics = new ActuatorVaultMetrics() {
+
+		@Override
+		public void recordUserId(long durationNanos, boolean success) {
+			recorded.incrementAndGet();
+		}
+	};
+
+	@Test
+	public void shouldComputeUserIdInBackground() throws Exception {
+
+		final CountDownLatch computed = new CountDownLatch(1);
+		PrecomputedUserId userId = new PrecomputedUserId(new AppIdUserIdMechanism() {
+
+			@Override
+			public String createUserId() {
+
+				String result = mechanism.createUserId();
+				computed.countDown();
+				return result;
+			}
+		}, metrics).start();
+
+		assertThat(computed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(userId.createUserId()).isEqualTo("user-id");
+		assertThat(userId.createUserId()).isEqualTo("user-id");
+		assertThat(computations.get()).isEqualTo(1);
+		assertThat(recorded.get()).isEqualTo(1);
+		assertThat(computingThread).startsWith("vault-userid-");
+	}
+
+	@Test
+	public void shouldComputeUserIdInCallingThreadIfNotStarted() {
+
+		PrecomputedUserId userId = new PrecomputedUserId(mechanism, metrics);
+
+		assertThat(userId.createUserId()).isEqualTo("user-id");
+		assertThat(computingThread).isEqualTo(Thread.currentThread().getName());
+	}
+
+	@Test
+	public void shouldRetryFailedComputation() {
+
+		PrecomputedUserId userId = new PrecomputedUserId(mechanism, metrics);
+		failing = true;
+
+		try {
+			userId.createUserId();
+			fail("Missing IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			assertThat(e).hasMessage("No network interface");
+		}
+
+		failing = false;
+
+		assertThat(userId.createUserId()).isEqualTo("user-id");
+		assertThat(computations.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldCreateSha256() {
+
+		assertThat(Sha256.toSha256("192.168.99.1")).isEqualTo(
+				"357f24d38387cffe873d75e444736dbbae6d99facb7b6745a2fd2eaa799d4332");
+		assertThat(Sha256.toSha256("abc")).isEqualTo(
+				"ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+	}
+
+	@Test
+	public void shouldHexEncode() {
+
+		assertThat(Sha256.toHex(new byte[] { 0x01, (byte) 0xAB, (byte) 0xFF },
+				"0123456789ABCDEF".toCharArray())).isEqualTo("01ABFF");
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PropertyMap}.
+ *
+ * @author Mark Paluch
+ */
+public class PropertyMapTests {
+
+	@Test
+	public void shouldRetainOrder() {
+
+		Map<String, String> source = new LinkedHashMap<>();
+		source.put("c", "3");
+		source.put("a", "1");
+		source.put("b", "2");
+
+		PropertyMap propertyMap = PropertyMap.of(source);
+
+		assertThat(propertyMap.getNames()).containsExactly("c", "a", "b");
+		assertThat(propertyMap.keySet()).containsExactly("c", "a", "b");
+		assertThat(propertyMap.values()).containsExactly("3", "1", "2");
+		assertThat(propertyMap).isEqualTo(source);
+		assertThat(propertyMap.hashCode()).isEqualTo(source.hashCode());
+	}
+
+	@Test
+	public void shouldNotExposeLookupNames() {
+
+		PropertyMap propertyMap = PropertyMap.of(Collections.singletonMap("key",
+				"value"));
+
+		propertyMap.getNames()[0] = "other";
+
+		assertThat(propertyMap.get("key")).isEqualTo("value");
+		assertThat(propertyMap.containsKey("other")).isFalse();
+		assertThat(propertyMap.keySet()).containsExactly("key");
+	}
+
+	@Test
+	public void shouldLookUpCollidingNames() {
+
+		// "Aa" and "BB" share the same hash code
+		Map<String, String> source = new LinkedHashMap<>();
+		source.put("Aa", "first");
+		source.put("BB", "second");
+		source.put("AaBB", "third");
+		source.put("BBAa", "fourth");
+
+		PropertyMap propertyMap = PropertyMap.of(source);
+
+		assertThat(propertyMap.get("Aa")).isEqualTo("first");
+		assertThat(propertyMap.get("BB")).isEqualTo("second");
+		assertThat(propertyMap.get("AaBB")).isEqualTo("third");
+		assertThat(propertyMap.get("BBAa")).isEqualTo("fourth");
+		assertThat(propertyMap.get("AaAa")).isNull();
+	}
+
+	@Test
+	public void shouldLookUpManyProperties() {
+
+		Map<String, String> source = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			source.put("key." + i, "value." + i);
+		}
+
+		PropertyMap propertyMap = PropertyMap.of(source);
+
+		assertThat(propertyMap).hasSize(1000);
+		for (int i = 0; i < 1000; i++) {
+			assertThat(propertyMap.get("key." + i)).isEqualTo("value." + i);
+		}
+		assertThat(propertyMap.containsKey("key.1000")).isFalse();
+	}
+
+	@Test
+	public void shouldSupportNullValues() {
+
+		PropertyMap propertyMap = PropertyMap
+				.of(Collections.<String, String> singletonMap("key", null));
+
+		assertThat(propertyMap.containsKey("key")).isTrue();
+		assertThat(propertyMap.get("key")).isNull();
+		assertThat(propertyMap.containsKey(null)).isFalse();
+		assertThat(propertyMap.get(1)).isNull();
+	}
+
+	@Test
+	public void shouldReuseInstances() {
+
+		PropertyMap propertyMap = PropertyMap
+				.of(Collections.singletonMap("key", "value"));
+
+		assertThat(PropertyMap.of(propertyMap)).isSameAs(propertyMap);
+		assertThat(PropertyMap.of(Collections.<String, String> emptyMap()))
+				.isSameAs(PropertyMap.empty());
+		assertThat(PropertyMap.empty().getNames()).isEmpty();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldBeImmutable() {
+		PropertyMap.of(Collections.singletonMap("key", "value")).put("key", "other");
+	}
+}
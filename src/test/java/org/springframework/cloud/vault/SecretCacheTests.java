@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.cloud.vault.SecureBackendAccessors.*;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SecretCache}.
+ *
+ * @author Mark Paluch
+ */
+public class SecretCacheTests {
+
+	private Map<String, String> data = Collections.singletonMap("key", "value");
+	private long now = 0;
+
+	private SecretCache cache = new SecretCache(60, 2) {
+		@Override
+		long currentTimeMillis() {
+			return now;
+		}
+	};
+
+	@Test
+	public void shouldCacheSecretForLeaseDuration() {
+
+		cache.put(generic("secret", "app"), data, lease(10));
+
+		now = 9999;
+		assertThat(cache.get(generic("secret", "app")).getData()).isEqualTo(data);
+
+		now = 10000;
+		assertThat(cache.get(generic("secret", "app"))).isNull();
+	}
+
+	@Test
+	public void shouldCapLeaseDurationAtMaxTtl() {
+
+		cache.put(generic("secret", "app"), data, lease(2592000));
+
+		now = 60000;
+		assertThat(cache.get(generic("secret", "app"))).isNull();
+	}
+
+	@Test
+	public void shouldNotCacheSecretsWithoutLease() {
+
+		cache.put(generic("secret", "app"), data, lease(0));
+
+		assertThat(cache.get(generic("secret", "app"))).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedSecret() {
+
+		cache.put(generic("secret", "first"), data, lease(10));
+		cache.put(generic("secret", "second"), data, lease(10));
+		cache.get(generic("secret", "first"));
+		cache.put(generic("secret", "third"), data, lease(10));
+
+		assertThat(cache.get(generic("secret", "first")).getData()).isEqualTo(data);
+		assertThat(cache.get(generic("secret", "second"))).isNull();
+		assertThat(cache.get(generic("secret", "third")).getData()).isEqualTo(data);
+	}
+
+	@Test
+	public void shouldRetainLease() {
+
+		Lease lease = Lease.of("mysql/creds/readonly/1234", 10, true);
+		cache.put(generic("mysql", "creds/readonly"), data, lease);
+
+		assertThat(cache.get(generic("mysql", "creds/readonly")).getLease())
+				.isEqualTo(lease);
+	}
+
+	@Test
+	public void shouldEvictSecret() {
+
+		cache.put(generic("secret", "app"), data, lease(10));
+		cache.evict(generic("secret", "app"));
+
+		assertThat(cache.get(generic("secret", "app"))).isNull();
+	}
+
+	private static Lease lease(long leaseDuration) {
+		return Lease.of(null, leaseDuration, false);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.cloud.vault.SecureBackendAccessors.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SecretChangeTracker}.
+ *
+ * @author Mark Paluch
+ */
+public class SecretChangeTrackerTests {
+
+	private SecretChangeTracker tracker = new SecretChangeTracker();
+
+	@Test
+	public void shouldReturnSameInstanceForUnchangedSecret() {
+
+		Map<String, String> first = tracker.transform(generic("secret", "app"),
+				data("key", "value"));
+		Map<String, String> second = tracker.transform(generic("secret", "app"),
+				data("key", "value"));
+
+		assertThat(second).isSameAs(first).containsEntry("key", "value");
+	}
+
+	@Test
+	public void shouldDetectChangedSecret() {
+
+		Map<String, String> first = tracker.transform(generic("secret", "app"),
+				data("key", "value"));
+		Map<String, String> second = tracker.transform(generic("secret", "app"),
+				data("key", "changed"));
+
+		assertThat(second).isNotSameAs(first).containsEntry("key", "changed");
+	}
+
+	@Test
+	public void shouldNotConfuseAdjacentKeysAndValues() {
+
+		Map<String, String> first = tracker.transform(generic("secret", "app"),
+				data("ab", "c"));
+		Map<String, String> second = tracker.transform(generic("secret", "app"),
+				data("a", "bc"));
+
+		assertThat(second).isNotSameAs(first).containsEntry("a", "bc");
+	}
+
+	@Test
+	public void shouldTrackSecretsPerPath() {
+
+		Map<String, String> first = tracker.transform(generic("secret", "app"),
+				data("key", "value"));
+		Map<String, String> second = tracker.transform(generic("secret", "other"),
+				data("key", "value"));
+
+		assertThat(second).isNotSameAs(first);
+	}
+
+	private static Map<String, String> data(String key, String value) {
+
+		Map<String, String> data = new HashMap<>();
+		data.put(key, value);
+		return data;
+	}
+}
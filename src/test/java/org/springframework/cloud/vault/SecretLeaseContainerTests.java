@@ -0,0 +1,358 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SecretLeaseContainer}.
+ *
+ * @author Mark Paluch
+ */
+public class SecretLeaseContainerTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+
+	private Queue<Object> readResults = new LinkedList<>();
+	private Queue<Object> renewResults = new LinkedList<>();
+	private int reads;
+	private List<String> renewedLeaseIds = new ArrayList<>();
+	private List<String> revokedLeaseIds = new ArrayList<>();
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		LeasedSecret readWithLease(SecureBackendAccessor secureBackendAccessor,
+				VaultAuthenticationManager authenticationManager) {
+
+			reads++;
+			return next(readResults, LeasedSecret.class);
+		}
+
+		@Override
+		public Lease renewLease(Lease lease, VaultToken vaultToken) {
+
+			renewedLeaseIds.add(lease.getLeaseId());
+			return next(renewResults, Lease.class);
+		}
+
+		@Override
+		public void revokeLease(Lease lease, VaultToken vaultToken) {
+			revokedLeaseIds.add(lease.getLeaseId());
+		}
+
+		@Override
+		public void evict(SecureBackendAccessor secureBackendAccessor) {
+		}
+	};
+
+	private ManualScheduledExecutor executor = new ManualScheduledExecutor();
+	private SecretLeaseContainer container = new SecretLeaseContainer(vaultProperties,
+			executor);
+
+	private SecureBackendAccessor accessor;
+	private VaultAuthenticationManager authenticationManager;
+
+	private List<SecretRotatedEvent> secretEvents = new ArrayList<>();
+	private List<SecretRotatedEvent> containerEvents = new ArrayList<>();
+
+	@Before
+	public void before() {
+
+		vaultProperties.setToken("token");
+		vaultProperties.getMysql().setEnabled(true);
+		vaultProperties.getMysql().setRole("readonly");
+
+		accessor = SecureBackendAccessors.database(vaultProperties.getMysql());
+		authenticationManager = new VaultAuthenticationManager(vaultClient,
+				vaultProperties);
+
+		container.addListener(new SecretLeaseListener() {
+
+			@Override
+			public void onSecretRotated(SecretRotatedEvent event) {
+				containerEvents.add(event);
+			}
+		});
+	}
+
+	@After
+	public void after() {
+		container.destroy();
+	}
+
+	@Test
+	public void shouldRenewLeaseBeforeExpiry() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		assertThat(executor.getDelay()).isBetween(
+				TimeUnit.SECONDS.toMillis(3540) * 9 / 10,
+				TimeUnit.SECONDS.toMillis(3540));
+
+		renewResults.add(Lease.of("lease-1", 3600, true));
+		executor.runScheduled();
+
+		assertThat(renewedLeaseIds).hasSize(1);
+		assertThat(reads).isEqualTo(1);
+		assertThat(executor.getDelay()).isGreaterThan(TimeUnit.SECONDS.toMillis(3000));
+		assertThat(secretEvents).isEmpty();
+	}
+
+	@Test
+	public void shouldRotateSecretAtMaxTtl() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		renewResults.add(Lease.of("lease-1", 30, true));
+		readResults.add(secret("user-2", Lease.of("lease-2", 3600, true)));
+		executor.runScheduled();
+
+		assertThat(reads).isEqualTo(2);
+		assertThat(secretEvents).hasSize(1);
+		assertThat(secretEvents.get(0).getProperties()).containsEntry(
+				"spring.datasource.username", "user-2");
+		assertThat(secretEvents.get(0).getLease()).isEqualTo(
+				Lease.of("lease-2", 3600, true));
+		assertThat(containerEvents).isEqualTo(secretEvents);
+	}
+
+	@Test
+	public void shouldRotateSecretIfRenewalFails() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		renewResults.add(new IllegalStateException("lease not found"));
+		readResults.add(secret("user-2", Lease.of("lease-2", 3600, true)));
+		executor.runScheduled();
+
+		assertThat(reads).isEqualTo(2);
+		assertThat(secretEvents).hasSize(1);
+		assertThat(containerEvents).hasSize(1);
+	}
+
+	@Test
+	public void shouldRenewShortLeasesWithoutRotating() {
+
+		read(secret("user-1", Lease.of("lease-1", 30, true)));
+
+		assertThat(executor.getDelay()).isBetween(TimeUnit.SECONDS.toMillis(15) * 9 / 10,
+				TimeUnit.SECONDS.toMillis(15));
+
+		renewResults.add(Lease.of("lease-1", 30, true));
+		executor.runScheduled();
+
+		assertThat(renewedLeaseIds).hasSize(1);
+		assertThat(reads).isEqualTo(1);
+		assertThat(secretEvents).isEmpty();
+		assertThat(executor.getDelay()).isGreaterThanOrEqualTo(1000);
+	}
+
+	@Test
+	public void shouldNotScheduleBelowMinimumDelay() {
+
+		read(secret("user-1", Lease.of("lease-1", 1, true)));
+
+		assertThat(executor.getDelay()).isEqualTo(1000);
+	}
+
+	@Test
+	public void shouldAcceptNonRenewableRotatedSecret() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		renewResults.add(Lease.of("lease-1", 10, false));
+		readResults.add(secret("user-2", Lease.of("lease-2", 600, false)));
+		executor.runScheduled();
+
+		assertThat(reads).isEqualTo(2);
+		assertThat(secretEvents).hasSize(1);
+		assertThat(secretEvents.get(0).getProperties()).containsEntry(
+				"spring.datasource.username", "user-2");
+		assertThat(executor.getDelay()).isBetween(TimeUnit.SECONDS.toMillis(540) * 9 / 10,
+				TimeUnit.SECONDS.toMillis(540));
+
+		readResults.add(secret("user-3", Lease.of("lease-3", 600, false)));
+		executor.runScheduled();
+
+		assertThat(reads).isEqualTo(3);
+		assertThat(renewedLeaseIds).hasSize(1);
+		assertThat(secretEvents).hasSize(2);
+	}
+
+	@Test
+	public void shouldRetryFailedRotation() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		renewResults.add(Lease.of("lease-1", 0, false));
+		readResults.add(new IllegalStateException("Vault sealed"));
+		executor.runScheduled();
+
+		assertThat(secretEvents).isEmpty();
+		assertThat(executor.getDelay()).isEqualTo(10000);
+
+		readResults.add(secret("user-2", Lease.of("lease-2", 3600, true)));
+		executor.runScheduled();
+
+		assertThat(secretEvents).hasSize(1);
+	}
+
+	@Test
+	public void shouldIsolateFailingListeners() {
+
+		container.addListener(new SecretLeaseListener() {
+
+			@Override
+			public void onSecretRotated(SecretRotatedEvent event) {
+				throw new IllegalStateException("listener failed");
+			}
+		});
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		renewResults.add(new IllegalStateException("lease not found"));
+		readResults.add(secret("user-2", Lease.of("lease-2", 3600, true)));
+		executor.runScheduled();
+
+		assertThat(secretEvents).hasSize(1);
+		assertThat(containerEvents).hasSize(1);
+	}
+
+	@Test
+	public void shouldRenewLeasesOfEachPropertySource() {
+
+		final List<SecretRotatedEvent> otherEvents = new ArrayList<>();
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		readResults.add(secret("user-2", Lease.of("lease-2", 3600, true)));
+		container.read(accessor, authenticationManager, "other",
+				new SecretLeaseListener() {
+
+					@Override
+					public void onSecretRotated(SecretRotatedEvent event) {
+						otherEvents.add(event);
+					}
+				});
+
+		renewResults.add(Lease.of("lease-1", 3600, true));
+		renewResults.add(Lease.of("lease-2", 30, true));
+		readResults.add(secret("user-3", Lease.of("lease-3", 3600, true)));
+		executor.runAllScheduled();
+
+		assertThat(renewedLeaseIds).containsExactly("lease-1", "lease-2");
+		assertThat(secretEvents).isEmpty();
+		assertThat(otherEvents).hasSize(1);
+		assertThat(otherEvents.get(0).getProperties()).containsEntry(
+				"spring.datasource.username", "user-3");
+		assertThat(containerEvents).isEqualTo(otherEvents);
+		assertThat(revokedLeaseIds).isEmpty();
+	}
+
+	@Test
+	public void shouldRevokeLeaseOfSupersededPropertySource() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		final List<SecretRotatedEvent> replacementEvents = new ArrayList<>();
+		readResults.add(secret("user-2", Lease.of("lease-2", 3600, true)));
+		container.read(accessor, authenticationManager, "my-app",
+				new SecretLeaseListener() {
+
+					@Override
+					public void onSecretRotated(SecretRotatedEvent event) {
+						replacementEvents.add(event);
+					}
+				});
+
+		assertThat(revokedLeaseIds).containsExactly("lease-1");
+		assertThat(container.size()).isEqualTo(1);
+
+		renewResults.add(Lease.of("lease-2", 30, true));
+		readResults.add(secret("user-3", Lease.of("lease-3", 3600, true)));
+		executor.runAllScheduled();
+
+		assertThat(renewedLeaseIds).containsExactly("lease-2");
+		assertThat(secretEvents).isEmpty();
+		assertThat(replacementEvents).hasSize(1);
+	}
+
+	@Test
+	public void shouldNotRevokeLeaseReadAgain() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		assertThat(revokedLeaseIds).isEmpty();
+		assertThat(container.size()).isEqualTo(1);
+
+		renewResults.add(Lease.of("lease-1", 3600, true));
+		executor.runAllScheduled();
+
+		assertThat(renewedLeaseIds).containsExactly("lease-1");
+	}
+
+	@Test
+	public void shouldStopRenewingOnDestroy() {
+
+		read(secret("user-1", Lease.of("lease-1", 3600, true)));
+
+		container.destroy();
+
+		assertThat(container.size()).isEqualTo(0);
+		assertThat(revokedLeaseIds).isEmpty();
+	}
+
+	private void read(LeasedSecret secret) {
+
+		readResults.add(secret);
+		container.read(accessor, authenticationManager, "my-app",
+				new SecretLeaseListener() {
+
+					@Override
+					public void onSecretRotated(SecretRotatedEvent event) {
+						secretEvents.add(event);
+					}
+				});
+	}
+
+	private static LeasedSecret secret(String username, Lease lease) {
+		return LeasedSecret.of(Collections.singletonMap("spring.datasource.username",
+				username), lease);
+	}
+
+	private static <T> T next(Queue<Object> results, Class<T> type) {
+
+		Object result = results.remove();
+		if (result instanceof RuntimeException) {
+			throw (RuntimeException) result;
+		}
+
+		return type.cast(result);
+	}
+}
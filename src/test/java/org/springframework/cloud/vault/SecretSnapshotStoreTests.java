@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link SecretSnapshotStore}.
+ *
+ * @author Mark Paluch
+ */
+public class SecretSnapshotStoreTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private VaultProperties.Snapshot snapshot = new VaultProperties.Snapshot();
+	private File location;
+	private long now = 0;
+
+	@Before
+	public void before() throws Exception {
+
+		location = new File(temporaryFolder.getRoot(), "snapshots/vault.snapshot");
+		snapshot.setLocation(location.getAbsolutePath());
+		snapshot.setKey("MDEyMzQ1Njc4OWFiY2RlZg==");
+		snapshot.setMaxStaleness(60);
+	}
+
+	@Test
+	public void shouldSaveAndLoadSnapshot() {
+
+		createStore().save(contexts());
+
+		assertThat(location).exists();
+		assertThat(createStore().load()).isEqualTo(contexts());
+	}
+
+	@Test
+	public void shouldRetainContextOrder() {
+
+		createStore().save(contexts());
+
+		assertThat(createStore().load().keySet()).containsExactly("my-app", "application");
+	}
+
+	@Test
+	public void shouldNotStorePlaintext() throws Exception {
+
+		createStore().save(contexts());
+
+		assertThat(new String(Files.readAllBytes(location.toPath()), "ISO-8859-1"))
+				.doesNotContain("secret-value");
+	}
+
+	@Test
+	public void shouldIgnoreStaleSnapshot() {
+
+		createStore().save(contexts());
+
+		now = 60001;
+		assertThat(createStore().load()).isNull();
+	}
+
+	@Test
+	public void shouldIgnoreSnapshotWithExpiredLeases() {
+
+		createStore().save(contexts(), 30000);
+
+		now = 29999;
+		assertThat(createStore().load()).isEqualTo(contexts());
+
+		now = 30000;
+		assertThat(createStore().load()).isNull();
+		assertThat(createStore().loadPropertyNames()).containsKeys("my-app",
+				"application");
+	}
+
+	@Test
+	public void shouldLoadPropertyNames() {
+
+		createStore().save(contexts());
+
+		assertThat(createStore().loadPropertyNames().keySet()).containsExactly(
+				"my-app", "application");
+		assertThat(createStore().loadPropertyNames().get("my-app")).isEqualTo(
+				contexts().get("my-app").keySet());
+	}
+
+	@Test
+	public void shouldIgnorePropertyNamesOfStaleSnapshot() {
+
+		createStore().save(contexts());
+
+		now = 60001;
+		assertThat(createStore().loadPropertyNames()).isNull();
+	}
+
+	@Test
+	public void shouldIgnoreMissingSnapshot() {
+		assertThat(createStore().load()).isNull();
+	}
+
+	@Test
+	public void shouldRejectSnapshotEncryptedWithDifferentKey() {
+
+		createStore().save(contexts());
+
+		snapshot.setKey("ZmVkY2JhOTg3NjU0MzIxMA==");
+		assertThat(createStore().load()).isNull();
+	}
+
+	@Test
+	public void shouldRejectTamperedSnapshot() throws Exception {
+
+		createStore().save(contexts());
+
+		byte[] bytes = Files.readAllBytes(location.toPath());
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(location.toPath(), bytes);
+
+		assertThat(createStore().load()).isNull();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvalidKeyLength() {
+
+		snapshot.setKey("c2hvcnQ=");
+		createStore();
+	}
+
+	private SecretSnapshotStore createStore() {
+
+		return new SecretSnapshotStore(snapshot) {
+			@Override
+			long currentTimeMillis() {
+				return now;
+			}
+		};
+	}
+
+	private static Map<String, Map<String, String>> contexts() {
+
+		Map<String, Map<String, String>> contexts = new LinkedHashMap<>();
+		contexts.put("my-app", Collections.singletonMap("key", "secret-value"));
+		contexts.put("application", Collections.<String, String> emptyMap());
+		return contexts;
+	}
+}
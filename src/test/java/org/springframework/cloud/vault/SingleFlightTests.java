@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ *
+ * @author Mark Paluch
+ */
+public class SingleFlightTests {
+
+	private SingleFlight<String, String> singleFlight = new SingleFlight<>();
+	private AtomicInteger executions = new AtomicInteger();
+	private ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldShareInFlightRequest() throws Exception {
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> leader = executor.submit(new Callable<String>() {
+
+			@Override
+			public String call() {
+				return singleFlight.execute("key",
+						new VaultRequestExecutor.Request<String>() {
+
+							@Override
+							public String execute() {
+
+								executions.incrementAndGet();
+								started.countDown();
+								await(release);
+								return "value";
+							}
+						});
+			}
+		});
+
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		ListenableFuture<String> follower = singleFlight.executeAsync("key",
+				new VaultRequestExecutor.AsyncRequest<String>() {
+
+					@Override
+					public ListenableFuture<String> execute() {
+						throw new UnsupportedOperationException();
+					}
+				});
+
+		release.countDown();
+
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		assertThat(executions.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldAwaitInFlightRequest() throws Exception {
+
+		final SettableListenableFuture<String> pending = new SettableListenableFuture<>();
+		ListenableFuture<String> leader = singleFlight.executeAsync("key", of(pending));
+
+		executor.submit(new Runnable() {
+
+			@Override
+			public void run() {
+
+				try {
+					Thread.sleep(100);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				pending.set("value");
+			}
+		});
+
+		assertThat(singleFlight.execute("key", counting("other"))).isEqualTo("value");
+		assertThat(leader.get()).isEqualTo("value");
+		assertThat(executions.get()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldExecuteAgainAfterCompletion() {
+
+		assertThat(singleFlight.execute("key", counting("first"))).isEqualTo("first");
+		assertThat(singleFlight.execute("key", counting("second"))).isEqualTo("second");
+		assertThat(executions.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldNotShareRequestsWithDifferentKeys() throws Exception {
+
+		SettableListenableFuture<String> pending = new SettableListenableFuture<>();
+
+		ListenableFuture<String> first = singleFlight.executeAsync("key", of(pending));
+		ListenableFuture<String> second = singleFlight.executeAsync("other",
+				of(completed("other")));
+
+		assertThat(second.get()).isEqualTo("other");
+		assertThat(first.isDone()).isFalse();
+
+		pending.set("value");
+		assertThat(first.get()).isEqualTo("value");
+	}
+
+	@Test
+	public void shouldPropagateFailureAndForgetFlight() throws Exception {
+
+		SettableListenableFuture<String> pending = new SettableListenableFuture<>();
+
+		ListenableFuture<String> leader = singleFlight.executeAsync("key", of(pending));
+		ListenableFuture<String> follower = singleFlight.executeAsync("key",
+				of(completed("unused")));
+
+		pending.setException(new IllegalStateException("sealed"));
+
+		for (ListenableFuture<String> future : Arrays.asList(leader, follower)) {
+			try {
+				future.get();
+				fail("Missing ExecutionException");
+			}
+			catch (ExecutionException e) {
+				assertThat(e.getCause()).hasMessage("sealed");
+			}
+		}
+
+		assertThat(singleFlight.execute("key", counting("value"))).isEqualTo("value");
+	}
+
+	private VaultRequestExecutor.Request<String> counting(final String value) {
+
+		return new VaultRequestExecutor.Request<String>() {
+
+			@Override
+			public String execute() {
+
+				executions.incrementAndGet();
+				return value;
+			}
+		};
+	}
+
+	private static VaultRequestExecutor.AsyncRequest<String> of(
+			final ListenableFuture<String> future) {
+
+		return new VaultRequestExecutor.AsyncRequest<String>() {
+
+			@Override
+			public ListenableFuture<String> execute() {
+				return future;
+			}
+		};
+	}
+
+	private static ListenableFuture<String> completed(String value) {
+
+		SettableListenableFuture<String> future = new SettableListenableFuture<>();
+		future.set(value);
+		return future;
+	}
+
+	private static void await(CountDownLatch latch) {
+
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.vault.VaultAuthenticationManager.VersionedToken;
+import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
+
+/**
+ * Unit tests for {@link TokenLifecycleManager}.
+ *
+ * @author Mark Paluch
+ */
+public class TokenLifecycleManagerTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+
+	private Queue<Object> logins = new LinkedList<>();
+	private Queue<Object> renewals = new LinkedList<>();
+	private Runnable onRenew;
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		public VaultToken createToken() {
+			return next(logins);
+		}
+
+		@Override
+		public VaultToken renewToken(VaultToken vaultToken) {
+
+			if (onRenew != null) {
+				onRenew.run();
+			}
+
+			return next(renewals);
+		}
+	};
+
+	private ManualScheduledExecutor executor = new ManualScheduledExecutor();
+	private TokenLifecycleManager lifecycleManager = new TokenLifecycleManager(
+			vaultProperties, executor);
+	private VaultAuthenticationManager authenticationManager;
+
+	@Before
+	public void before() {
+
+		vaultProperties.setAuthentication(AuthenticationMethod.APPID);
+		vaultProperties.setApplicationName("my-app");
+
+		authenticationManager = new VaultAuthenticationManager(vaultClient,
+				vaultProperties);
+	}
+
+	@After
+	public void after() {
+		lifecycleManager.destroy();
+	}
+
+	@Test
+	public void shouldScheduleRenewalAtFractionOfTtl() {
+
+		login(VaultToken.of("token-1", 100));
+
+		assertThat(executor.getDelay()).isEqualTo(70000);
+	}
+
+	@Test
+	public void shouldNotScheduleRenewalForTokenWithoutLease() {
+
+		login(VaultToken.of("token-1"));
+
+		assertThat(executor.hasScheduled()).isFalse();
+	}
+
+	@Test
+	public void shouldRenewToken() {
+
+		VersionedToken token = login(VaultToken.of("token-1", 100));
+
+		renewals.add(VaultToken.of("token-1", 100));
+		executor.runScheduled();
+
+		VersionedToken renewed = authenticationManager.getCurrentToken();
+		assertThat(renewed.getToken().getToken()).isEqualTo("token-1");
+		assertThat(renewed.getVersion()).isGreaterThan(token.getVersion());
+		assertThat(logins).isEmpty();
+		assertThat(executor.getDelay()).isEqualTo(70000);
+	}
+
+	@Test
+	public void shouldLoginIfRenewalFails() {
+
+		login(VaultToken.of("token-1", 100));
+
+		renewals.add(new IllegalStateException("permission denied"));
+		logins.add(VaultToken.of("token-2", 200));
+		executor.runScheduled();
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-2");
+		assertThat(executor.getDelay()).isEqualTo(140000);
+	}
+
+	@Test
+	public void shouldLoginIfRenewedTtlIsCappedByMaxTtl() {
+
+		login(VaultToken.of("token-1", 100));
+
+		renewals.add(VaultToken.of("token-1", 20));
+		logins.add(VaultToken.of("token-2", 100));
+		executor.runScheduled();
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-2");
+		assertThat(executor.getDelay()).isEqualTo(70000);
+	}
+
+	@Test
+	public void shouldLoginIfRenewedTtlIsZero() {
+
+		login(VaultToken.of("token-1", 100));
+
+		renewals.add(VaultToken.of("token-1", 0));
+		logins.add(VaultToken.of("token-2", 100));
+		executor.runScheduled();
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-2");
+		assertThat(executor.hasScheduled()).isTrue();
+	}
+
+	@Test
+	public void shouldRetryFailedLogin() {
+
+		login(VaultToken.of("token-1", 100));
+
+		renewals.add(new IllegalStateException("permission denied"));
+		logins.add(new IllegalStateException("Vault sealed"));
+		executor.runScheduled();
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-1");
+		assertThat(executor.getDelay()).isEqualTo(10000);
+
+		renewals.add(new IllegalStateException("permission denied"));
+		logins.add(VaultToken.of("token-2", 100));
+		executor.runScheduled();
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-2");
+		assertThat(executor.getDelay()).isEqualTo(70000);
+	}
+
+	@Test
+	public void shouldNotOverrideConcurrentlyObtainedToken() {
+
+		final VersionedToken token = login(VaultToken.of("token-1", 100));
+
+		logins.add(VaultToken.of("token-2", 100));
+		renewals.add(VaultToken.of("token-1", 100));
+		onRenew = new Runnable() {
+
+			@Override
+			public void run() {
+				authenticationManager.reauthenticate(token);
+			}
+		};
+		executor.runScheduled();
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-2");
+		assertThat(executor.hasScheduled()).isTrue();
+	}
+
+	@Test
+	public void shouldNotScheduleBelowMinimumDelay() {
+
+		login(VaultToken.of("token-1", 1));
+
+		assertThat(executor.getDelay()).isEqualTo(1000);
+	}
+
+	private VersionedToken login(VaultToken token) {
+
+		logins.add(token);
+		authenticationManager.getToken();
+		lifecycleManager.scheduleRenewal(authenticationManager);
+
+		return authenticationManager.getCurrentToken();
+	}
+
+	private static VaultToken next(Queue<Object> results) {
+
+		Object result = results.remove();
+		if (result instanceof RuntimeException) {
+			throw (RuntimeException) result;
+		}
+
+		return (VaultToken) result;
+	}
+}
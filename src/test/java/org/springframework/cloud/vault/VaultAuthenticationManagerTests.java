@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.vault.VaultAuthenticationManager.VersionedToken;
+import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
+
+/**
+ * Unit tests for {@link VaultAuthenticationManager}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultAuthenticationManagerTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private AtomicInteger logins = new AtomicInteger();
+	private CountDownLatch release = new CountDownLatch(0);
+	private volatile boolean failing;
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		public VaultToken createToken() {
+
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			if (failing) {
+				throw new IllegalStateException("Cannot login using app-id");
+			}
+
+			return VaultToken.of("token-" + logins.incrementAndGet(), 3600);
+		}
+	};
+
+	private VaultAuthenticationManager authenticationManager = new VaultAuthenticationManager(
+			vaultClient, vaultProperties);
+
+	private ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Before
+	public void before() {
+
+		vaultProperties.setAuthentication(AuthenticationMethod.APPID);
+		vaultProperties.setApplicationName("app");
+	}
+
+	@After
+	public void after() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldUseStaticToken() {
+
+		vaultProperties.setAuthentication(AuthenticationMethod.TOKEN);
+		vaultProperties.setToken("static");
+
+		assertThat(authenticationManager.getCurrentToken()).isNull();
+		assertThat(authenticationManager.getToken()).isEqualTo(VaultToken.of("static"));
+		assertThat(logins.get()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldLoginOnceForConcurrentCallers() throws Exception {
+
+		release = new CountDownLatch(1);
+
+		List<Future<VaultToken>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(new Callable<VaultToken>() {
+
+				@Override
+				public VaultToken call() {
+					return authenticationManager.getToken();
+				}
+			}));
+		}
+
+		Thread.sleep(100);
+		release.countDown();
+
+		for (Future<VaultToken> future : futures) {
+			assertThat(future.get(5, TimeUnit.SECONDS).getToken()).isEqualTo("token-1");
+		}
+		assertThat(logins.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRetryLoginAfterFailure() {
+
+		failing = true;
+
+		try {
+			authenticationManager.getToken();
+			fail("Missing IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			assertThat(e).hasMessageContaining("app-id");
+		}
+
+		failing = false;
+
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("token-1");
+	}
+
+	@Test
+	public void shouldSwapOnlyCurrentToken() {
+
+		authenticationManager.getToken();
+		VersionedToken initial = authenticationManager.getCurrentToken();
+
+		assertThat(authenticationManager.swap(initial, VaultToken.of("renewed", 3600)))
+				.isTrue();
+
+		VersionedToken renewed = authenticationManager.getCurrentToken();
+		assertThat(renewed.getToken().getToken()).isEqualTo("renewed");
+		assertThat(renewed.getVersion()).isGreaterThan(initial.getVersion());
+
+		assertThat(authenticationManager.swap(initial, VaultToken.of("stale", 3600)))
+				.isFalse();
+		assertThat(authenticationManager.getToken().getToken()).isEqualTo("renewed");
+	}
+
+	@Test
+	public void shouldReauthenticateOnlyIfTokenIsCurrent() {
+
+		authenticationManager.getToken();
+		VersionedToken initial = authenticationManager.getCurrentToken();
+
+		VersionedToken reauthenticated = authenticationManager.reauthenticate(initial);
+		assertThat(reauthenticated.getToken().getToken()).isEqualTo("token-2");
+
+		assertThat(authenticationManager.reauthenticate(initial))
+				.isSameAs(reauthenticated);
+		assertThat(logins.get()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Unit tests for {@link VaultConnectionWarmup}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultConnectionWarmupTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private AtomicInteger warmups = new AtomicInteger();
+	private Set<String> threads = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private volatile boolean failing;
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		void warmUp() {
+
+			threads.add(Thread.currentThread().getName());
+			warmups.incrementAndGet();
+
+			if (failing) {
+				throw new ResourceAccessException("Connection refused");
+			}
+		}
+	};
+
+	@Test
+	public void shouldEstablishConnectionsInBackground() throws Exception {
+
+		vaultProperties.getWarmup().setConnections(3);
+
+		VaultConnectionWarmup warmup = new VaultConnectionWarmup(vaultClient,
+				vaultProperties).start();
+
+		assertThat(warmup.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(warmups.get()).isEqualTo(3);
+		assertThat(threads).hasSize(3);
+		for (String thread : threads) {
+			assertThat(thread).startsWith("vault-warmup-");
+		}
+	}
+
+	@Test
+	public void shouldLimitConnectionsToMaxPerRoute() {
+
+		vaultProperties.getWarmup().setConnections(50);
+		vaultProperties.getHttp().setMaxPerRoute(4);
+
+		assertThat(new VaultConnectionWarmup(vaultClient, vaultProperties)
+				.getConnections()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldIgnoreFailures() throws Exception {
+
+		failing = true;
+
+		VaultConnectionWarmup warmup = new VaultConnectionWarmup(vaultClient,
+				vaultProperties).start();
+
+		assertThat(warmup.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(warmups.get()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.vault.VaultEndpoints.Endpoint;
+import org.springframework.cloud.vault.VaultEndpoints.Status;
+
+/**
+ * Unit tests for {@link VaultEndpoints}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultEndpointsTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private Map<String, Status> health = new HashMap<>();
+	private VaultEndpoints endpoints = new VaultEndpoints(vaultProperties,
+			new VaultEndpoints.HealthCheck() {
+
+				@Override
+				public Status check(String baseUrl) {
+
+					Status status = health.get(baseUrl);
+					if (status == null) {
+						throw new IllegalStateException("Connection refused");
+					}
+					return status;
+				}
+			});
+
+	@Before
+	public void before() {
+
+		vaultProperties.getCluster().setHealthCheckInterval(0);
+		vaultProperties.getCluster().setNodes(Arrays.asList("https://vault-1:8200/",
+				"https://vault-2:8200", "https://vault-3:8200"));
+	}
+
+	@Test
+	public void shouldUseSingleEndpointWithoutClusterNodes() {
+
+		vaultProperties.getCluster().setNodes(Collections.<String> emptyList());
+		vaultProperties.setHost("vault");
+		vaultProperties.setPort(1234);
+
+		assertThat(baseUrls(endpoints.select(true))).containsExactly("https://vault:1234");
+	}
+
+	@Test
+	public void shouldPreserveConfiguredOrderWithoutSamples() {
+
+		assertThat(baseUrls(endpoints.select(true))).containsExactly(
+				"https://vault-1:8200", "https://vault-2:8200", "https://vault-3:8200");
+	}
+
+	@Test
+	public void shouldPreferLowerLatency() {
+
+		List<Endpoint> all = endpoints.getEndpoints();
+		all.get(0).onSuccess(300);
+		all.get(1).onSuccess(100);
+		all.get(2).onSuccess(200);
+
+		assertThat(baseUrls(endpoints.select(true))).containsExactly(
+				"https://vault-2:8200", "https://vault-3:8200", "https://vault-1:8200");
+	}
+
+	@Test
+	public void shouldAverageLatency() {
+
+		Endpoint endpoint = endpoints.getEndpoints().get(0);
+		endpoint.onSuccess(1000);
+		endpoint.onSuccess(2000);
+
+		assertThat(endpoint.getLatency()).isEqualTo(1300, offset(0.001));
+	}
+
+	@Test
+	public void shouldMoveUnavailableEndpointsLast() {
+
+		List<Endpoint> all = endpoints.getEndpoints();
+		all.get(0).onSuccess(100);
+		all.get(0).onFailure();
+		all.get(1).onSuccess(300);
+
+		assertThat(baseUrls(endpoints.select(true))).containsExactly(
+				"https://vault-3:8200", "https://vault-2:8200", "https://vault-1:8200");
+
+		all.get(0).onSuccess(100);
+		assertThat(all.get(0).getStatus()).isEqualTo(Status.UNKNOWN);
+	}
+
+	@Test
+	public void shouldStopHealthChecksOnDestroy() throws Exception {
+
+		vaultProperties.getCluster().setHealthCheckInterval(50);
+
+		List<Thread> before = healthCheckThreads();
+		endpoints.select(true);
+
+		List<Thread> started = healthCheckThreads();
+		started.removeAll(before);
+		assertThat(started).hasSize(1);
+
+		endpoints.destroy();
+		started.get(0).join(5000);
+
+		assertThat(started.get(0).isAlive()).isFalse();
+	}
+
+	@Test
+	public void shouldApplyHealthChecks() {
+
+		health.put("https://vault-1:8200", Status.STANDBY);
+		health.put("https://vault-2:8200", Status.ACTIVE);
+
+		endpoints.checkHealth();
+
+		List<Endpoint> all = endpoints.getEndpoints();
+		assertThat(all.get(0).getStatus()).isEqualTo(Status.STANDBY);
+		assertThat(all.get(1).getStatus()).isEqualTo(Status.ACTIVE);
+		assertThat(all.get(2).getStatus()).isEqualTo(Status.UNAVAILABLE);
+		assertThat(all.get(0).getLatency()).isGreaterThan(0);
+	}
+
+	@Test
+	public void shouldReadFromStandbyOnlyIfEnabled() {
+
+		List<Endpoint> all = endpoints.getEndpoints();
+		all.get(0).onHealthCheck(Status.STANDBY, 100);
+		all.get(1).onHealthCheck(Status.ACTIVE, 200);
+		all.get(2).onHealthCheck(Status.ACTIVE, 300);
+
+		assertThat(baseUrls(endpoints.select(true))).containsExactly(
+				"https://vault-2:8200", "https://vault-3:8200", "https://vault-1:8200");
+
+		vaultProperties.getCluster().setStandbyReads(true);
+
+		assertThat(baseUrls(endpoints.select(true))).containsExactly(
+				"https://vault-1:8200", "https://vault-2:8200", "https://vault-3:8200");
+		assertThat(baseUrls(endpoints.select(false))).containsExactly(
+				"https://vault-2:8200", "https://vault-3:8200", "https://vault-1:8200");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectRelativeNodes() {
+
+		vaultProperties.getCluster().setNodes(Arrays.asList("vault-1"));
+		endpoints.select(true);
+	}
+
+	private static String[] baseUrls(List<Endpoint> endpoints) {
+
+		String[] result = new String[endpoints.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = endpoints.get(i).getBaseUrl();
+		}
+		return result;
+	}
+
+	private static List<Thread> healthCheckThreads() {
+
+		List<Thread> threads = new ArrayList<>();
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("vault-health-") && thread.isAlive()) {
+				threads.add(thread);
+			}
+		}
+		return threads;
+	}
+}
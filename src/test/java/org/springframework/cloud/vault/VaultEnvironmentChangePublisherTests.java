@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Unit tests for {@link VaultEnvironmentChangePublisher}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultEnvironmentChangePublisherTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private Map<String, String> secrets = new HashMap<>();
+	private List<Object> events = new ArrayList<>();
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		List<LeasedSecret> readAllWithLease(
+				List<SecureBackendAccessor> secureBackendAccessors,
+				VaultAuthenticationManager authenticationManager) {
+			return Collections.singletonList(LeasedSecret
+					.of(new HashMap<>(secrets), Lease.none()));
+		}
+	};
+
+	private StandardEnvironment environment = new StandardEnvironment();
+	private VaultPropertySource propertySource;
+	private VaultEnvironmentChangePublisher publisher;
+
+	@Before
+	public void before() {
+
+		vaultProperties.setToken("token");
+		secrets.put("key", "before");
+
+		propertySource = createPropertySource();
+
+		CompositePropertySource composite = new CompositePropertySource("vault");
+		composite.addPropertySource(propertySource);
+
+		CompositePropertySource bootstrap = new CompositePropertySource(
+				"bootstrapProperties");
+		bootstrap.addPropertySource(composite);
+		environment.getPropertySources().addFirst(bootstrap);
+
+		publisher = new VaultEnvironmentChangePublisher();
+		publisher.setEnvironment(environment);
+		publisher.setApplicationEventPublisher(new ApplicationEventPublisher() {
+
+			@Override
+			public void publishEvent(ApplicationEvent event) {
+				events.add(event);
+			}
+
+			@Override
+			public void publishEvent(Object event) {
+				events.add(event);
+			}
+		});
+		publisher.afterPropertiesSet();
+	}
+
+	@After
+	public void after() {
+		publisher.destroy();
+	}
+
+	@Test
+	public void shouldPublishChangedKeysOfNestedPropertySource() {
+
+		secrets.put("key", "after");
+		propertySource.refresh();
+
+		assertThat(events).hasSize(1);
+		assertThat(((EnvironmentChangeEvent) events.get(0)).getKeys())
+				.containsOnly("key");
+	}
+
+	@Test
+	public void shouldNotPublishIfNothingChanged() {
+
+		propertySource.refresh();
+
+		assertThat(events).isEmpty();
+	}
+
+	@Test
+	public void shouldFollowReplacedPropertySources() {
+
+		VaultPropertySource replacement = createPropertySource();
+
+		CompositePropertySource composite = new CompositePropertySource("vault");
+		composite.addPropertySource(replacement);
+		environment.getPropertySources().replace("bootstrapProperties", composite);
+
+		publisher.onApplicationEvent(
+				new EnvironmentChangeEvent(Collections.<String> emptySet()));
+
+		secrets.put("key", "after");
+		propertySource.refresh();
+
+		assertThat(events).isEmpty();
+
+		replacement.refresh();
+
+		assertThat(events).hasSize(1);
+	}
+
+	private VaultPropertySource createPropertySource() {
+
+		VaultPropertySource propertySource = new VaultPropertySource("my-app",
+				vaultClient, vaultProperties,
+				new VaultAuthenticationManager(vaultClient, vaultProperties));
+		propertySource.init();
+		return propertySource;
+	}
+}
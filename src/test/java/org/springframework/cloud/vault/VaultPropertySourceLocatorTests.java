@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
+import org.springframework.cloud.vault.util.PrepareVault;
+import org.springframework.cloud.vault.util.VaultServerStub;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Tests for concurrent property source location with {@link VaultPropertySourceLocator}
+ * against {@link VaultServerStub}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultPropertySourceLocatorTests {
+
+	private final static long LATENCY = 200;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private VaultServerStub stub = new VaultServerStub();
+	private VaultProperties vaultProperties = new VaultProperties();
+	private VaultClient vaultClient = new VaultClient(vaultProperties);
+	private PrepareVault prepareVault = new PrepareVault(new TestRestTemplate());
+	private StandardEnvironment environment = new StandardEnvironment();
+
+	private List<String> contexts;
+
+	@Before
+	public void setUp() throws Exception {
+
+		VaultSessions.clear();
+
+		stub.start();
+		stub.configure(vaultProperties);
+
+		vaultProperties.setAuthentication(AuthenticationMethod.APPID);
+		vaultProperties.setApplicationName("my-app");
+		vaultProperties.getAppId().setUserId("stub-user");
+		vaultProperties.getConcurrency().setEnabled(true);
+		vaultProperties.getConcurrency().setParallelism(6);
+
+		vaultClient.setRest(new RestTemplate());
+		vaultClient.setAppIdUserIdMechanism(new StaticUserId(vaultProperties));
+
+		prepareVault.setVaultProperties(vaultProperties);
+		prepareVault.setRootToken(prepareVault.initializeVault());
+		prepareVault.mapAppId("my-app");
+		prepareVault.mapUserId("my-app", "stub-user");
+
+		String separator = vaultProperties.getProfileSeparator();
+		contexts = new ArrayList<>();
+		for (String context : new String[] { "my-app", "application" }) {
+			contexts.add(context + separator + "dev");
+			contexts.add(context + separator + "cloud");
+			contexts.add(context);
+		}
+
+		for (String context : contexts) {
+			prepareVault.writeSecret(context,
+					Collections.singletonMap("context", context));
+		}
+
+		environment.setActiveProfiles("cloud", "dev");
+		environment.getPropertySources().addFirst(new MapPropertySource("app",
+				Collections.<String, Object> singletonMap("spring.application.name",
+						"my-app")));
+
+		stub.reset();
+		stub.setLatency(LATENCY, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+
+		vaultClient.destroy();
+		stub.stop();
+		VaultSessions.clear();
+	}
+
+	@Test
+	public void shouldLocateContextsConcurrentlyInOrder() {
+
+		long start = System.nanoTime();
+		CompositePropertySource composite = (CompositePropertySource) new VaultPropertySourceLocator(
+				vaultClient, vaultProperties).locate(environment);
+		long duration = System.nanoTime() - start;
+
+		List<String> names = new ArrayList<>();
+		for (PropertySource<?> propertySource : composite.getPropertySources()) {
+			names.add(propertySource.getName());
+			assertThat(propertySource.getProperty("context"))
+					.isEqualTo(propertySource.getName());
+		}
+
+		assertThat(names).isEqualTo(contexts);
+		assertThat(composite.getProperty("context")).isEqualTo(contexts.get(0));
+
+		// login followed by a single round of concurrent reads
+		assertThat(duration).isLessThan(
+				TimeUnit.MILLISECONDS.toNanos(LATENCY * contexts.size()));
+	}
+
+	@Test
+	public void shouldLoginOnceForConcurrentContexts() {
+
+		new VaultPropertySourceLocator(vaultClient, vaultProperties).locate(environment);
+
+		assertThat(stub.getRequestCount("auth/app-id/login")).isEqualTo(1);
+		for (String context : contexts) {
+			assertThat(stub.getRequestCount("secret/" + context)).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void shouldRethrowFirstFailureWithFailFast() {
+
+		vaultProperties.setFailFast(true);
+		stub.failNextRequests("secret/application", 1, 403);
+
+		try {
+			new VaultPropertySourceLocator(vaultClient, vaultProperties)
+					.locate(environment);
+			fail("Missing IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+
+			assertThat(e).hasMessageContaining("fail fast");
+			assertThat(e.getCause()).isInstanceOf(HttpClientErrorException.class);
+			assertThat(((HttpClientErrorException) e.getCause()).getStatusCode()
+					.value()).isEqualTo(403);
+		}
+
+		assertThat(stub.getRequestCount("auth/app-id/login")).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldNotRetainPropertiesIfContextCannotBeRead() {
+
+		vaultProperties.getSharing().setEnabled(true);
+		vaultProperties.getSharing().setLocatedTtl(60);
+		vaultProperties.getSnapshot().setLocation(
+				temporaryFolder.getRoot().getAbsolutePath() + "/vault.snapshot");
+		vaultProperties.getSnapshot().setKey("MDEyMzQ1Njc4OWFiY2RlZg==");
+
+		final List<Map<String, Map<String, String>>> saved = new ArrayList<>();
+		SecretSnapshotStore snapshotStore = new SecretSnapshotStore(
+				vaultProperties.getSnapshot()) {
+
+			@Override
+			public void save(Map<String, Map<String, String>> contexts,
+					long expiresAt) {
+				saved.add(contexts);
+			}
+		};
+
+		stub.failNextRequests("secret/application", 1, 403);
+
+		VaultPropertySourceLocator locator = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties);
+		locator.setSecretSnapshotStore(snapshotStore);
+		locator.locate(environment);
+
+		assertThat(saved).isEmpty();
+
+		locator = new VaultPropertySourceLocator(vaultClient, vaultProperties);
+		locator.setSecretSnapshotStore(snapshotStore);
+		locator.locate(environment);
+
+		assertThat(stub.getRequestCount("secret/my-app")).isEqualTo(2);
+		assertThat(saved).hasSize(1);
+	}
+
+	@Test
+	public void shouldDeferOnlyIndexedContextsInLazyMode() {
+
+		vaultProperties.getLazy().setEnabled(true);
+		vaultProperties.getSnapshot().setLocation(
+				temporaryFolder.getRoot().getAbsolutePath() + "/vault.snapshot");
+		vaultProperties.getSnapshot().setKey("MDEyMzQ1Njc4OWFiY2RlZg==");
+
+		SecretSnapshotStore snapshotStore = new SecretSnapshotStore(
+				vaultProperties.getSnapshot()) {
+
+			@Override
+			public Map<String, Set<String>> loadPropertyNames() {
+				return Collections.singletonMap("my-app",
+						Collections.singleton("context"));
+			}
+		};
+
+		VaultPropertySourceLocator locator = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties);
+		locator.setSecretSnapshotStore(snapshotStore);
+		CompositePropertySource composite = (CompositePropertySource) locator
+				.locate(environment);
+
+		for (String context : contexts) {
+			assertThat(stub.getRequestCount("secret/" + context))
+					.isEqualTo(context.equals("my-app") ? 0 : 1);
+		}
+
+		for (PropertySource<?> propertySource : composite.getPropertySources()) {
+			if (propertySource.getName().equals("my-app")) {
+				assertThat(propertySource.getProperty("context")).isEqualTo("my-app");
+			}
+		}
+
+		assertThat(stub.getRequestCount("secret/my-app")).isEqualTo(1);
+	}
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link VaultPropertySource}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultPropertySourceTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private Map<String, String> secrets = new HashMap<>();
+	private List<Set<String>> notifications = new ArrayList<>();
+	private SecretChangeTracker tracker;
+	private boolean failing;
+	private int reads;
+	private int credentials;
+	private Lease databaseLease = Lease.none();
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		List<LeasedSecret> readAllWithLease(
+				List<SecureBackendAccessor> secureBackendAccessors,
+				VaultAuthenticationManager authenticationManager) {
+
+			reads++;
+
+			if (failing) {
+				return Collections.singletonList(
+						LeasedSecret.failed(Collections.<String, String> emptyMap()));
+			}
+
+			Map<String, String> data = tracker != null
+					? tracker.transform(secureBackendAccessors.get(0), secrets)
+					: new HashMap<>(secrets);
+
+			List<LeasedSecret> result = new ArrayList<>();
+			result.add(LeasedSecret.of(data, Lease.none()));
+
+			// each read of a database backend issues new credentials
+			for (int i = 1; i < secureBackendAccessors.size(); i++) {
+				result.add(LeasedSecret.of(Collections.singletonMap(
+						"spring.datasource.username", "user-" + ++credentials),
+						databaseLease));
+			}
+
+			return result;
+		}
+
+		@Override
+		LeasedSecret readWithLease(SecureBackendAccessor secureBackendAccessor,
+				VaultAuthenticationManager authenticationManager) {
+			return LeasedSecret.of(Collections.singletonMap("spring.datasource.username",
+					"user-" + ++credentials), databaseLease);
+		}
+
+		@Override
+		public Lease renewLease(Lease lease, VaultToken vaultToken) {
+			return Lease.of(lease.getLeaseId(), 0, false);
+		}
+
+		@Override
+		public void evict(SecureBackendAccessor secureBackendAccessor) {
+		}
+	};
+
+	private VaultPropertySource propertySource;
+
+	@Before
+	public void before() {
+
+		vaultProperties.setToken("token");
+		propertySource = new VaultPropertySource("my-app", vaultClient,
+				vaultProperties,
+				new VaultAuthenticationManager(vaultClient, vaultProperties));
+		propertySource.addListener(new VaultPropertySourceListener() {
+
+			@Override
+			public void onPropertiesChanged(VaultPropertySource propertySource,
+					Set<String> changedKeys) {
+				notifications.add(changedKeys);
+			}
+		});
+
+		secrets.put("unchanged", "value");
+		secrets.put("changed", "before");
+		secrets.put("removed", "value");
+		propertySource.init();
+	}
+
+	@Test
+	public void shouldServeCurrentPropertiesUntilRefreshed() {
+
+		secrets.put("changed", "after");
+
+		assertThat(propertySource.getProperty("changed")).isEqualTo("before");
+
+		propertySource.refresh();
+
+		assertThat(propertySource.getProperty("changed")).isEqualTo("after");
+	}
+
+	@Test
+	public void shouldReportChangedKeys() {
+
+		secrets.put("changed", "after");
+		secrets.remove("removed");
+		secrets.put("added", "value");
+
+		Set<String> changedKeys = propertySource.refresh();
+
+		assertThat(changedKeys).containsOnly("changed", "removed", "added");
+		assertThat(notifications).containsExactly(changedKeys);
+		assertThat(propertySource.getPropertyNames()).containsOnly("unchanged",
+				"changed", "added");
+	}
+
+	@Test
+	public void shouldCachePropertyNamesUntilPropertiesChange() {
+
+		String[] names = propertySource.getPropertyNames();
+
+		assertThat(propertySource.getPropertyNames()).isSameAs(names);
+		assertThat(propertySource.containsProperty("unchanged")).isTrue();
+		assertThat(propertySource.containsProperty("absent")).isFalse();
+
+		secrets.put("added", "value");
+		propertySource.refresh();
+
+		assertThat(propertySource.getPropertyNames()).isNotSameAs(names)
+				.contains("added");
+		assertThat(propertySource.containsProperty("added")).isTrue();
+	}
+
+	@Test
+	public void shouldNotNotifyIfNothingChanged() {
+
+		assertThat(propertySource.refresh()).isEmpty();
+		assertThat(notifications).isEmpty();
+	}
+
+	@Test
+	public void shouldRetainPropertiesOfUnchangedSecrets() {
+
+		tracker = new SecretChangeTracker();
+		propertySource.init();
+		Map<String, String> properties = propertySource.getProperties();
+
+		assertThat(propertySource.refresh()).isEmpty();
+		assertThat(propertySource.getProperties()).isSameAs(properties);
+	}
+
+	@Test
+	public void shouldKeepPropertiesIfSecretsCannotBeRead() {
+
+		failing = true;
+
+		try {
+			propertySource.refresh();
+			fail("Missing IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			assertThat(propertySource.getProperty("changed")).isEqualTo("before");
+			assertThat(notifications).isEmpty();
+		}
+	}
+
+	@Test
+	public void shouldKeepRestoredPropertiesIfRevalidationFails() {
+
+		VaultPropertySource restored = createRestored();
+		failing = true;
+
+		assertThat(restored.revalidate()).isFalse();
+		assertThat(restored.getProperty("changed")).isEqualTo("snapshot");
+		assertThat(notifications).isEmpty();
+	}
+
+	@Test
+	public void shouldNotifyAboutRevalidatedProperties() {
+
+		VaultPropertySource restored = createRestored();
+
+		assertThat(restored.revalidate()).isTrue();
+		assertThat(restored.getProperty("changed")).isEqualTo("before");
+		assertThat(notifications).containsExactly(
+				new HashSet<>(Arrays.asList("changed", "unchanged", "removed")));
+	}
+
+	@Test
+	public void shouldReportFirstLeaseExpiry() {
+
+		assertThat(propertySource.getLeaseExpiry()).isEqualTo(Long.MAX_VALUE);
+
+		vaultProperties.getMysql().setEnabled(true);
+		vaultProperties.getMysql().setRole("readonly");
+		databaseLease = Lease.of("lease", 60, true);
+
+		long before = System.currentTimeMillis();
+		propertySource.init();
+
+		assertThat(propertySource.getLeaseExpiry()).isBetween(before + 60000,
+				System.currentTimeMillis() + 60000);
+	}
+
+	private VaultPropertySource createRestored() {
+
+		VaultPropertySource restored = new VaultPropertySource("my-app", vaultClient,
+				vaultProperties,
+				new VaultAuthenticationManager(vaultClient, vaultProperties));
+		restored.restore(Collections.singletonMap("changed", "snapshot"));
+		restored.addListener(new VaultPropertySourceListener() {
+
+			@Override
+			public void onPropertiesChanged(VaultPropertySource propertySource,
+					Set<String> changedKeys) {
+				notifications.add(changedKeys);
+			}
+		});
+
+		return restored;
+	}
+
+	@Test
+	public void shouldFetchPendingPropertiesOnFirstAccess() {
+
+		final List<String> callbacks = new ArrayList<>();
+		VaultPropertySource lazy = createLazy(null, callbacks);
+
+		assertThat(reads).isEqualTo(1);
+		assertThat(lazy.isPending()).isTrue();
+
+		assertThat(lazy.getProperty("changed")).isEqualTo("before");
+		assertThat(lazy.getProperty("unchanged")).isEqualTo("value");
+
+		assertThat(reads).isEqualTo(2);
+		assertThat(lazy.isPending()).isFalse();
+		assertThat(callbacks).containsExactly("initialized");
+		assertThat(notifications).isEmpty();
+	}
+
+	@Test
+	public void shouldNotFetchPendingPropertiesForUnknownNames() {
+
+		VaultPropertySource lazy = createLazy(Collections.singleton("changed"),
+				new ArrayList<String>());
+
+		assertThat(lazy.getProperty("server.port")).isNull();
+		assertThat(lazy.containsProperty("server.port")).isFalse();
+		assertThat(lazy.getPropertyNames()).containsExactly("changed");
+		assertThat(reads).isEqualTo(1);
+
+		assertThat(lazy.getProperty("changed")).isEqualTo("before");
+		assertThat(reads).isEqualTo(2);
+		assertThat(lazy.getPropertyNames()).contains("unchanged", "changed",
+				"removed");
+	}
+
+	@Test
+	public void shouldNotRefreshPendingPropertiesWithoutIndex() {
+
+		VaultPropertySource lazy = createLazy(null, new ArrayList<String>());
+
+		assertThat(lazy.refresh()).isEmpty();
+		assertThat(reads).isEqualTo(1);
+		assertThat(lazy.isPending()).isTrue();
+	}
+
+	@Test
+	public void shouldFetchIndexedPendingPropertiesOnRefresh() {
+
+		List<String> callbacks = new ArrayList<>();
+		VaultPropertySource lazy = createLazy(
+				new HashSet<>(Arrays.asList("changed", "unchanged", "removed")),
+				callbacks);
+		secrets.put("added", "value");
+
+		assertThat(lazy.getProperty("added")).isNull();
+
+		assertThat(lazy.refresh()).containsExactly("added");
+		assertThat(reads).isEqualTo(2);
+		assertThat(lazy.isPending()).isFalse();
+		assertThat(lazy.getProperty("added")).isEqualTo("value");
+		assertThat(callbacks).containsExactly("initialized");
+		assertThat(notifications).hasSize(1);
+	}
+
+	private VaultPropertySource createLazy(Set<String> propertyNames,
+			final List<String> callbacks) {
+
+		VaultPropertySource lazy = new VaultPropertySource("my-app", vaultClient,
+				vaultProperties,
+				new VaultAuthenticationManager(vaultClient, vaultProperties));
+		lazy.addListener(new VaultPropertySourceListener() {
+
+			@Override
+			public void onPropertiesChanged(VaultPropertySource propertySource,
+					Set<String> changedKeys) {
+				notifications.add(changedKeys);
+			}
+		});
+
+		lazy.initLazily(propertyNames, new Runnable() {
+
+			@Override
+			public void run() {
+				callbacks.add("initialized");
+			}
+		});
+
+		return lazy;
+	}
+
+	@Test
+	public void shouldRetainDatabaseCredentialsWhenRefreshingGenericSecrets() {
+
+		vaultProperties.getMysql().setEnabled(true);
+		vaultProperties.getMysql().setRole("readonly");
+		propertySource.init();
+
+		assertThat(propertySource.getProperty("spring.datasource.username"))
+				.isEqualTo("user-1");
+
+		secrets.put("changed", "after");
+
+		assertThat(propertySource.refreshGeneric()).containsOnly("changed");
+		assertThat(propertySource.getProperty("spring.datasource.username"))
+				.isEqualTo("user-1");
+		assertThat(credentials).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRetainRotatedDatabaseCredentialsWhenRefreshingGenericSecrets() {
+
+		ManualScheduledExecutor executor = new ManualScheduledExecutor();
+		SecretLeaseContainer container = new SecretLeaseContainer(vaultProperties,
+				executor);
+
+		vaultProperties.getMysql().setEnabled(true);
+		vaultProperties.getMysql().setRole("readonly");
+		databaseLease = Lease.of("lease", 3600, true);
+		propertySource.setSecretLeaseContainer(container);
+		propertySource.init();
+
+		try {
+			assertThat(propertySource.getProperty("spring.datasource.username"))
+					.isEqualTo("user-1");
+
+			executor.runScheduled();
+
+			assertThat(propertySource.getProperty("spring.datasource.username"))
+					.isEqualTo("user-2");
+
+			notifications.clear();
+			secrets.put("changed", "after");
+
+			assertThat(propertySource.refreshGeneric()).containsOnly("changed");
+			assertThat(notifications).containsExactly(
+					Collections.singleton("changed"));
+			assertThat(propertySource.getProperty("spring.datasource.username"))
+					.isEqualTo("user-2");
+			assertThat(credentials).isEqualTo(2);
+		}
+		finally {
+			container.destroy();
+		}
+	}
+}
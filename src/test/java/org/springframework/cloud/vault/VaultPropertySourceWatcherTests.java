@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.vault.VaultProperties.RefreshMode;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Unit tests for {@link VaultPropertySourceWatcher}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultPropertySourceWatcherTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private Map<String, String> secrets = new HashMap<>();
+	private List<Object> events = new ArrayList<>();
+	private boolean failing;
+
+	private VaultClient vaultClient = new VaultClient(vaultProperties) {
+
+		@Override
+		List<LeasedSecret> readAllWithLease(
+				List<SecureBackendAccessor> secureBackendAccessors,
+				VaultAuthenticationManager authenticationManager) {
+
+			Map<String, String> data = new HashMap<>(secrets);
+			return Collections.singletonList(failing ? LeasedSecret.failed(data)
+					: LeasedSecret.of(data, Lease.none()));
+		}
+	};
+
+	private VaultPropertySourceWatcher watcher;
+	private VaultEnvironmentChangePublisher publisher;
+
+	@Before
+	public void before() {
+
+		vaultProperties.setToken("token");
+		vaultProperties.getRefresh().setMode(RefreshMode.BACKGROUND);
+		vaultProperties.getWatch().setInterval(10);
+		vaultProperties.getWatch().setMaxInterval(40);
+
+		secrets.put("unchanged", "value");
+		secrets.put("changed", "before");
+
+		VaultPropertySource propertySource = new VaultPropertySource("my-app",
+				vaultClient, vaultProperties,
+				new VaultAuthenticationManager(vaultClient, vaultProperties));
+		propertySource.init();
+
+		CompositePropertySource composite = new CompositePropertySource("vault");
+		composite.addPropertySource(propertySource);
+
+		StandardEnvironment environment = new StandardEnvironment();
+		environment.getPropertySources().addFirst(composite);
+
+		watcher = new VaultPropertySourceWatcher(vaultProperties);
+		watcher.setEnvironment(environment);
+
+		publisher = new VaultEnvironmentChangePublisher();
+		publisher.setEnvironment(environment);
+		publisher.setApplicationEventPublisher(new ApplicationEventPublisher() {
+
+			@Override
+			public void publishEvent(ApplicationEvent event) {
+				events.add(event);
+			}
+
+			@Override
+			public void publishEvent(Object event) {
+				events.add(event);
+			}
+		});
+		publisher.afterPropertiesSet();
+	}
+
+	@After
+	public void after() {
+
+		watcher.destroy();
+		publisher.destroy();
+	}
+
+	@Test
+	public void shouldPublishChangedKeys() {
+
+		secrets.put("changed", "after");
+
+		assertThat(watcher.poll()).containsOnly("changed");
+		assertThat(events).hasSize(1);
+		assertThat(((EnvironmentChangeEvent) events.get(0)).getKeys())
+				.containsOnly("changed");
+	}
+
+	@Test
+	public void shouldNotPublishEventIfNothingChanged() {
+
+		assertThat(watcher.poll()).isEmpty();
+		assertThat(events).isEmpty();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRequireBackgroundRefreshMode() {
+
+		vaultProperties.getRefresh().setMode(RefreshMode.BLOCKING);
+		new VaultPropertySourceWatcher(vaultProperties);
+	}
+
+	@Test
+	public void shouldBackOffWhileVaultFails() {
+
+		assertThat(watcher.getDelayMillis()).isBetween(9000L, 11000L);
+
+		failing = true;
+		watcher.poll();
+		assertThat(watcher.getDelayMillis()).isBetween(18000L, 22000L);
+
+		watcher.poll();
+		watcher.poll();
+		assertThat(watcher.getDelayMillis()).isBetween(36000L, 44000L);
+		assertThat(events).isEmpty();
+
+		failing = false;
+		watcher.poll();
+		assertThat(watcher.getDelayMillis()).isBetween(9000L, 11000L);
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.vault.VaultRequestExecutor.CircuitBreaker.State;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Unit tests for {@link VaultRequestExecutor}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultRequestExecutorTests {
+
+	private URI uri = URI.create("https://localhost:8200/v1/secret/app");
+	private VaultProperties vaultProperties = new VaultProperties();
+	private AtomicInteger attempts = new AtomicInteger();
+
+	@Before
+	public void before() {
+
+		VaultProperties.Retry retry = vaultProperties.getRetry();
+		retry.setEnabled(true);
+		retry.setMaxAttempts(3);
+		retry.setInitialInterval(1);
+		retry.setMaxInterval(1);
+	}
+
+	@Test
+	public void shouldRetryServerErrors() {
+
+		String result = new VaultRequestExecutor(vaultProperties).execute(uri,
+				failing(2, new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+
+		assertThat(result).isEqualTo("ok");
+		assertThat(attempts.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void shouldRetryAsynchronously() throws Exception {
+
+		ListenableFuture<String> result = new VaultRequestExecutor(vaultProperties)
+				.executeAsync(uri, failingAsync(2, new ResourceAccessException("I/O")));
+
+		assertThat(result.get()).isEqualTo("ok");
+		assertThat(attempts.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void shouldRetryImmediateFailureOfAsyncRequest() throws Exception {
+
+		ListenableFuture<String> result = new VaultRequestExecutor(vaultProperties)
+				.executeAsync(uri, new VaultRequestExecutor.AsyncRequest<String>() {
+
+					@Override
+					public ListenableFuture<String> execute() {
+
+						if (attempts.incrementAndGet() < 2) {
+							throw new ResourceAccessException("I/O");
+						}
+
+						SettableListenableFuture<String> future = new SettableListenableFuture<>();
+						future.set("ok");
+						return future;
+					}
+				});
+
+		assertThat(result.get()).isEqualTo("ok");
+		assertThat(attempts.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldNotRetryNonIdempotentRequests() {
+
+		vaultProperties.getCircuitBreaker().setEnabled(true);
+		vaultProperties.getCircuitBreaker().setFailureThreshold(1);
+		VaultRequestExecutor executor = new VaultRequestExecutor(vaultProperties);
+
+		try {
+			executor.execute(uri, HttpMethod.POST,
+					failing(1, new ResourceAccessException("I/O")));
+			fail("Missing ResourceAccessException");
+		}
+		catch (ResourceAccessException e) {
+			assertThat(attempts.get()).isEqualTo(1);
+		}
+
+		assertThat(executor.getCircuitBreaker(uri).getState()).isEqualTo(State.OPEN);
+	}
+
+	@Test
+	public void shouldGiveUpAfterMaxAttempts() {
+
+		try {
+			new VaultRequestExecutor(vaultProperties).execute(uri,
+					failing(5, new ResourceAccessException("I/O")));
+			fail("Missing ResourceAccessException");
+		}
+		catch (ResourceAccessException e) {
+			assertThat(attempts.get()).isEqualTo(3);
+		}
+	}
+
+	@Test
+	public void shouldNotRetryClientErrors() {
+
+		try {
+			new VaultRequestExecutor(vaultProperties).execute(uri,
+					failing(1, new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+			fail("Missing HttpClientErrorException");
+		}
+		catch (HttpClientErrorException e) {
+			assertThat(attempts.get()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void shouldNotRetryIfDisabled() {
+
+		vaultProperties.getRetry().setEnabled(false);
+
+		try {
+			new VaultRequestExecutor(vaultProperties).execute(uri,
+					failing(1, new ResourceAccessException("I/O")));
+			fail("Missing ResourceAccessException");
+		}
+		catch (ResourceAccessException e) {
+			assertThat(attempts.get()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void shouldLimitRetriesByBudget() {
+
+		vaultProperties.getRetry().setBudgetReserve(1);
+		vaultProperties.getRetry().setBudgetRatio(0);
+		VaultRequestExecutor executor = new VaultRequestExecutor(vaultProperties);
+
+		try {
+			executor.execute(uri, failing(10, new ResourceAccessException("I/O")));
+			fail("Missing ResourceAccessException");
+		}
+		catch (ResourceAccessException e) {
+			assertThat(attempts.get()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	public void shouldCalculateExponentialBackoffWithJitter() {
+
+		VaultProperties.Retry retry = vaultProperties.getRetry();
+		retry.setInitialInterval(100);
+		retry.setMultiplier(2);
+		retry.setMaxInterval(300);
+		VaultRequestExecutor executor = new VaultRequestExecutor(vaultProperties);
+
+		assertThat(executor.getBackoff(1)).isBetween(50L, 100L);
+		assertThat(executor.getBackoff(2)).isBetween(100L, 200L);
+		assertThat(executor.getBackoff(3)).isBetween(150L, 300L);
+	}
+
+	@Test
+	public void shouldRejectRequestsWhileCircuitIsOpen() {
+
+		vaultProperties.getRetry().setEnabled(false);
+		vaultProperties.getCircuitBreaker().setEnabled(true);
+		vaultProperties.getCircuitBreaker().setFailureThreshold(2);
+		VaultRequestExecutor executor = new VaultRequestExecutor(vaultProperties);
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				executor.execute(uri, failing(10, new ResourceAccessException("I/O")));
+				fail("Missing ResourceAccessException");
+			}
+			catch (ResourceAccessException e) {
+			}
+		}
+
+		assertThat(attempts.get()).isEqualTo(2);
+		assertThat(executor.getCircuitBreaker(uri).getState()).isEqualTo(State.OPEN);
+		assertThat(executor
+				.getCircuitBreaker(URI.create("https://other:8200/v1/secret/app"))
+				.getState()).isEqualTo(State.CLOSED);
+	}
+
+	@Test
+	public void shouldProbeAfterOpenDuration() {
+
+		final long[] now = { 0 };
+		VaultProperties.CircuitBreaker settings = new VaultProperties.CircuitBreaker();
+		settings.setEnabled(true);
+		settings.setFailureThreshold(1);
+		settings.setOpenDuration(1000);
+
+		VaultRequestExecutor.CircuitBreaker circuitBreaker = new VaultRequestExecutor.CircuitBreaker(
+				settings) {
+			@Override
+			long currentTimeMillis() {
+				return now[0];
+			}
+		};
+
+		circuitBreaker.onFailure();
+		assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+		now[0] = 1000;
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+		assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+		circuitBreaker.onFailure();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+
+		now[0] = 2000;
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+		circuitBreaker.onSuccess();
+		assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+		assertThat(circuitBreaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void shouldReleaseProbeOnUnexpectedException() {
+
+		vaultProperties.getRetry().setEnabled(false);
+		vaultProperties.getCircuitBreaker().setEnabled(true);
+		vaultProperties.getCircuitBreaker().setFailureThreshold(1);
+		vaultProperties.getCircuitBreaker().setOpenDuration(0);
+		VaultRequestExecutor executor = new VaultRequestExecutor(vaultProperties);
+
+		try {
+			executor.execute(uri, failing(1, new ResourceAccessException("I/O")));
+			fail("Missing ResourceAccessException");
+		}
+		catch (ResourceAccessException e) {
+		}
+
+		assertThat(executor.getCircuitBreaker(uri).getState()).isEqualTo(State.OPEN);
+
+		try {
+			executor.execute(uri, failing(2, new IllegalStateException("conversion")));
+			fail("Missing IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+		}
+
+		assertThat(executor.getCircuitBreaker(uri).getState()).isEqualTo(State.CLOSED);
+		assertThat(executor.execute(uri, failing(2, new IllegalStateException())))
+				.isEqualTo("ok");
+	}
+
+	private VaultRequestExecutor.Request<String> failing(final int failures,
+			final RuntimeException exception) {
+
+		return new VaultRequestExecutor.Request<String>() {
+
+			@Override
+			public String execute() {
+
+				if (attempts.incrementAndGet() <= failures) {
+					throw exception;
+				}
+				return "ok";
+			}
+		};
+	}
+
+	private VaultRequestExecutor.AsyncRequest<String> failingAsync(final int failures,
+			final RuntimeException exception) {
+
+		return new VaultRequestExecutor.AsyncRequest<String>() {
+
+			@Override
+			public ListenableFuture<String> execute() {
+
+				SettableListenableFuture<String> future = new SettableListenableFuture<>();
+				if (attempts.incrementAndGet() <= failures) {
+					future.setException(exception);
+				}
+				else {
+					future.set("ok");
+				}
+				return future;
+			}
+		};
+	}
+}
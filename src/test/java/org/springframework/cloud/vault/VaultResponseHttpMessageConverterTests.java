@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for {@link VaultResponseHttpMessageConverter}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultResponseHttpMessageConverterTests {
+
+	private VaultResponseHttpMessageConverter converter = new VaultResponseHttpMessageConverter();
+
+	@Test
+	public void shouldReadSecretResponse() throws Exception {
+
+		VaultResponse response = read("{\"lease_id\":\"mysql/creds/readonly/1234\","
+				+ "\"renewable\":true,\"lease_duration\":3600,"
+				+ "\"data\":{\"username\":\"user\",\"password\":\"secret\"},"
+				+ "\"metadata\":{\"created\":\"today\"},"
+				+ "\"wrap_info\":{\"token\":\"abc\",\"nested\":[1,{\"a\":2}]},"
+				+ "\"warnings\":[\"warning\"],\"auth\":null}");
+
+		assertThat(response.getLeaseId()).isEqualTo("mysql/creds/readonly/1234");
+		assertThat(response.isRenewable()).isTrue();
+		assertThat(response.getLeaseDuration()).isEqualTo(3600);
+		assertThat(response.getData()).containsEntry("username", "user")
+				.containsEntry("password", "secret").hasSize(2);
+		assertThat(response.getMetadata()).containsEntry("created", "today");
+		assertThat(response.getAuth()).isNull();
+	}
+
+	@Test
+	public void shouldReadAuthResponse() throws Exception {
+
+		VaultResponse response = read("{\"lease_id\":null,\"data\":null,"
+				+ "\"auth\":{\"client_token\":\"token\",\"lease_duration\":60,"
+				+ "\"policies\":[\"root\"]}}");
+
+		assertThat(response.getData()).isNull();
+		assertThat(response.getLeaseId()).isNull();
+		assertThat(response.getAuth()).containsEntry("client_token", "token")
+				.containsEntry("lease_duration", 60);
+	}
+
+	@Test
+	public void shouldReadScalarsAsText() throws Exception {
+
+		VaultResponse response = read(
+				"{\"data\":{\"int\":42,\"decimal\":1.50,\"bool\":true,\"null\":null}}");
+
+		assertThat(response.getData()).containsEntry("int", "42")
+				.containsEntry("decimal", "1.50").containsEntry("bool", "true")
+				.containsEntry("null", null);
+	}
+
+	@Test
+	public void shouldReadNestedValuesAsJson() throws Exception {
+
+		VaultResponse response = read(
+				"{\"data\":{\"object\":{\"a\":[1,2]},\"array\":[\"x\"]},\"renewable\":true}");
+
+		assertThat(response.getData()).containsEntry("object", "{\"a\":[1,2]}")
+				.containsEntry("array", "[\"x\"]");
+		assertThat(response.isRenewable()).isTrue();
+	}
+
+	@Test
+	public void shouldReadLikeDataBinding() throws Exception {
+
+		String json = "{\"lease_id\":\"\",\"renewable\":false,\"lease_duration\":2592000,"
+				+ "\"data\":{\"key\":\"value\",\"other\":\"x\"},\"auth\":null}";
+
+		assertThat(read(json))
+				.isEqualTo(new ObjectMapper().readValue(json, VaultResponse.class));
+	}
+
+	@Test(expected = HttpMessageNotReadableException.class)
+	public void shouldRejectNonObject() throws Exception {
+		read("[]");
+	}
+
+	@Test(expected = HttpMessageNotReadableException.class)
+	public void shouldRejectNonObjectData() throws Exception {
+		read("{\"data\":\"value\"}");
+	}
+
+	@Test
+	public void shouldOnlyReadVaultResponse() {
+
+		assertThat(converter.canRead(VaultResponse.class, MediaType.APPLICATION_JSON))
+				.isTrue();
+		assertThat(converter.canRead(Object.class, MediaType.APPLICATION_JSON))
+				.isFalse();
+		assertThat(converter.canWrite(VaultResponse.class, MediaType.APPLICATION_JSON))
+				.isFalse();
+	}
+
+	private VaultResponse read(String json) throws Exception {
+
+		MockHttpInputMessage inputMessage = new MockHttpInputMessage(
+				json.getBytes(Charset.forName("UTF-8")));
+		inputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+		return converter.read(VaultResponse.class, inputMessage);
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.cloud.vault.SecureBackendAccessors.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.cloud.vault.util.PrepareVault;
+import org.springframework.cloud.vault.util.VaultServerStub;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Tests for {@link VaultClient} against {@link VaultServerStub}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultServerStubTests {
+
+	private VaultServerStub stub = new VaultServerStub();
+	private VaultProperties vaultProperties = new VaultProperties();
+	private VaultClient vaultClient = new VaultClient(vaultProperties);
+	private PrepareVault prepareVault = new PrepareVault(new TestRestTemplate());
+
+	@Before
+	public void setUp() throws Exception {
+
+		stub.start();
+		stub.configure(vaultProperties);
+		vaultProperties.setToken("my-token");
+		vaultClient.setRest(new RestTemplate());
+
+		prepareVault.setVaultProperties(vaultProperties);
+		assertThat(prepareVault.isAvailable()).isFalse();
+
+		prepareVault.setRootToken(prepareVault.initializeVault());
+		prepareVault.createToken(vaultProperties.getToken(), "root");
+		prepareVault.writeSecret("app-name",
+				Collections.singletonMap("key", "value"));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+
+		vaultClient.destroy();
+		stub.stop();
+	}
+
+	@Test
+	public void shouldReadSecret() throws Exception {
+
+		assertThat(prepareVault.isAvailable()).isTrue();
+		assertThat(vaultClient.read(generic(vaultProperties, "app-name"), token()))
+				.containsEntry("key", "value");
+		assertThat(stub.getRequestCount("secret/app-name")).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldInjectErrors() throws Exception {
+
+		stub.failNextRequests("secret/", 1, 500);
+
+		assertThat(vaultClient.read(generic(vaultProperties, "app-name"), token()))
+				.isEmpty();
+		assertThat(vaultClient.read(generic(vaultProperties, "app-name"), token()))
+				.containsEntry("key", "value");
+	}
+
+	@Test
+	public void shouldFailOverToNextClusterNode() throws Exception {
+
+		vaultProperties.getCluster().setHealthCheckInterval(0);
+		vaultProperties.getCluster().setNodes(Arrays.asList("http://localhost:1",
+				String.format("http://localhost:%d", stub.getPort())));
+
+		VaultClient vaultClient = new VaultClient(vaultProperties);
+		vaultClient.setRest(new RestTemplate());
+
+		assertThat(vaultClient.read(generic(vaultProperties, "app-name"), token()))
+				.containsEntry("key", "value");
+		assertThat(vaultClient.read(generic(vaultProperties, "app-name"), token()))
+				.containsEntry("key", "value");
+		assertThat(stub.getRequestCount("secret/app-name")).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldInjectLatency() throws Exception {
+
+		stub.setLatency(100, TimeUnit.MILLISECONDS);
+
+		long start = System.nanoTime();
+		vaultClient.read(generic(vaultProperties, "app-name"), token());
+
+		assertThat(System.nanoTime() - start)
+				.isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
+	@Test
+	public void shouldReadAllConcurrentlyWithoutAsyncClient() throws Exception {
+
+		prepareVault.writeSecret("other", Collections.singletonMap("key", "other"));
+		stub.setLatency(200, TimeUnit.MILLISECONDS);
+
+		long start = System.nanoTime();
+		List<Map<String, String>> secrets = vaultClient.readAll(
+				Arrays.asList(generic(vaultProperties, "app-name"),
+						generic(vaultProperties, "missing"),
+						generic(vaultProperties, "other"),
+						generic(vaultProperties, "app-name/cloud")),
+				token());
+
+		assertThat(System.nanoTime() - start)
+				.isLessThan(TimeUnit.MILLISECONDS.toNanos(4 * 200));
+		assertThat(secrets).hasSize(4);
+		assertThat(secrets.get(0)).containsEntry("key", "value");
+		assertThat(secrets.get(1)).isEmpty();
+		assertThat(secrets.get(2)).containsEntry("key", "other");
+		assertThat(secrets.get(3)).isEmpty();
+	}
+
+	@Test
+	public void shouldLoginUsingAppIdAndRenewToken() throws Exception {
+
+		vaultProperties.setAuthentication(VaultProperties.AuthenticationMethod.APPID);
+		vaultProperties.setApplicationName("stub-app");
+		vaultClient.setAppIdUserIdMechanism(new StaticUserId(vaultProperties));
+		vaultProperties.getAppId().setUserId("stub-user");
+
+		prepareVault.mapAppId("stub-app");
+		prepareVault.mapUserId("stub-app", "stub-user");
+
+		VaultToken token = vaultClient.createToken();
+		assertThat(token.getLeaseDuration()).isGreaterThan(0);
+
+		VaultToken renewed = vaultClient.renewToken(token);
+		assertThat(renewed.getToken()).isEqualTo(token.getToken());
+	}
+
+	@Test
+	public void shouldLoginAgainIfTokenIsRejected() throws Exception {
+
+		vaultProperties.setAuthentication(VaultProperties.AuthenticationMethod.APPID);
+		vaultProperties.setApplicationName("stub-app");
+		vaultClient.setAppIdUserIdMechanism(new StaticUserId(vaultProperties));
+		vaultProperties.getAppId().setUserId("stub-user");
+
+		prepareVault.mapAppId("stub-app");
+		prepareVault.mapUserId("stub-app", "stub-user");
+
+		VaultAuthenticationManager authenticationManager = new VaultAuthenticationManager(
+				vaultClient, vaultProperties);
+		VaultToken rejected = authenticationManager.getToken();
+
+		stub.failNextRequests("secret/", 1, 403);
+
+		LeasedSecret secret = vaultClient.readWithLease(
+				generic(vaultProperties, "app-name"), authenticationManager);
+
+		assertThat(secret.getData()).containsEntry("key", "value");
+		assertThat(authenticationManager.getToken()).isNotEqualTo(rejected);
+		assertThat(stub.getRequestCount("secret/app-name")).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldNotRetryRejectedStaticToken() throws Exception {
+
+		VaultAuthenticationManager authenticationManager = new VaultAuthenticationManager(
+				vaultClient, vaultProperties);
+
+		stub.failNextRequests("secret/", 1, 403);
+
+		LeasedSecret secret = vaultClient.readWithLease(
+				generic(vaultProperties, "app-name"), authenticationManager);
+
+		assertThat(secret.isFailed()).isTrue();
+		assertThat(stub.getRequestCount("secret/app-name")).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldCreateRenewAndRevokeDatabaseCredentials() throws Exception {
+
+		VaultProperties.MySql mySql = vaultProperties.getMysql();
+		mySql.setRole("readonly");
+
+		prepareVault.mountSecret("mysql");
+		prepareVault.write("mysql/roles/readonly", new HashMap<String, String>());
+
+		LeasedSecret secret = vaultClient.readWithLease(database(mySql), token());
+		Map<String, String> data = secret.getData();
+
+		assertThat(data).containsKeys(mySql.getUsernameProperty(),
+				mySql.getPasswordProperty());
+		assertThat(secret.getLease().isRenewableLease()).isTrue();
+
+		Lease renewed = vaultClient.renewLease(secret.getLease(), token());
+		assertThat(renewed.getLeaseId()).isEqualTo(secret.getLease().getLeaseId());
+
+		vaultClient.revokeLease(secret.getLease(), token());
+
+		try {
+			vaultClient.renewLease(secret.getLease(), token());
+			fail("Missing IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+		}
+	}
+
+	private VaultToken token() {
+		return VaultToken.of(vaultProperties.getToken());
+	}
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.vault.VaultProperties.AuthenticationMethod;
+import org.springframework.cloud.vault.VaultProperties.RefreshMode;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+/**
+ * Unit tests for {@link VaultSessions}.
+ *
+ * @author Mark Paluch
+ */
+public class VaultSessionsTests {
+
+	private VaultProperties vaultProperties = new VaultProperties();
+	private AtomicInteger reads = new AtomicInteger();
+
+	private VaultClient vaultClient = createVaultClient();
+
+	private StandardEnvironment environment = new StandardEnvironment();
+
+	@Before
+	public void before() {
+
+		VaultSessions.clear();
+
+		vaultProperties.setToken("token");
+		vaultProperties.getSharing().setEnabled(true);
+		environment.getPropertySources().addFirst(new MapPropertySource("app",
+				Collections.<String, Object> singletonMap("spring.application.name",
+						"my-app")));
+	}
+
+	@After
+	public void after() {
+		VaultSessions.clear();
+	}
+
+	@Test
+	public void shouldShareSessionForSameEndpointAndToken() {
+
+		VaultProperties other = new VaultProperties();
+		other.setToken("token");
+
+		assertThat(VaultSessions.get(other)).isSameAs(
+				VaultSessions.get(vaultProperties));
+	}
+
+	@Test
+	public void shouldSeparateSessionsByEndpointAndIdentity() {
+
+		VaultProperties otherToken = new VaultProperties();
+		otherToken.setToken("other");
+
+		VaultProperties otherHost = new VaultProperties();
+		otherHost.setToken("token");
+		otherHost.setHost("vault");
+
+		VaultProperties appId = new VaultProperties();
+		appId.setAuthentication(AuthenticationMethod.APPID);
+		appId.setApplicationName("my-app");
+
+		VaultSessions.Session session = VaultSessions.get(vaultProperties);
+
+		assertThat(VaultSessions.get(otherToken)).isNotSameAs(session);
+		assertThat(VaultSessions.get(otherHost)).isNotSameAs(session);
+		assertThat(VaultSessions.get(appId)).isNotSameAs(session);
+	}
+
+	@Test
+	public void shouldNotRetainTokenInKey() {
+		assertThat(VaultSessions.getKey(vaultProperties)).doesNotContain("token");
+	}
+
+	@Test
+	public void shouldShareClientHttpRequestFactoryWithoutLifecycle() {
+
+		ClientHttpRequestFactory requestFactory = VaultSessions.get(vaultProperties)
+				.getClientHttpRequestFactory(vaultProperties);
+
+		assertThat(requestFactory).isNotInstanceOf(DisposableBean.class);
+		assertThat(VaultSessions.get(vaultProperties)
+				.getClientHttpRequestFactory(vaultProperties)).isSameAs(requestFactory);
+	}
+
+	@Test
+	public void shouldShareAuthenticationManager() {
+
+		VaultSessions.Session session = VaultSessions.acquire(vaultProperties,
+				vaultClient);
+
+		assertThat(session.getAuthenticationManager(vaultProperties))
+				.isSameAs(session.getAuthenticationManager(vaultProperties));
+	}
+
+	@Test
+	public void shouldLogInWithRemainingClientOnceContextReleasesSession() {
+
+		VaultClient other = new VaultClient(vaultProperties);
+
+		VaultSessions.Session session = VaultSessions.acquire(vaultProperties,
+				vaultClient);
+		VaultAuthenticationManager authenticationManager = session
+				.getAuthenticationManager(vaultProperties);
+		VaultSessions.acquire(vaultProperties, other);
+
+		VaultSessions.release(session, vaultClient);
+
+		assertThat(authenticationManager.getVaultClient()).isSameAs(other);
+		assertThat(VaultSessions.acquire(vaultProperties, vaultClient)
+				.getAuthenticationManager(vaultProperties))
+						.isSameAs(authenticationManager);
+	}
+
+	@Test
+	public void shouldRemoveSessionOnceLastContextReleasesSession() {
+
+		VaultSessions.Session session = VaultSessions.acquire(vaultProperties,
+				vaultClient);
+
+		ClientHttpRequestFactory requestFactory = session
+				.getClientHttpRequestFactory(vaultProperties);
+		session.setLocated("fingerprint",
+				Collections.<String, Map<String, String>> emptyMap());
+
+		VaultSessions.release(session, vaultClient);
+
+		assertThat(VaultSessions.size()).isEqualTo(0);
+		assertThat(session.getLocated("fingerprint", 60000)).isNull();
+
+		VaultSessions.Session next = VaultSessions.acquire(vaultProperties,
+				vaultClient);
+
+		assertThat(next).isNotSameAs(session);
+		assertThat(next.getClientHttpRequestFactory(vaultProperties))
+				.isNotSameAs(requestFactory);
+	}
+
+	@Test
+	public void shouldNotRegisterSessionWithoutSharing() {
+
+		vaultProperties.getSharing().setEnabled(false);
+
+		VaultPropertySourceLocator locator = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties);
+		locator.locate(environment);
+
+		assertThat(VaultSessions.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldReleaseSessionWithLocator() {
+
+		VaultPropertySourceLocator locator = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties);
+		locator.locate(environment);
+
+		assertThat(VaultSessions.size()).isEqualTo(1);
+
+		locator.destroy();
+
+		assertThat(VaultSessions.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldRenewTokenUntilLastContextReleasesSession() {
+
+		vaultProperties.getSharing().setEnabled(false);
+		vaultProperties.getTokenRenewal().setEnabled(true);
+
+		VaultPropertySourceLocator first = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties);
+		VaultPropertySourceLocator second = new VaultPropertySourceLocator(
+				new VaultClient(vaultProperties), vaultProperties);
+
+		VaultSessions.Session session = VaultSessions.get(vaultProperties);
+		TokenLifecycleManager tokenLifecycleManager = session
+				.getTokenLifecycleManager(vaultProperties);
+
+		first.destroy();
+
+		assertThat(VaultSessions.size()).isEqualTo(1);
+		assertThat(session.getTokenLifecycleManager(vaultProperties))
+				.isSameAs(tokenLifecycleManager);
+
+		second.destroy();
+
+		assertThat(VaultSessions.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldDiscardBackgroundPropertySourcesOfReleasedContext() {
+
+		vaultProperties.getSharing().setEnabled(false);
+		vaultProperties.getRefresh().setMode(RefreshMode.BACKGROUND);
+
+		VaultClient other = createVaultClient();
+		VaultPropertySourceLocator first = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties);
+		VaultPropertySourceLocator second = new VaultPropertySourceLocator(other,
+				vaultProperties);
+
+		PropertySource<?> located = getFirst(first.locate(environment));
+		assertThat(getFirst(second.locate(environment))).isSameAs(located);
+
+		first.destroy();
+
+		PropertySource<?> relocated = getFirst(new VaultPropertySourceLocator(other,
+				vaultProperties).locate(environment));
+
+		assertThat(relocated).isNotSameAs(located);
+		assertThat(relocated.getSource()).isSameAs(other);
+	}
+
+	@Test
+	public void shouldReuseLocatedProperties() {
+
+		vaultProperties.getSharing().setLocatedTtl(60);
+
+		PropertySource<?> first = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties).locate(environment);
+		PropertySource<?> second = new VaultPropertySourceLocator(vaultClient,
+				vaultProperties).locate(environment);
+
+		assertThat(reads.get()).isEqualTo(2);
+		assertThat(first.getProperty("key")).isEqualTo("value");
+		assertThat(second.getProperty("key")).isEqualTo("value");
+	}
+
+	@Test
+	public void shouldNotReuseLocatedPropertiesByDefault() {
+
+		new VaultPropertySourceLocator(vaultClient, vaultProperties)
+				.locate(environment);
+		new VaultPropertySourceLocator(vaultClient, vaultProperties)
+				.locate(environment);
+
+		assertThat(reads.get()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldNotReuseLocatedPropertiesForOtherProfiles() {
+
+		vaultProperties.getSharing().setLocatedTtl(60);
+
+		new VaultPropertySourceLocator(vaultClient, vaultProperties)
+				.locate(environment);
+		environment.setActiveProfiles("cloud");
+		new VaultPropertySourceLocator(vaultClient, vaultProperties)
+				.locate(environment);
+
+		assertThat(reads.get()).isEqualTo(2 + 4);
+	}
+
+	@Test
+	public void shouldNotReuseLocatedPropertiesWithoutSharing() {
+
+		vaultProperties.getSharing().setEnabled(false);
+		vaultProperties.getSharing().setLocatedTtl(60);
+
+		new VaultPropertySourceLocator(vaultClient, vaultProperties)
+				.locate(environment);
+		new VaultPropertySourceLocator(vaultClient, vaultProperties)
+				.locate(environment);
+
+		assertThat(reads.get()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldExpireLocatedProperties() {
+
+		VaultSessions.Session session = VaultSessions.get(vaultProperties);
+		session.setLocated("fingerprint",
+				Collections.<String, Map<String, String>> emptyMap());
+
+		assertThat(session.getLocated("fingerprint", 60000)).isNotNull();
+		assertThat(session.getLocated("fingerprint", 0)).isNull();
+		assertThat(session.getLocated("fingerprint", 60000)).isNull();
+	}
+
+	private VaultClient createVaultClient() {
+
+		return new VaultClient(vaultProperties) {
+
+			@Override
+			List<LeasedSecret> readAllWithLease(
+					List<SecureBackendAccessor> secureBackendAccessors,
+					VaultAuthenticationManager authenticationManager) {
+
+				reads.incrementAndGet();
+
+				List<LeasedSecret> secrets = new ArrayList<>();
+				for (int i = 0; i < secureBackendAccessors.size(); i++) {
+					secrets.add(LeasedSecret.of(
+							Collections.singletonMap("key", "value"), Lease.none()));
+				}
+				return secrets;
+			}
+		};
+	}
+
+	private static PropertySource<?> getFirst(PropertySource<?> composite) {
+		return ((CompositePropertySource) composite).getPropertySources().iterator()
+				.next();
+	}
+}
@@ -37,9 +37,21 @@ public class Settings {
 		vaultProperties.getSsl().setTrustStore(new FileSystemResource("work/keystore.jks"));
 		vaultProperties.setToken(token().getToken());
 
+		if (useStub()) {
+			VaultServerStub.sharedInstance().configure(vaultProperties);
+		}
+
 		return vaultProperties;
 	}
 
+	/**
+	 * @return {@literal true} if tests should run against the in-process
+	 * {@link VaultServerStub} instead of a Vault server ({@code -Dvault.stub=true}).
+	 */
+	public static boolean useStub() {
+		return Boolean.getBoolean("vault.stub");
+	}
+
 	/**
 	 * @return the token to use during tests.
 	 */
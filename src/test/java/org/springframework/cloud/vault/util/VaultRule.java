@@ -47,6 +47,15 @@ public class VaultRule extends ExternalResource {
 	@Override
 	public void before() {
 
+		if (Settings.useStub()) {
+
+			// point Spring Boot based tests using bootstrap.yml to the stub
+			System.setProperty("spring.cloud.vault.scheme", vaultProperties.getScheme());
+			System.setProperty("spring.cloud.vault.port",
+					Integer.toString(vaultProperties.getPort()));
+			System.setProperty("spring.cloud.vault.ssl.trust-store", "");
+		}
+
 		try (Socket socket = new Socket()) {
 
 			socket.connect(new InetSocketAddress(InetAddress.getByName("localhost"),
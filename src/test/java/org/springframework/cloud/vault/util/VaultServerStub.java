@@ -0,0 +1,692 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.cloud.vault.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.cloud.vault.VaultClient;
+import org.springframework.cloud.vault.VaultProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Lightweight in-process stand-in for a Vault server speaking HTTP. The stub supports
+ * initialization and unsealing ({@code sys/init}, {@code sys/unseal},
+ * {@code sys/seal-status}, {@code sys/health}), mounts ({@code sys/mounts},
+ * {@code sys/auth}), token management ({@code auth/token/create-orphan},
+ * {@code renew-self}, {@code lookup-self}), AppId login, generic secret storage,
+ * dynamic credentials ({@code {backend}/creds/{role}}), lease renewal
+ * ({@code sys/renew}) and revocation ({@code sys/revoke}).
+ * <p>
+ * Latency and errors can be injected to test failure modes with deterministic timing.
+ * Requests are counted per path.
+ * <p>
+ * The benchmarks module uses a separate {@code StubVaultServer} that only replays
+ * canned responses, so the emulation done here does not add to measured times.
+ *
+ * @author Mark Paluch
+ */
+public class VaultServerStub {
+
+	private final static int SECRET_SHARES = 2;
+	private final static long GENERIC_LEASE_DURATION = 2592000;
+
+	private static VaultServerStub sharedInstance;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Map<String, Map<String, Object>> storage = new ConcurrentHashMap<>();
+	private final Map<String, String> mounts = new ConcurrentHashMap<>();
+	private final Map<String, String> authMounts = new ConcurrentHashMap<>();
+	private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+	private final Map<String, Long> leases = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+	private final AtomicInteger errorCount = new AtomicInteger();
+	private volatile int errorStatus;
+	private volatile String errorPathPrefix;
+
+	private volatile long latency;
+	private volatile long tokenTtl = 3600;
+	private volatile long leaseDuration = 3600;
+	private volatile long maxLeaseTtl = 86400;
+
+	private List<String> unsealKeys;
+	private int unsealProgress;
+	private boolean initialized;
+	private boolean sealed = true;
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public VaultServerStub() {
+
+		mounts.put("secret/", "generic");
+		mounts.put("sys/", "system");
+		authMounts.put("token/", "token");
+	}
+
+	/**
+	 * Returns a shared, started {@link VaultServerStub} instance.
+	 *
+	 * @return the shared instance.
+	 */
+	public static synchronized VaultServerStub sharedInstance() {
+
+		if (sharedInstance == null) {
+			VaultServerStub stub = new VaultServerStub();
+			stub.start();
+			sharedInstance = stub;
+		}
+
+		return sharedInstance;
+	}
+
+	/**
+	 * Start the server on an ephemeral port.
+	 */
+	public void start() {
+		start(0);
+	}
+
+	/**
+	 * Start the server on the given {@code port}.
+	 *
+	 * @param port the port, {@literal 0} to use an ephemeral port.
+	 */
+	public void start(int port) {
+
+		try {
+			server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"vault-stub-");
+		threadFactory.setDaemon(true);
+
+		executor = Executors.newCachedThreadPool(threadFactory);
+		server.setExecutor(executor);
+		server.createContext("/v1/", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				VaultServerStub.this.handle(exchange);
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * Stop the server.
+	 */
+	public void stop() {
+
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the port the server is listening on.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Apply host, port and scheme of this server to {@link VaultProperties}.
+	 *
+	 * @param vaultProperties must not be {@literal null}.
+	 * @return the {@link VaultProperties}.
+	 */
+	public VaultProperties configure(VaultProperties vaultProperties) {
+
+		vaultProperties.setScheme("http");
+		vaultProperties.setHost("localhost");
+		vaultProperties.setPort(getPort());
+		vaultProperties.getSsl().setTrustStore(null);
+
+		return vaultProperties;
+	}
+
+	/**
+	 * Set the latency added to every request.
+	 *
+	 * @param latency the latency.
+	 * @param unit the time unit.
+	 */
+	public void setLatency(long latency, TimeUnit unit) {
+		this.latency = unit.toMillis(latency);
+	}
+
+	/**
+	 * Set the TTL in seconds of tokens obtained by login.
+	 */
+	public void setTokenTtl(long tokenTtl) {
+		this.tokenTtl = tokenTtl;
+	}
+
+	/**
+	 * Set the lease duration and the maximal lease TTL in seconds of dynamic
+	 * credentials.
+	 */
+	public void setLeaseDuration(long leaseDuration, long maxLeaseTtl) {
+		this.leaseDuration = leaseDuration;
+		this.maxLeaseTtl = maxLeaseTtl;
+	}
+
+	/**
+	 * Fail the next {@code count} requests with the HTTP {@code status}.
+	 *
+	 * @param count number of requests to fail.
+	 * @param status the HTTP status code.
+	 */
+	public void failNextRequests(int count, int status) {
+		failNextRequests(null, count, status);
+	}
+
+	/**
+	 * Fail the next {@code count} requests to paths starting with {@code pathPrefix}
+	 * (relative to {@code /v1/}) with the HTTP {@code status}.
+	 *
+	 * @param pathPrefix the path prefix, may be {@literal null} to match all paths.
+	 * @param count number of requests to fail.
+	 * @param status the HTTP status code.
+	 */
+	public void failNextRequests(String pathPrefix, int count, int status) {
+
+		this.errorPathPrefix = pathPrefix;
+		this.errorStatus = status;
+		this.errorCount.set(count);
+	}
+
+	/**
+	 * @param path the path relative to {@code /v1/}.
+	 * @return number of requests received for {@code path}.
+	 */
+	public int getRequestCount(String path) {
+
+		AtomicInteger counter = requestCounts.get(path);
+		return counter == null ? 0 : counter.get();
+	}
+
+	/**
+	 * @return total number of requests received.
+	 */
+	public int getRequestCount() {
+
+		int count = 0;
+		for (AtomicInteger counter : requestCounts.values()) {
+			count += counter.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Reset request counters and injected errors.
+	 */
+	public void reset() {
+
+		requestCounts.clear();
+		errorCount.set(0);
+		latency = 0;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+
+		String path = exchange.getRequestURI().getPath().substring("/v1/".length());
+		String method = exchange.getRequestMethod();
+
+		AtomicInteger counter = new AtomicInteger();
+		AtomicInteger existing = requestCounts.putIfAbsent(path, counter);
+		(existing != null ? existing : counter).incrementAndGet();
+
+		try {
+
+			if (latency > 0) {
+				TimeUnit.MILLISECONDS.sleep(latency);
+			}
+
+			if (shouldFail(path)) {
+				sendErrors(exchange, errorStatus, "injected error");
+				return;
+			}
+
+			Map<String, Object> body = readBody(exchange);
+			dispatch(exchange, method, path, body);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			sendErrors(exchange, 500, "interrupted");
+		}
+		catch (RuntimeException e) {
+			sendErrors(exchange, 500, e.toString());
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	private boolean shouldFail(String path) {
+
+		String prefix = errorPathPrefix;
+		if (prefix != null && !path.startsWith(prefix)) {
+			return false;
+		}
+
+		while (true) {
+
+			int remaining = errorCount.get();
+			if (remaining <= 0) {
+				return false;
+			}
+
+			if (errorCount.compareAndSet(remaining, remaining - 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void dispatch(HttpExchange exchange, String method, String path,
+			Map<String, Object> body) throws IOException {
+
+		switch (path) {
+		case "sys/init":
+			if ("GET".equals(method)) {
+				send(exchange, 200, Collections.singletonMap("initialized", initialized));
+			}
+			else {
+				initialize(exchange);
+			}
+			return;
+
+		case "sys/seal-status":
+			sealStatus(exchange);
+			return;
+
+		case "sys/unseal":
+			unseal(exchange, (String) body.get("key"));
+			return;
+
+		case "sys/health":
+			health(exchange);
+			return;
+		}
+
+		synchronized (this) {
+			if (sealed) {
+				sendErrors(exchange, 503, "Vault is sealed");
+				return;
+			}
+		}
+
+		if (path.startsWith("auth/") && path.endsWith("/login") && "POST".equals(method)) {
+			login(exchange, path.substring("auth/".length(),
+					path.length() - "/login".length()), body);
+			return;
+		}
+
+		String token = exchange.getRequestHeaders().getFirst(VaultClient.VAULT_TOKEN);
+		if (token == null || !tokens.containsKey(token)) {
+			sendErrors(exchange, 403, "permission denied");
+			return;
+		}
+
+		if (path.equals("sys/mounts") || path.equals("sys/auth")) {
+			listMounts(exchange, path.equals("sys/mounts") ? mounts : authMounts);
+			return;
+		}
+
+		if (path.startsWith("sys/mounts/") || path.startsWith("sys/auth/")) {
+
+			boolean auth = path.startsWith("sys/auth/");
+			String mountPath = path.substring(auth ? "sys/auth/".length()
+					: "sys/mounts/".length()) + "/";
+			(auth ? authMounts : mounts).put(mountPath, (String) body.get("type"));
+			send(exchange, 204, null);
+			return;
+		}
+
+		if (path.startsWith("sys/renew/")) {
+			renewLease(exchange, path.substring("sys/renew/".length()));
+			return;
+		}
+
+		if (path.startsWith("sys/revoke/")) {
+			leases.remove(path.substring("sys/revoke/".length()));
+			send(exchange, 204, null);
+			return;
+		}
+
+		switch (path) {
+		case "auth/token/create":
+		case "auth/token/create-orphan":
+			createToken(exchange, body);
+			return;
+
+		case "auth/token/renew-self":
+			renewToken(exchange, token);
+			return;
+
+		case "auth/token/lookup-self":
+			lookupToken(exchange, token);
+			return;
+		}
+
+		if ("GET".equals(method)) {
+
+			if (path.contains("/creds/")) {
+				createCredentials(exchange, path);
+				return;
+			}
+
+			readSecret(exchange, path);
+			return;
+		}
+
+		if ("DELETE".equals(method)) {
+			storage.remove(path);
+		}
+		else {
+			storage.put(path, body);
+		}
+
+		send(exchange, 204, null);
+	}
+
+	private synchronized void initialize(HttpExchange exchange) throws IOException {
+
+		if (initialized) {
+			sendErrors(exchange, 400, "Vault is already initialized");
+			return;
+		}
+
+		unsealKeys = Arrays.asList(UUID.randomUUID().toString(),
+				UUID.randomUUID().toString());
+		String rootToken = UUID.randomUUID().toString();
+		tokens.put(rootToken, 0L);
+		initialized = true;
+
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("keys", unsealKeys);
+		response.put("root_token", rootToken);
+
+		send(exchange, 200, response);
+	}
+
+	private synchronized void sealStatus(HttpExchange exchange) throws IOException {
+
+		if (!initialized) {
+			sendErrors(exchange, 400, "server is not yet initialized");
+			return;
+		}
+
+		send(exchange, 200, sealStatus());
+	}
+
+	private synchronized void unseal(HttpExchange exchange, String key)
+			throws IOException {
+
+		if (!initialized) {
+			sendErrors(exchange, 400, "server is not yet initialized");
+			return;
+		}
+
+		if (key == null || !unsealKeys.contains(key)) {
+			sendErrors(exchange, 400, "invalid key");
+			return;
+		}
+
+		unsealProgress++;
+		if (unsealProgress >= SECRET_SHARES) {
+			sealed = false;
+			unsealProgress = 0;
+		}
+
+		send(exchange, 200, sealStatus());
+	}
+
+	private Map<String, Object> sealStatus() {
+
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("sealed", sealed);
+		status.put("t", SECRET_SHARES);
+		status.put("n", SECRET_SHARES);
+		status.put("progress", unsealProgress);
+		return status;
+	}
+
+	private synchronized void health(HttpExchange exchange) throws IOException {
+
+		Map<String, Object> health = new LinkedHashMap<>();
+		health.put("initialized", initialized);
+		health.put("sealed", sealed);
+		health.put("standby", false);
+
+		String query = exchange.getRequestURI().getQuery();
+		boolean healthy = initialized && !sealed;
+		boolean sealedOk = query != null && query.contains("sealedcode=200");
+
+		send(exchange, healthy || sealedOk ? 200 : 503, health);
+	}
+
+	private void login(HttpExchange exchange, String authPath, Map<String, Object> body)
+			throws IOException {
+
+		String appId = (String) body.get("app_id");
+		String userId = (String) body.get("user_id");
+
+		Map<String, Object> userIdMapping = storage
+				.get(String.format("auth/%s/map/user-id/%s", authPath, userId));
+		Map<String, Object> appIdMapping = storage
+				.get(String.format("auth/%s/map/app-id/%s", authPath, appId));
+
+		if (appId == null || userIdMapping == null || appIdMapping == null
+				|| !StringUtils.commaDelimitedListToSet(
+						(String) userIdMapping.get("value")).contains(appId)) {
+			sendErrors(exchange, 400, "invalid user ID or app ID");
+			return;
+		}
+
+		String clientToken = UUID.randomUUID().toString();
+		tokens.put(clientToken, tokenTtl);
+
+		send(exchange, 200, authResponse(clientToken, tokenTtl, tokenTtl > 0));
+	}
+
+	private void createToken(HttpExchange exchange, Map<String, Object> body)
+			throws IOException {
+
+		String clientToken = body.get("id") instanceof String ? (String) body.get("id")
+				: UUID.randomUUID().toString();
+		tokens.put(clientToken, 0L);
+
+		send(exchange, 200, authResponse(clientToken, 0, false));
+	}
+
+	private void renewToken(HttpExchange exchange, String token) throws IOException {
+
+		Long ttl = tokens.get(token);
+		if (ttl == null || ttl <= 0) {
+			sendErrors(exchange, 400, "lease is not renewable");
+			return;
+		}
+
+		send(exchange, 200, authResponse(token, ttl, true));
+	}
+
+	private void lookupToken(HttpExchange exchange, String token) throws IOException {
+
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("id", token);
+		data.put("ttl", tokens.get(token));
+
+		send(exchange, 200, Collections.singletonMap("data", data));
+	}
+
+	private Map<String, Object> authResponse(String clientToken, long leaseDuration,
+			boolean renewable) {
+
+		Map<String, Object> auth = new LinkedHashMap<>();
+		auth.put("client_token", clientToken);
+		auth.put("policies", Collections.singletonList("root"));
+		auth.put("metadata", Collections.emptyMap());
+		auth.put("lease_duration", leaseDuration);
+		auth.put("renewable", renewable);
+
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("lease_id", "");
+		response.put("lease_duration", 0);
+		response.put("renewable", false);
+		response.put("auth", auth);
+		return response;
+	}
+
+	private void listMounts(HttpExchange exchange, Map<String, String> mounts)
+			throws IOException {
+
+		Map<String, Object> response = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : mounts.entrySet()) {
+			response.put(entry.getKey(), Collections.singletonMap("type", entry.getValue()));
+		}
+
+		send(exchange, 200, response);
+	}
+
+	private void readSecret(HttpExchange exchange, String path) throws IOException {
+
+		Map<String, Object> data = storage.get(path);
+		if (data == null) {
+			sendNotFound(exchange);
+			return;
+		}
+
+		send(exchange, 200, secretResponse("", GENERIC_LEASE_DURATION, false, data));
+	}
+
+	private void createCredentials(HttpExchange exchange, String path)
+			throws IOException {
+
+		int index = path.indexOf("/creds/");
+		String backend = path.substring(0, index);
+		String role = path.substring(index + "/creds/".length());
+
+		if (!storage.containsKey(String.format("%s/roles/%s", backend, role))) {
+			sendErrors(exchange, 400, String.format("unknown role: %s", role));
+			return;
+		}
+
+		String leaseId = String.format("%s/%s", path, UUID.randomUUID());
+		leases.put(leaseId, System.currentTimeMillis());
+
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("username", String.format("%s-%s", role,
+				UUID.randomUUID().toString().substring(0, 8)));
+		data.put("password", UUID.randomUUID().toString());
+
+		send(exchange, 200, secretResponse(leaseId, leaseDuration, true, data));
+	}
+
+	private void renewLease(HttpExchange exchange, String leaseId) throws IOException {
+
+		Long created = leases.get(leaseId);
+		if (created == null) {
+			sendErrors(exchange, 400, "lease not found or lease is not renewable");
+			return;
+		}
+
+		long age = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - created);
+		long duration = Math.max(0, Math.min(leaseDuration, maxLeaseTtl - age));
+
+		send(exchange, 200, secretResponse(leaseId, duration, true, null));
+	}
+
+	private Map<String, Object> secretResponse(String leaseId, long leaseDuration,
+			boolean renewable, Map<String, Object> data) {
+
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("lease_id", leaseId);
+		response.put("lease_duration", leaseDuration);
+		response.put("renewable", renewable);
+		response.put("data", data);
+		response.put("auth", null);
+		return response;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+
+		try (InputStream inputStream = exchange.getRequestBody()) {
+
+			byte[] bytes = StreamUtils.copyToByteArray(inputStream);
+			if (bytes.length == 0) {
+				return new HashMap<>();
+			}
+
+			return objectMapper.readValue(bytes, Map.class);
+		}
+	}
+
+	private void sendErrors(HttpExchange exchange, int status, String... errors)
+			throws IOException {
+		send(exchange, status, Collections.singletonMap("errors", Arrays.asList(errors)));
+	}
+
+	private void sendNotFound(HttpExchange exchange) throws IOException {
+		send(exchange, 404, Collections.singletonMap("errors", Collections.emptyList()));
+	}
+
+	private void send(HttpExchange exchange, int status, Object body) throws IOException {
+
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+
+		byte[] bytes = objectMapper.writeValueAsBytes(body);
+
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(bytes);
+		}
+	}
+}